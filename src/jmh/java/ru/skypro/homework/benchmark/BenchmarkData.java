@@ -0,0 +1,60 @@
+package ru.skypro.homework.benchmark;
+
+import ru.skypro.homework.dto.account.Role;
+import ru.skypro.homework.model.AdEntity;
+import ru.skypro.homework.model.CommentEntity;
+import ru.skypro.homework.model.UserEntity;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Тестовые данные для бенчмарков
+ */
+final class BenchmarkData {
+
+    private BenchmarkData() {
+    }
+
+    static UserEntity user(int id) {
+        UserEntity userEntity = new UserEntity();
+        userEntity.setId(id);
+        userEntity.setEmail("user" + id + "@gmail.com");
+        userEntity.setPassword("$2a$12$nbPi.P3rcqDsL4xDcVru2OXnqZX81vVvUvaFRONeYDnyaeK4c/TbS");
+        userEntity.setFirstName("firstName" + id);
+        userEntity.setLastName("lastName" + id);
+        userEntity.setPhoneUser("+77777777777");
+        userEntity.setRole(Role.USER);
+        return userEntity;
+    }
+
+    static List<AdEntity> ads(int count) {
+        List<AdEntity> adEntityList = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            AdEntity adEntity = new AdEntity();
+            adEntity.setId(i + 1);
+            adEntity.setTitle("Велосипед горный " + i);
+            adEntity.setDescription("Почти новый велосипед, пробег " + i + " км");
+            adEntity.setPrice(10000 + i);
+            adEntity.setImagePath("/ad/Advertisement_" + i + ".png");
+            adEntity.setUserEntity(user(i % 10 + 1));
+            adEntityList.add(adEntity);
+        }
+        return adEntityList;
+    }
+
+    static List<CommentEntity> comments(int count) {
+        AdEntity adEntity = ads(1).get(0);
+        List<CommentEntity> commentEntityList = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            CommentEntity commentEntity = new CommentEntity();
+            commentEntity.setId(i + 1);
+            commentEntity.setText("Комментарий " + i);
+            commentEntity.setCreatedAt(1_700_000_000_000L + i);
+            commentEntity.setUserEntity(user(i % 10 + 1));
+            commentEntity.setAdEntity(adEntity);
+            commentEntityList.add(commentEntity);
+        }
+        return commentEntityList;
+    }
+}
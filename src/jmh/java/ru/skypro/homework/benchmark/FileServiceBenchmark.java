@@ -0,0 +1,77 @@
+package ru.skypro.homework.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.core.io.Resource;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.util.FileSystemUtils;
+import ru.skypro.homework.service.FileService;
+import ru.skypro.homework.service.impl.FileServiceImpl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Загрузка и выгрузка картинок {@link FileServiceImpl} разного размера.
+ * Загрузка вне транзакции: файл записывается во временную папку и сразу перемещается на постоянное место
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FileServiceBenchmark {
+
+    @Param({"16384", "1048576", "8388608"})
+    public int imageSize;
+
+    private Path dir;
+    private FileServiceImpl fileService;
+    private MockMultipartFile image;
+    private Path target;
+    private String storedImagePath;
+    private final byte[] buffer = new byte[8192];
+
+    @Setup
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("file-service-benchmark");
+        fileService = new FileServiceImpl(dir.resolve("staging").toString(), Duration.ofHours(1));
+        byte[] content = new byte[imageSize];
+        new Random(42).nextBytes(content);
+        image = new MockMultipartFile("image", "image.png", "image/png", content);
+        target = dir.resolve("upload.png");
+        storedImagePath = fileService.commitImage(fileService.stageImage(image, dir.resolve("download.png"))).toString();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        FileSystemUtils.deleteRecursively(dir);
+    }
+
+    @Benchmark
+    public Path upload() throws IOException {
+        FileService.StagedImage stagedImage = fileService.stageImage(image, target);
+        try {
+            return fileService.commitImage(stagedImage);
+        } finally {
+            fileService.discardImage(stagedImage);
+        }
+    }
+
+    @Benchmark
+    public void download(Blackhole blackhole) throws IOException {
+        Resource resource = fileService.downloadImage(storedImagePath);
+        try (InputStream is = resource.getInputStream()) {
+            int read;
+            while ((read = is.read(buffer)) != -1) {
+                blackhole.consume(read);
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package ru.skypro.homework.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ru.skypro.homework.dto.ads.Ads;
+import ru.skypro.homework.dto.comment.Comments;
+import ru.skypro.homework.service.impl.AdMapperImpl;
+import ru.skypro.homework.service.impl.CommentMapperImpl;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сериализация ответов ленты объявлений и комментариев в JSON
+ * с настройками {@link ObjectMapper}, как в Spring MVC
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonBenchmark {
+
+    @Param({"20", "100"})
+    public int size;
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private Ads ads;
+    private Comments comments;
+
+    @Setup
+    public void setUp() {
+        ads = new AdMapperImpl().toAds(BenchmarkData.ads(size));
+        comments = new CommentMapperImpl().toComments(BenchmarkData.comments(size));
+    }
+
+    @Benchmark
+    public byte[] writeAds() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(ads);
+    }
+
+    @Benchmark
+    public byte[] writeComments() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(comments);
+    }
+}
@@ -0,0 +1,48 @@
+package ru.skypro.homework.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.skypro.homework.dto.ads.Ads;
+import ru.skypro.homework.dto.comment.Comments;
+import ru.skypro.homework.model.AdEntity;
+import ru.skypro.homework.model.CommentEntity;
+import ru.skypro.homework.service.impl.AdMapperImpl;
+import ru.skypro.homework.service.impl.CommentMapperImpl;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Преобразование списков сущностей в ответы ленты объявлений и комментариев
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapperBenchmark {
+
+    @Param({"20", "100"})
+    public int size;
+
+    private final AdMapperImpl adMapper = new AdMapperImpl();
+    private final CommentMapperImpl commentMapper = new CommentMapperImpl();
+    private List<AdEntity> adEntityList;
+    private List<CommentEntity> commentEntityList;
+
+    @Setup
+    public void setUp() {
+        adEntityList = BenchmarkData.ads(size);
+        commentEntityList = BenchmarkData.comments(size);
+    }
+
+    @Benchmark
+    public Ads toAds() {
+        return adMapper.toAds(adEntityList);
+    }
+
+    @Benchmark
+    public Comments toComments() {
+        return commentMapper.toComments(commentEntityList);
+    }
+}
@@ -0,0 +1,38 @@
+package ru.skypro.homework.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.core.GrantedAuthority;
+import ru.skypro.homework.dto.account.Role;
+import ru.skypro.homework.security.SecurityUser;
+import ru.skypro.homework.security.SecurityUserDto;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Получение ролей пользователя, вызывается при каждой проверке доступа
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SecurityUserBenchmark {
+
+    private SecurityUser securityUser;
+
+    @Setup
+    public void setUp() {
+        SecurityUserDto securityUserDto = new SecurityUserDto();
+        securityUserDto.setId(1);
+        securityUserDto.setUserName("user1@gmail.com");
+        securityUserDto.setRole(Role.USER);
+        securityUser = new SecurityUser(securityUserDto);
+    }
+
+    @Benchmark
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return securityUser.getAuthorities();
+    }
+}
@@ -0,0 +1,69 @@
+package ru.skypro.homework.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Отчёт нагрузочного теста: задержки p50/p99/p999 и пропускная способность по каждому эндпоинту
+ */
+final class LatencyReport {
+
+    private LatencyReport() {
+    }
+
+    static String format(Map<String, Result> results) {
+        StringBuilder table = new StringBuilder(String.format("%n%-28s %9s %7s %10s %10s %10s %10s%n",
+                "endpoint", "requests", "errors", "rps", "p50 ms", "p99 ms", "p999 ms"));
+        results.forEach((name, result) -> table.append(String.format("%-28s %9d %7d %10.1f %10.2f %10.2f %10.2f%n",
+                name, result.requests, result.errors, result.throughput, result.p50, result.p99, result.p999)));
+        return table.toString();
+    }
+
+    static void writeJson(Map<String, Result> results, Map<String, Object> parameters, Path path) throws IOException {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("parameters", parameters);
+        report.put("results", results);
+        Files.createDirectories(path.getParent());
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(path.toFile(), report);
+    }
+
+    static class Result {
+        public final long requests;
+        public final long errors;
+        public final double throughput;
+        public final double p50;
+        public final double p99;
+        public final double p999;
+
+        private Result(long requests, long errors, double throughput, double p50, double p99, double p999) {
+            this.requests = requests;
+            this.errors = errors;
+            this.throughput = throughput;
+            this.p50 = p50;
+            this.p99 = p99;
+            this.p999 = p999;
+        }
+
+        static Result of(long[] latencyNanos, long errors, Duration duration) {
+            Arrays.sort(latencyNanos);
+            return new Result(latencyNanos.length, errors, latencyNanos.length / (duration.toMillis() / 1000.0),
+                    percentile(latencyNanos, 0.50), percentile(latencyNanos, 0.99), percentile(latencyNanos, 0.999));
+        }
+
+        private static double percentile(long[] sorted, double percentile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile * sorted.length) - 1;
+            return sorted[Math.max(index, 0)] / 1_000_000.0;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package ru.skypro.homework.loadtest;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Генератор нагрузки с фиксированной частотой запросов (открытая модель).
+ * Запросы отправляются по расписанию независимо от времени ответа сервера, а задержка
+ * считается от запланированного момента отправки, поэтому очередь на стороне клиента
+ * не скрывает замедление сервера
+ */
+class LoadGenerator {
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final List<Endpoint> endpoints;
+    private final Duration timeout;
+
+    /**
+     * @param endpoints эндпоинты, запросы к которым отправляются по очереди
+     * @param timeout время ожидания ответа, после которого запрос считается ошибочным
+     */
+    LoadGenerator(List<Endpoint> endpoints, Duration timeout) {
+        this.endpoints = endpoints;
+        this.timeout = timeout;
+    }
+
+    /**
+     * @param rate число запросов в секунду по всем эндпоинтам
+     * @param warmup время прогрева, результаты прогрева не учитываются
+     * @param duration время измерения
+     * @return результаты по каждому эндпоинту
+     */
+    Map<String, LatencyReport.Result> run(int rate, Duration warmup, Duration duration) throws InterruptedException {
+        Map<String, ConcurrentLinkedQueue<Long>> latencies = new LinkedHashMap<>();
+        Map<String, AtomicLong> errors = new LinkedHashMap<>();
+        for (Endpoint endpoint : endpoints) {
+            latencies.put(endpoint.name, new ConcurrentLinkedQueue<>());
+            errors.put(endpoint.name, new AtomicLong());
+        }
+        long periodNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        long totalRequests = (warmup.toNanos() + duration.toNanos()) / periodNanos;
+        long measuredFrom = warmup.toNanos() / periodNanos;
+        long start = System.nanoTime();
+        AtomicLong sequence = new AtomicLong();
+        CountDownLatch completed = new CountDownLatch((int) totalRequests);
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        scheduler.scheduleAtFixedRate(() -> {
+            long n = sequence.getAndIncrement();
+            if (n >= totalRequests) {
+                return;
+            }
+            Endpoint endpoint = endpoints.get((int) (n % endpoints.size()));
+            long intendedStart = start + n * periodNanos;
+            httpClient.sendAsync(endpoint.request.get(), HttpResponse.BodyHandlers.discarding())
+                    .orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS)
+                    .whenComplete((response, throwable) -> {
+                        if (n >= measuredFrom) {
+                            latencies.get(endpoint.name).add(System.nanoTime() - intendedStart);
+                            if (throwable != null || response.statusCode() >= 400) {
+                                errors.get(endpoint.name).incrementAndGet();
+                            }
+                        }
+                        completed.countDown();
+                    });
+        }, 0, periodNanos, TimeUnit.NANOSECONDS);
+        completed.await(warmup.plus(duration).plus(timeout).plusSeconds(5).toMillis(), TimeUnit.MILLISECONDS);
+        scheduler.shutdownNow();
+
+        Map<String, LatencyReport.Result> results = new LinkedHashMap<>();
+        for (Endpoint endpoint : endpoints) {
+            long[] values = latencies.get(endpoint.name).stream().mapToLong(Long::longValue).toArray();
+            results.put(endpoint.name, LatencyReport.Result.of(values, errors.get(endpoint.name).get(), duration));
+        }
+        return results;
+    }
+
+    static class Endpoint {
+        final String name;
+        final Supplier<HttpRequest> request;
+
+        Endpoint(String name, Supplier<HttpRequest> request) {
+            this.name = name;
+            this.request = request;
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package ru.skypro.homework.loadtest;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.core.env.Environment;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import ru.skypro.homework.model.AdEntity;
+import ru.skypro.homework.model.UserEntity;
+import ru.skypro.homework.repository.AdRepository;
+import ru.skypro.homework.repository.CommentRepository;
+import ru.skypro.homework.repository.UserRepository;
+import ru.skypro.homework.service.FileService;
+import ru.skypro.homework.service.ImageVariantService;
+import ru.skypro.homework.service.UserMapper;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Нагрузочный тест. Запуск: mvn -Ploadtest test<br>
+ * Параметры задаются системными свойствами: loadtest.users, loadtest.ads, loadtest.comments (на объявление),
+ * loadtest.images, loadtest.rate (запросов в секунду), loadtest.warmup, loadtest.duration и loadtest.timeout (секунды).
+ * Отчёт пишется в target/loadtest-report.json, в параметрах отчёта указаны версия Java и активные профили Spring:
+ * для сравнения с режимом виртуальных потоков тест запускается с -Pjdk21 -Dspring.profiles.active=virtual-threads
+ */
+@Slf4j
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class LoadTest {
+    private static final int USERS = Integer.getInteger("loadtest.users", 10);
+    private static final int ADS = Integer.getInteger("loadtest.ads", 200);
+    private static final int COMMENTS = Integer.getInteger("loadtest.comments", 5);
+    private static final int IMAGES = Integer.getInteger("loadtest.images", 20);
+    private static final int RATE = Integer.getInteger("loadtest.rate", 100);
+    private static final int WARMUP = Integer.getInteger("loadtest.warmup", 10);
+    private static final int DURATION = Integer.getInteger("loadtest.duration", 30);
+    private static final int TIMEOUT = Integer.getInteger("loadtest.timeout", 10);
+
+    @LocalServerPort
+    private int port;
+    @Value("${ad.image.dir.path}")
+    private String adImageDirPath;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private AdRepository adRepository;
+    @Autowired
+    private CommentRepository commentRepository;
+    @Autowired
+    private UserMapper userMapper;
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+    @Autowired
+    private FileService fileService;
+    @Autowired
+    private ImageVariantService imageVariantService;
+    @Autowired
+    private Environment environment;
+
+    @AfterEach
+    void tearDown() {
+        adRepository.findAll().stream()
+                .map(AdEntity::getImagePath)
+                .filter(Objects::nonNull)
+                .forEach(fileService::deleteImage);
+        commentRepository.deleteAll();
+        adRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("Нагрузочный тест основных эндпоинтов чтения")
+    void shouldServeReadEndpointsUnderFixedRateLoad() throws Exception {
+        LoadTestDataSeeder.Dataset dataset = new LoadTestDataSeeder(userRepository, adRepository, commentRepository,
+                userMapper, passwordEncoder, fileService, adImageDirPath).seed(USERS, ADS, COMMENTS, Math.min(IMAGES, ADS));
+        CompletableFuture.allOf(dataset.ads.stream()
+                .map(AdEntity::getImagePath)
+                .filter(Objects::nonNull)
+                .map(imagePath -> imageVariantService.generateVariants(Path.of(imagePath)))
+                .toArray(CompletableFuture[]::new)).join();
+
+        List<LoadGenerator.Endpoint> endpoints = List.of(
+                endpoint("GET /ads", dataset, d -> "/ads"),
+                endpoint("GET /ads/{id}", dataset, d -> "/ads/" + randomAd(d).getId()),
+                endpoint("GET /ads/{id}/comments", dataset, d -> "/ads/" + randomAd(d).getId() + "/comments"),
+                endpoint("GET /ads/image/{id}", dataset,
+                        d -> "/ads/image/" + d.ads.get(ThreadLocalRandom.current().nextInt(Math.max(Math.min(IMAGES, ADS), 1))).getId() + "?size=thumb"),
+                endpoint("GET /ads/find/{title}", dataset,
+                        d -> "/ads/find/" + URLEncoder.encode(randomAd(d).getTitle().split(" ")[0], StandardCharsets.UTF_8)),
+                endpoint("GET /ads/me", dataset, d -> "/ads/me"),
+                endpoint("GET /users/me", dataset, d -> "/users/me"),
+                new LoadGenerator.Endpoint("POST /login", () -> {
+                    UserEntity user = randomUser(dataset);
+                    return HttpRequest.newBuilder(uri("/login"))
+                            .header("Content-Type", "application/json")
+                            .POST(HttpRequest.BodyPublishers.ofString("{\"username\":\"" + user.getEmail()
+                                    + "\",\"password\":\"" + LoadTestDataSeeder.PASSWORD + "\"}"))
+                            .build();
+                }));
+
+        Map<String, LatencyReport.Result> results = new LoadGenerator(endpoints, Duration.ofSeconds(TIMEOUT))
+                .run(RATE, Duration.ofSeconds(WARMUP), Duration.ofSeconds(DURATION));
+        log.info(LatencyReport.format(results));
+
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        parameters.put("users", USERS);
+        parameters.put("ads", ADS);
+        parameters.put("commentsPerAd", COMMENTS);
+        parameters.put("images", IMAGES);
+        parameters.put("rate", RATE);
+        parameters.put("warmupSeconds", WARMUP);
+        parameters.put("durationSeconds", DURATION);
+        parameters.put("timeoutSeconds", TIMEOUT);
+        parameters.put("javaVersion", Runtime.version().toString());
+        parameters.put("profiles", List.of(environment.getActiveProfiles()));
+        LatencyReport.writeJson(results, parameters, Path.of("target", "loadtest-report.json"));
+
+        results.forEach((name, result) -> {
+            assertThat(result.requests).as(name).isPositive();
+            assertThat(result.errors).as(name).isZero();
+        });
+    }
+
+    private LoadGenerator.Endpoint endpoint(String name, LoadTestDataSeeder.Dataset dataset,
+                                            Function<LoadTestDataSeeder.Dataset, String> path) {
+        Supplier<HttpRequest> request = () -> HttpRequest.newBuilder(uri(path.apply(dataset)))
+                .header("Authorization", basicAuth(randomUser(dataset)))
+                .GET()
+                .build();
+        return new LoadGenerator.Endpoint(name, request);
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    private static String basicAuth(UserEntity user) {
+        return "Basic " + Base64.getEncoder().encodeToString(
+                (user.getEmail() + ":" + LoadTestDataSeeder.PASSWORD).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static UserEntity randomUser(LoadTestDataSeeder.Dataset dataset) {
+        return dataset.users.get(ThreadLocalRandom.current().nextInt(dataset.users.size()));
+    }
+
+    private static AdEntity randomAd(LoadTestDataSeeder.Dataset dataset) {
+        return dataset.ads.get(ThreadLocalRandom.current().nextInt(dataset.ads.size()));
+    }
+}
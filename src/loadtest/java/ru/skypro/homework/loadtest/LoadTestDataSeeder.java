@@ -0,0 +1,149 @@
+package ru.skypro.homework.loadtest;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import ru.skypro.homework.dto.account.Register;
+import ru.skypro.homework.dto.account.Role;
+import ru.skypro.homework.model.AdEntity;
+import ru.skypro.homework.model.CommentEntity;
+import ru.skypro.homework.model.UserEntity;
+import ru.skypro.homework.repository.AdRepository;
+import ru.skypro.homework.repository.CommentRepository;
+import ru.skypro.homework.repository.UserRepository;
+import ru.skypro.homework.service.FileService;
+import ru.skypro.homework.service.UserMapper;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Заполнение БД данными для нагрузочного теста. Пользователи создаются через {@link UserMapper}
+ * с паролем, хэшированным тем же {@link PasswordEncoder}, что и при регистрации. Данные генерируются с фиксированным
+ * начальным значением генератора, чтобы прогоны были воспроизводимы
+ */
+@Slf4j
+class LoadTestDataSeeder {
+    static final String PASSWORD = "password";
+    private static final String[] WORDS = {"велосипед", "самокат", "шлем", "диван", "стол", "телефон",
+            "ноутбук", "куртка", "ботинки", "коляска", "гитара", "лыжи"};
+
+    private final UserRepository userRepository;
+    private final AdRepository adRepository;
+    private final CommentRepository commentRepository;
+    private final UserMapper userMapper;
+    private final PasswordEncoder passwordEncoder;
+    private final FileService fileService;
+    private final String imageDirPath;
+    private final Random random = new Random(42);
+
+    LoadTestDataSeeder(UserRepository userRepository, AdRepository adRepository, CommentRepository commentRepository,
+                       UserMapper userMapper, PasswordEncoder passwordEncoder, FileService fileService,
+                       String imageDirPath) {
+        this.userRepository = userRepository;
+        this.adRepository = adRepository;
+        this.commentRepository = commentRepository;
+        this.userMapper = userMapper;
+        this.passwordEncoder = passwordEncoder;
+        this.fileService = fileService;
+        this.imageDirPath = imageDirPath;
+    }
+
+    /**
+     * @param users число пользователей
+     * @param ads число объявлений
+     * @param commentsPerAd число комментариев к каждому объявлению
+     * @param images число объявлений с картинкой
+     * @return созданные данные
+     */
+    Dataset seed(int users, int ads, int commentsPerAd, int images) throws IOException {
+        List<UserEntity> userEntityList = new ArrayList<>(users);
+        String encodedPassword = passwordEncoder.encode(PASSWORD);
+        for (int i = 0; i < users; i++) {
+            Register register = new Register();
+            register.setUsername("load" + i + "@gmail.com");
+            register.setPassword(PASSWORD);
+            register.setFirstName("Имя" + i);
+            register.setLastName("Фамилия" + i);
+            register.setPhone("+7900000" + String.format("%04d", i));
+            register.setRole(Role.USER);
+            userEntityList.add(userMapper.toUserEntity(register, encodedPassword));
+        }
+        userEntityList = userRepository.saveAll(userEntityList);
+
+        List<AdEntity> adEntityList = new ArrayList<>(ads);
+        for (int i = 0; i < ads; i++) {
+            AdEntity adEntity = new AdEntity();
+            adEntity.setTitle(word() + " " + word());
+            adEntity.setDescription(word() + " " + word() + " " + word() + ", почти новый");
+            adEntity.setPrice(100 + random.nextInt(100_000));
+            adEntity.setUserEntity(userEntityList.get(i % users));
+            if (i < images) {
+                adEntity.setImagePath(storeImage(i).toString());
+            }
+            adEntityList.add(adEntity);
+        }
+        adEntityList = adRepository.saveAll(adEntityList);
+
+        List<CommentEntity> commentEntityList = new ArrayList<>(ads * commentsPerAd);
+        long createdAt = 1_700_000_000_000L;
+        for (AdEntity adEntity : adEntityList) {
+            for (int i = 0; i < commentsPerAd; i++) {
+                CommentEntity commentEntity = new CommentEntity();
+                commentEntity.setText("Ещё продаётся? " + word());
+                commentEntity.setCreatedAt(createdAt++);
+                commentEntity.setUserEntity(userEntityList.get(random.nextInt(users)));
+                commentEntity.setAdEntity(adEntity);
+                commentEntityList.add(commentEntity);
+            }
+        }
+        commentRepository.saveAll(commentEntityList);
+        log.info("Seeded {} users, {} ads, {} comments, {} images.", users, ads, commentEntityList.size(), images);
+        return new Dataset(userEntityList, adEntityList);
+    }
+
+    private Path storeImage(int index) throws IOException {
+        BufferedImage image = new BufferedImage(1024, 768, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < image.getHeight(); y += 16) {
+            for (int x = 0; x < image.getWidth(); x += 16) {
+                int rgb = random.nextInt(0xFFFFFF);
+                for (int dy = 0; dy < 16; dy++) {
+                    for (int dx = 0; dx < 16; dx++) {
+                        image.setRGB(x + dx, y + dy, rgb);
+                    }
+                }
+            }
+        }
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", os);
+        MockMultipartFile file = new MockMultipartFile("image", "load" + index + ".png", "image/png", os.toByteArray());
+        FileService.StagedImage stagedImage = fileService.stageImage(file, Path.of(imageDirPath,
+                "Advertisement_" + UUID.randomUUID() + ".png"));
+        try {
+            return fileService.commitImage(stagedImage);
+        } finally {
+            fileService.discardImage(stagedImage);
+        }
+    }
+
+    private String word() {
+        return WORDS[random.nextInt(WORDS.length)];
+    }
+
+    static class Dataset {
+        final List<UserEntity> users;
+        final List<AdEntity> ads;
+
+        Dataset(List<UserEntity> users, List<AdEntity> ads) {
+            this.users = users;
+            this.ads = ads;
+        }
+    }
+}
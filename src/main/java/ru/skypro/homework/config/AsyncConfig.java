@@ -0,0 +1,45 @@
+package ru.skypro.homework.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+@EnableAsync
+@EnableScheduling
+public class AsyncConfig {
+
+    /**
+     * Пул потоков для обработки изображений. Очередь ограничена: при переполнении
+     * задача отклоняется, и вместо уменьшенного варианта отдаётся оригинал изображения
+     */
+    @Bean
+    public ThreadPoolTaskExecutor imageExecutor(@Value("${images.variants.pool-size}") int poolSize,
+                                                @Value("${images.variants.queue-capacity}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("image-");
+        return executor;
+    }
+
+    /**
+     * Пул потоков для хеширования и проверки паролей BCrypt. Размер пула ограничивает долю процессора,
+     * которую может занять вход и регистрация; при переполнении очереди запрос отклоняется с ответом 503
+     * @see ru.skypro.homework.security.PasswordHasher
+     */
+    @Bean
+    public ThreadPoolTaskExecutor passwordExecutor(@Value("${security.password-hashing.pool-size}") int poolSize,
+                                                   @Value("${security.password-hashing.queue-capacity}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("password-");
+        return executor;
+    }
+}
@@ -0,0 +1,129 @@
+package ru.skypro.homework.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.hibernate.boot.spi.SessionFactoryOptions;
+import org.hibernate.cache.cfg.spi.DomainDataRegionBuildingContext;
+import org.hibernate.cache.cfg.spi.DomainDataRegionConfig;
+import org.hibernate.cache.spi.support.DomainDataStorageAccess;
+import org.hibernate.cache.spi.support.RegionFactoryTemplate;
+import org.hibernate.cache.spi.support.StorageAccess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.springframework.boot.convert.DurationStyle;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Фабрика регионов кэша второго уровня Hibernate на основе Caffeine.<br>
+ * Размер и время жизни записей задаются для каждого региона свойствами
+ * {@code hibernate.cache.caffeine.<регион>.max-size} и {@code hibernate.cache.caffeine.<регион>.ttl},
+ * для регионов без настроек используются значения региона {@code default}.
+ * Регион отметок времени обновления таблиц не ограничивается, так как по нему проверяется актуальность кэша запросов
+ */
+public class CaffeineRegionFactory extends RegionFactoryTemplate {
+    private static final String PROPERTY_PREFIX = "hibernate.cache.caffeine.";
+    private static final String DEFAULT_REGION = "default";
+    private static final long DEFAULT_MAX_SIZE = 1000;
+
+    private final Map<String, Cache<Object, Object>> caches = new ConcurrentHashMap<>();
+    private Map<?, ?> configValues;
+
+    @Override
+    protected void prepareForUse(SessionFactoryOptions settings, Map configValues) {
+        this.configValues = configValues;
+    }
+
+    @Override
+    protected void releaseFromUse() {
+        caches.values().forEach(Cache::invalidateAll);
+        caches.clear();
+    }
+
+    @Override
+    protected DomainDataStorageAccess createDomainDataStorageAccess(DomainDataRegionConfig regionConfig,
+                                                                   DomainDataRegionBuildingContext buildingContext) {
+        return new CaffeineStorageAccess(boundedCache(regionConfig.getRegionName()));
+    }
+
+    @Override
+    protected StorageAccess createQueryResultsRegionStorageAccess(String regionName,
+                                                                  SessionFactoryImplementor sessionFactory) {
+        return new CaffeineStorageAccess(boundedCache(regionName));
+    }
+
+    @Override
+    protected StorageAccess createTimestampsRegionStorageAccess(String regionName,
+                                                                SessionFactoryImplementor sessionFactory) {
+        return new CaffeineStorageAccess(caches.computeIfAbsent(regionName, name -> Caffeine.newBuilder().build()));
+    }
+
+    private Cache<Object, Object> boundedCache(String regionName) {
+        return caches.computeIfAbsent(regionName, name -> {
+            Caffeine<Object, Object> builder = Caffeine.newBuilder()
+                    .maximumSize(Long.parseLong(property(name, "max-size", Long.toString(DEFAULT_MAX_SIZE))))
+                    .recordStats();
+            String ttl = property(name, "ttl", null);
+            if (ttl != null) {
+                builder.expireAfterWrite(DurationStyle.detectAndParse(ttl));
+            }
+            return builder.build();
+        });
+    }
+
+    private String property(String regionName, String key, String defaultValue) {
+        Object value = configValues.get(PROPERTY_PREFIX + regionName + "." + key);
+        if (value == null) {
+            value = configValues.get(PROPERTY_PREFIX + DEFAULT_REGION + "." + key);
+        }
+        return value == null ? defaultValue : value.toString();
+    }
+
+    /**
+     * Нативный кэш региона, {@code null}, если регион ещё не создан
+     * @param regionName имя региона
+     * @return кэш Caffeine
+     */
+    public Cache<Object, Object> getNativeCache(String regionName) {
+        return caches.get(regionName);
+    }
+
+    private static class CaffeineStorageAccess implements DomainDataStorageAccess {
+        private final Cache<Object, Object> cache;
+
+        CaffeineStorageAccess(Cache<Object, Object> cache) {
+            this.cache = cache;
+        }
+
+        @Override
+        public Object getFromCache(Object key, SharedSessionContractImplementor session) {
+            return cache.getIfPresent(key);
+        }
+
+        @Override
+        public void putIntoCache(Object key, Object value, SharedSessionContractImplementor session) {
+            cache.put(key, value);
+        }
+
+        @Override
+        public boolean contains(Object key) {
+            return cache.getIfPresent(key) != null;
+        }
+
+        @Override
+        public void evictData() {
+            cache.invalidateAll();
+        }
+
+        @Override
+        public void evictData(Object key) {
+            cache.invalidate(key);
+        }
+
+        @Override
+        public void release() {
+            cache.invalidateAll();
+        }
+    }
+}
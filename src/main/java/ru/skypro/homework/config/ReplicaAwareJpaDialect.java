@@ -0,0 +1,68 @@
+package ru.skypro.homework.config;
+
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.orm.jpa.vendor.HibernateJpaDialect;
+import org.springframework.transaction.TransactionDefinition;
+
+import javax.persistence.CacheStoreMode;
+import javax.persistence.EntityManager;
+import java.sql.SQLException;
+
+/**
+ * Диалект JPA для работы с репликами: транзакции только для чтения, которые {@link ReplicaRoutingDataSource}
+ * направляет на реплику, читают кэш второго уровня, но не записывают в него ({@link CacheMode#GET} для запросов
+ * и {@code javax.persistence.cache.storeMode=BYPASS} для {@link EntityManager#find}, который режим сессии не учитывает).<br>
+ * Реплика может отставать, и без этого объявление, прочитанное с реплики сразу после сброса записи в кэше,
+ * вернуло бы в кэш устаревшие данные до истечения срока их хранения. Режим кэша восстанавливается
+ * после завершения транзакции
+ */
+public class ReplicaAwareJpaDialect extends HibernateJpaDialect {
+    private static final String STORE_MODE = "javax.persistence.cache.storeMode";
+
+    @Override
+    public Object beginTransaction(EntityManager entityManager, TransactionDefinition definition)
+            throws SQLException {
+        Object transactionData = super.beginTransaction(entityManager, definition);
+        if (!definition.isReadOnly()) {
+            return transactionData;
+        }
+        Session session = getSession(entityManager);
+        ReadOnlyTransactionData readOnlyTransactionData = new ReadOnlyTransactionData(transactionData, entityManager,
+                session.getCacheMode(), entityManager.getProperties().get(STORE_MODE));
+        session.setCacheMode(CacheMode.GET);
+        entityManager.setProperty(STORE_MODE, CacheStoreMode.BYPASS);
+        return readOnlyTransactionData;
+    }
+
+    @Override
+    public void cleanupTransaction(Object transactionData) {
+        if (transactionData instanceof ReadOnlyTransactionData) {
+            ReadOnlyTransactionData readOnlyTransactionData = (ReadOnlyTransactionData) transactionData;
+            EntityManager entityManager = readOnlyTransactionData.entityManager;
+            if (entityManager.isOpen()) {
+                getSession(entityManager).setCacheMode(readOnlyTransactionData.previousCacheMode);
+                entityManager.setProperty(STORE_MODE, readOnlyTransactionData.previousStoreMode == null
+                        ? CacheStoreMode.USE
+                        : readOnlyTransactionData.previousStoreMode);
+            }
+            transactionData = readOnlyTransactionData.transactionData;
+        }
+        super.cleanupTransaction(transactionData);
+    }
+
+    private static final class ReadOnlyTransactionData {
+        private final Object transactionData;
+        private final EntityManager entityManager;
+        private final CacheMode previousCacheMode;
+        private final Object previousStoreMode;
+
+        private ReadOnlyTransactionData(Object transactionData, EntityManager entityManager,
+                                        CacheMode previousCacheMode, Object previousStoreMode) {
+            this.transactionData = transactionData;
+            this.entityManager = entityManager;
+            this.previousCacheMode = previousCacheMode;
+            this.previousStoreMode = previousStoreMode;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package ru.skypro.homework.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.JpaProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.orm.jpa.JpaVendorAdapter;
+import org.springframework.orm.jpa.vendor.HibernateJpaDialect;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Источник данных с репликами для чтения. Включается, если задан список {@code datasource.replicas.urls}.
+ * Пулы основной БД и реплик создаются из настроек {@code spring.datasource.*} и {@code spring.datasource.hikari.*},
+ * для реплик заменяется только адрес. Транзакции только для чтения не записывают в кэш второго уровня
+ * ({@link ReplicaAwareJpaDialect})
+ */
+@Configuration
+@ConditionalOnProperty("datasource.replicas.urls")
+public class ReplicaDataSourceConfig {
+
+    @Bean(destroyMethod = "close")
+    public ReplicaRoutingDataSource replicaRoutingDataSource(DataSourceProperties properties,
+                                                             Environment environment,
+                                                             @Value("${datasource.replicas.urls}") String[] replicaUrls,
+                                                             @Value("${datasource.replicas.lag-query}") String lagQuery,
+                                                             @Value("${datasource.replicas.max-lag}") Duration maxLag) {
+        Binder binder = Binder.get(environment);
+        HikariDataSource primary = pool(properties, binder, properties.determineUrl(), ReplicaRoutingDataSource.PRIMARY);
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (int i = 0; i < replicaUrls.length; i++) {
+            String name = "replica-" + i;
+            replicas.put(name, pool(properties, binder, replicaUrls[i].trim(), name));
+        }
+        return new ReplicaRoutingDataSource(primary, replicas, lagQuery, maxLag);
+    }
+
+    /**
+     * Источник данных приложения. Соединение берётся при первом запросе, когда признак
+     * транзакции только для чтения уже установлен
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+
+    /**
+     * Адаптер Hibernate с настройками {@code spring.jpa.*}, как у Spring Boot, но с {@link ReplicaAwareJpaDialect}
+     */
+    @Bean
+    public JpaVendorAdapter jpaVendorAdapter(JpaProperties properties) {
+        HibernateJpaDialect jpaDialect = new ReplicaAwareJpaDialect();
+        HibernateJpaVendorAdapter adapter = new HibernateJpaVendorAdapter() {
+            @Override
+            public HibernateJpaDialect getJpaDialect() {
+                return jpaDialect;
+            }
+        };
+        adapter.setShowSql(properties.isShowSql());
+        if (properties.getDatabase() != null) {
+            adapter.setDatabase(properties.getDatabase());
+        }
+        if (properties.getDatabasePlatform() != null) {
+            adapter.setDatabasePlatform(properties.getDatabasePlatform());
+        }
+        adapter.setGenerateDdl(properties.isGenerateDdl());
+        return adapter;
+    }
+
+    private static HikariDataSource pool(DataSourceProperties properties, Binder binder, String url, String name) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .url(url)
+                .build();
+        binder.bind("spring.datasource.hikari", Bindable.ofInstance(dataSource));
+        dataSource.setPoolName(name);
+        return dataSource;
+    }
+}
@@ -0,0 +1,167 @@
+package ru.skypro.homework.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Маршрутизация соединений между основной БД и репликами.<br>
+ * - Транзакции только для чтения ({@code @Transactional(readOnly = true)}) получают соединение с реплики,
+ * реплики выбираются по кругу. Остальные транзакции и запросы вне транзакций идут в основную БД.<br>
+ * - Признак «только для чтения» устанавливается после начала транзакции, поэтому источник данных
+ * должен использоваться через {@link LazyConnectionDataSourceProxy}: соединение берётся при первом запросе.<br>
+ * - Отставание каждой реплики проверяется запросом {@code datasource.replicas.lag-query}
+ * с интервалом {@code datasource.replicas.lag-check-interval}. Реплика, отставшая больше
+ * {@code datasource.replicas.max-lag} или не ответившая на проверку, исключается до следующей успешной проверки.
+ * Если доступных реплик нет, чтение выполняется в основной БД.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+    public static final String PRIMARY = "primary";
+
+    private final Map<String, DataSource> pools;
+    private final Map<String, Replica> replicas;
+    private final Map<String, LongAdder> routedConnections;
+    private final String lagQuery;
+    private final double maxLagSeconds;
+    private final AtomicInteger next = new AtomicInteger();
+    private volatile List<String> available;
+
+    /**
+     * @param primary пул соединений основной БД
+     * @param replicas пулы соединений реплик по именам
+     * @param lagQuery запрос, возвращающий отставание реплики в секундах
+     * @param maxLag допустимое отставание реплики
+     */
+    public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas,
+                                    String lagQuery, Duration maxLag) {
+        this.pools = new LinkedHashMap<>();
+        this.pools.put(PRIMARY, primary);
+        this.pools.putAll(replicas);
+        this.replicas = new LinkedHashMap<>();
+        replicas.forEach((name, dataSource) -> this.replicas.put(name, new Replica(dataSource)));
+        this.routedConnections = new HashMap<>();
+        pools.keySet().forEach(name -> routedConnections.put(name, new LongAdder()));
+        this.lagQuery = lagQuery;
+        this.maxLagSeconds = maxLag.toMillis() / 1000.0;
+        this.available = new ArrayList<>(replicas.keySet());
+        setTargetDataSources(new HashMap<>(pools));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        String key = PRIMARY;
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            List<String> candidates = available;
+            if (!candidates.isEmpty()) {
+                key = candidates.get(Math.floorMod(next.getAndIncrement(), candidates.size()));
+            }
+        }
+        routedConnections.get(key).increment();
+        return key;
+    }
+
+    /**
+     * Проверка отставания реплик и обновление списка реплик, доступных для чтения
+     */
+    @Scheduled(fixedDelayString = "${datasource.replicas.lag-check-interval}")
+    public void checkReplicaLag() {
+        List<String> healthy = new ArrayList<>(replicas.size());
+        replicas.forEach((name, replica) -> {
+            replica.lagSeconds = queryLag(name, replica.dataSource);
+            boolean wasAvailable = replica.available;
+            replica.available = replica.lagSeconds >= 0 && replica.lagSeconds <= maxLagSeconds;
+            if (replica.available) {
+                healthy.add(name);
+            }
+            if (wasAvailable != replica.available) {
+                log.warn("Replica {} is {}, lag: {} s.", name, replica.available ? "back in rotation" : "excluded",
+                        replica.lagSeconds);
+            }
+        });
+        available = Collections.unmodifiableList(healthy);
+    }
+
+    /**
+     * @return отставание реплики в секундах или {@code -1}, если реплика не ответила
+     */
+    private double queryLag(String name, DataSource dataSource) {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(lagQuery)) {
+            return resultSet.next() ? resultSet.getDouble(1) : 0;
+        } catch (SQLException e) {
+            log.warn("Replica {} lag check failed: {}", name, e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * Пулы соединений основной БД ({@link #PRIMARY}) и реплик по именам
+     */
+    public Map<String, DataSource> getPools() {
+        return Collections.unmodifiableMap(pools);
+    }
+
+    public List<String> getReplicaNames() {
+        return new ArrayList<>(replicas.keySet());
+    }
+
+    /**
+     * @return отставание реплики в секундах по последней проверке или {@code -1}, если реплика не ответила
+     */
+    public double getReplicaLag(String name) {
+        return replicas.get(name).lagSeconds;
+    }
+
+    public boolean isReplicaAvailable(String name) {
+        return replicas.get(name).available;
+    }
+
+    /**
+     * @return количество соединений, выданных пулом основной БД или реплики
+     */
+    public long getRoutedConnections(String name) {
+        return routedConnections.get(name).sum();
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (DataSource dataSource : pools.values()) {
+            if (dataSource instanceof Closeable) {
+                ((Closeable) dataSource).close();
+            }
+        }
+    }
+
+    private static final class Replica {
+        private final DataSource dataSource;
+        private volatile double lagSeconds;
+        private volatile boolean available = true;
+
+        private Replica(DataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package ru.skypro.homework.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.coyote.ProtocolHandler;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Обработка HTTP-запросов Tomcat в виртуальных потоках (профиль {@code virtual-threads}, нужна Java 21).<br>
+ * Каждый запрос получает свой виртуальный поток, поэтому блокирующие запросы к БД и чтение файлов
+ * не ограничены размером пула потоков Tomcat. Число одновременно обрабатываемых запросов ограничивают
+ * {@link ru.skypro.homework.filter.BulkheadFilter} и пул соединений Hikari.<br>
+ * Пулы {@code imageExecutor} и {@code passwordExecutor} остаются ограниченными пулами платформенных потоков:
+ * обработка изображений и хеширование паролей нагружают процессор, и их ограничение сделано намеренно.<br>
+ * Приложение собирается под Java 11, поэтому API виртуальных потоков вызывается через рефлексию
+ */
+@Slf4j
+@Configuration
+@Profile("virtual-threads")
+public class VirtualThreadsConfig {
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService requestExecutor() {
+        return virtualThreadPerTaskExecutor("request-");
+    }
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadsProtocolHandlerCustomizer(
+            ExecutorService requestExecutor) {
+        log.info("Tomcat requests are handled in virtual threads");
+        return protocolHandler -> protocolHandler.setExecutor(requestExecutor);
+    }
+
+    /**
+     * Исполнитель, запускающий каждую задачу в новом именованном виртуальном потоке:
+     * {@code Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(prefix, 0).factory())}
+     * @param prefix префикс имени потока
+     * @return исполнитель
+     * @throws IllegalStateException если виртуальные потоки не поддерживаются (Java ниже 21)
+     */
+    static ExecutorService virtualThreadPerTaskExecutor(String prefix) {
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, prefix, 0L);
+            ThreadFactory threadFactory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                    .invoke(null, threadFactory);
+        } catch (ClassNotFoundException | NoSuchMethodException e) {
+            throw new IllegalStateException("Profile virtual-threads requires Java 21 or newer, running on "
+                    + Runtime.version(), e);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Failed to create virtual thread factory", e);
+        }
+    }
+}
@@ -7,7 +7,10 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
 import org.springframework.security.web.SecurityFilterChain;
+import ru.skypro.homework.security.TokenAuthenticationConverter;
+import ru.skypro.homework.security.TokenService;
 
 import static org.springframework.security.config.Customizer.withDefaults;
 
@@ -20,11 +23,13 @@ public class WebSecurityConfig {
             "/v3/api-docs",
             "/webjars/**",
             "/login",
+            "/refresh",
             "/register"
     };
 
     @Bean
-    public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain filterChain(HttpSecurity http,
+                                           TokenAuthenticationConverter tokenAuthenticationConverter) throws Exception {
         http.csrf()
                 .disable()
                 .authorizeHttpRequests(
@@ -34,16 +39,25 @@ public class WebSecurityConfig {
                                         .permitAll()
                                         .mvcMatchers(HttpMethod.GET, "/ads", "/ads/image/**", "/users/image/**")
                                         .permitAll()
+                                        .mvcMatchers("/metrics")
+                                        .hasRole("ADMIN")
                                         .mvcMatchers("/ads/**", "/users/**")
                                         .authenticated())
                 .cors()
                 .and()
                 .httpBasic(withDefaults())
+                .oauth2ResourceServer(oauth2 -> oauth2
+                        .jwt(jwt -> jwt.jwtAuthenticationConverter(tokenAuthenticationConverter)))
                 .sessionManagement()
                 .sessionCreationPolicy(SessionCreationPolicy.STATELESS);
         return http.build();
     }
 
+    @Bean
+    public JwtDecoder jwtDecoder(TokenService tokenService) {
+        return tokenService::decodeAccessToken;
+    }
+
     @Bean
     public PasswordEncoder passwordEncoder() {
         return new BCryptPasswordEncoder(12);
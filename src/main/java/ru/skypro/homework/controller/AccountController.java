@@ -7,6 +7,7 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.Resource;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -17,6 +18,7 @@ import ru.skypro.homework.dto.account.User;
 import ru.skypro.homework.service.AccountService;
 
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Класс-контроллер для пользователей
@@ -32,6 +34,7 @@ import java.io.IOException;
 public class AccountController {
 
     private final AccountService accountService;
+    private final ImageResponses imageResponses;
 
     @PostMapping("/set_password")
     @Operation(
@@ -39,14 +42,17 @@ public class AccountController {
             responses = {
                     @ApiResponse(responseCode = "200", description = "OK", content = @Content(schema = @Schema(hidden = true))),
                     @ApiResponse(responseCode = "401", description = "Unauthorized", content = @Content(schema = @Schema(hidden = true))),
-                    @ApiResponse(responseCode = "403", description = "Forbidden", content = @Content(schema = @Schema(hidden = true)))
+                    @ApiResponse(responseCode = "403", description = "Forbidden", content = @Content(schema = @Schema(hidden = true))),
+                    @ApiResponse(responseCode = "503", description = "Service Unavailable", content = @Content(schema = @Schema(hidden = true)))
             }
     )
-    public ResponseEntity<?> setPassword(@RequestBody NewPassword newPassword) {
-        if (accountService.updatePassword(newPassword)) {
-            return ResponseEntity.ok().build();
-        }
-        return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+    public CompletableFuture<ResponseEntity<?>> setPassword(@RequestBody NewPassword newPassword) {
+        return accountService.updatePassword(newPassword).thenApply(updated -> {
+            if (updated) {
+                return ResponseEntity.ok().build();
+            }
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        });
     }
 
     @GetMapping("/me")
@@ -102,7 +108,7 @@ public class AccountController {
     }
 
     @GetMapping(value = "/image/{userId}", produces = {MediaType.IMAGE_PNG_VALUE, MediaType.IMAGE_JPEG_VALUE})
-    public ResponseEntity<byte[]> downloadUserAvatarFromFS(@PathVariable int userId) throws IOException {
-        return ResponseEntity.ok(accountService.downloadAvatarFromFS(userId));
+    public ResponseEntity<Resource> downloadUserAvatarFromFS(@PathVariable int userId) throws IOException {
+        return imageResponses.of(accountService.downloadAvatarFromFS(userId));
     }
 }
@@ -8,6 +8,8 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -17,6 +19,8 @@ import ru.skypro.homework.dto.ads.Ad;
 import ru.skypro.homework.dto.ads.Ads;
 import ru.skypro.homework.dto.ads.CreateOrUpdateAd;
 import ru.skypro.homework.dto.ads.ExtendedAd;
+import ru.skypro.homework.dto.ads.ExtendedAdDocument;
+import ru.skypro.homework.dto.ads.ImageSize;
 import ru.skypro.homework.service.AdService;
 
 import java.io.IOException;
@@ -36,9 +40,10 @@ import java.io.IOException;
 public class AdvertisementController {
 
     private final AdService adService;
+    private final ImageResponses imageResponses;
 
     @Operation(
-            summary = "Получить все объявления",
+            summary = "Получить страницу ленты объявлений",
             responses = {
                     @ApiResponse(responseCode = "200",
                             description = "OK",
@@ -49,8 +54,9 @@ public class AdvertisementController {
             }
     )
     @GetMapping
-    public ResponseEntity<Ads> getAllAds() {
-        return ResponseEntity.ok(adService.getAllAdvertising());
+    public ResponseEntity<Ads> getAllAds(@RequestParam(required = false) Integer cursor,
+                                         @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok(adService.getAllAdvertising(cursor, size));
     }
 
     @Operation(
@@ -80,14 +86,19 @@ public class AdvertisementController {
                                     mediaType = MediaType.APPLICATION_JSON_VALUE,
                                     schema = @Schema(implementation = ExtendedAd.class)
                             )),
-                    @ApiResponse(responseCode = "200", description = "OK", content = @Content(schema = @Schema(hidden = true))),
+                    @ApiResponse(responseCode = "304", description = "Not Modified", content = @Content(schema = @Schema(hidden = true))),
                     @ApiResponse(responseCode = "401", description = "Unauthorized", content = @Content(schema = @Schema(hidden = true))),
                     @ApiResponse(responseCode = "404", description = "Not Found", content = @Content(schema = @Schema(hidden = true)))
             }
     )
     @GetMapping("/{id}")
-    public ResponseEntity<ExtendedAd> getAds(@PathVariable int id) {
-        return ResponseEntity.ok(adService.getAdvertisingById(id));
+    public ResponseEntity<byte[]> getAds(@PathVariable int id) {
+        ExtendedAdDocument ad = adService.getAdvertisingDocumentById(id);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(ad.getETag())
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(ad.getContent());
     }
 
     @Operation(
@@ -173,16 +184,25 @@ public class AdvertisementController {
     }
 
     @GetMapping(value = "/image/{adId}", produces = {MediaType.IMAGE_PNG_VALUE, MediaType.IMAGE_JPEG_VALUE})
-    public ResponseEntity<byte[]> downloadAdImageFromFS(@PathVariable int adId) throws IOException {
-        return ResponseEntity.ok(adService.downloadAdImageFromFS(adId));
+    public ResponseEntity<Resource> downloadAdImageFromFS(@PathVariable int adId,
+                                                          @RequestParam(required = false) String size) throws IOException {
+        return imageResponses.of(adService.downloadAdImageFromFS(adId, ImageSize.of(size)));
     }
 
     @Operation(
-            summary = "Найти объявление по названию"
+            summary = "Найти объявления по названию и описанию"
     )
     @GetMapping("/find/{title}")
-    public ResponseEntity<Ads> findAdsByTitle(@PathVariable String title) {
-        return ResponseEntity.ok(adService.findByTitle(title));
+    public ResponseEntity<Ads> findAdsByTitle(@PathVariable String title,
+                                              @RequestParam(required = false) Integer minPrice,
+                                              @RequestParam(required = false) Integer maxPrice,
+                                              @RequestParam(required = false) Integer page,
+                                              @RequestParam(required = false) Integer size) {
+        Ads foundAds = adService.searchAds(title, minPrice, maxPrice, page, size);
+        if (foundAds == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(foundAds);
     }
 
 
@@ -7,15 +7,20 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
+import ru.skypro.homework.dto.account.AuthTokens;
 import ru.skypro.homework.dto.account.Login;
+import ru.skypro.homework.dto.account.RefreshToken;
 import ru.skypro.homework.dto.account.Register;
 import ru.skypro.homework.service.AuthService;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Класс-контроллер для авторизации и регистрации пользователей
  * @see Login
@@ -34,13 +39,45 @@ public class AuthController {
     @Operation(
             summary = "Авторизация пользователя",
             responses = {
-                    @ApiResponse(responseCode = "200", description = "OK", content = @Content(schema = @Schema(hidden = true)))
+                    @ApiResponse(responseCode = "200",
+                            description = "OK",
+                            content = @Content(
+                                    mediaType = MediaType.APPLICATION_JSON_VALUE,
+                                    schema = @Schema(implementation = AuthTokens.class)
+                            )),
+                    @ApiResponse(responseCode = "401", description = "Unauthorized", content = @Content(schema = @Schema(hidden = true))),
+                    @ApiResponse(responseCode = "503", description = "Service Unavailable", content = @Content(schema = @Schema(hidden = true)))
+            },
+            tags = "Авторизация"
+    )
+    public CompletableFuture<ResponseEntity<AuthTokens>> login(@RequestBody Login login) {
+        return authService.login(login.getUsername(), login.getPassword()).thenApply(tokens -> {
+            if (tokens != null) {
+                return ResponseEntity.ok(tokens);
+            } else {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+            }
+        });
+    }
+
+    @PostMapping("/refresh")
+    @Operation(
+            summary = "Обновление токенов",
+            responses = {
+                    @ApiResponse(responseCode = "200",
+                            description = "OK",
+                            content = @Content(
+                                    mediaType = MediaType.APPLICATION_JSON_VALUE,
+                                    schema = @Schema(implementation = AuthTokens.class)
+                            )),
+                    @ApiResponse(responseCode = "401", description = "Unauthorized", content = @Content(schema = @Schema(hidden = true)))
             },
             tags = "Авторизация"
     )
-    public ResponseEntity<?> login(@RequestBody Login login) {
-        if (authService.login(login.getUsername(), login.getPassword())) {
-            return ResponseEntity.ok().build();
+    public ResponseEntity<AuthTokens> refresh(@RequestBody RefreshToken refreshToken) {
+        AuthTokens tokens = authService.refresh(refreshToken.getRefreshToken());
+        if (tokens != null) {
+            return ResponseEntity.ok(tokens);
         } else {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
@@ -50,15 +87,18 @@ public class AuthController {
     @Operation(
             summary = "Регистрация пользователя",
             responses = {
-        @ApiResponse(responseCode = "201", description = "Created", content = @Content(schema = @Schema(hidden = true)))
+        @ApiResponse(responseCode = "201", description = "Created", content = @Content(schema = @Schema(hidden = true))),
+        @ApiResponse(responseCode = "503", description = "Service Unavailable", content = @Content(schema = @Schema(hidden = true)))
     },
     tags = "Регистрация"
             )
-    public ResponseEntity<?> register(@RequestBody Register register) {
-        if (authService.register(register)) {
-            return ResponseEntity.status(HttpStatus.CREATED).build();
-        } else {
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
-        }
+    public CompletableFuture<ResponseEntity<?>> register(@RequestBody Register register) {
+        return authService.register(register).thenApply(registered -> {
+            if (registered) {
+                return ResponseEntity.status(HttpStatus.CREATED).build();
+            } else {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+            }
+        });
     }
 }
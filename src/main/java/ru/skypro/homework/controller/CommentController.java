@@ -16,6 +16,8 @@ import ru.skypro.homework.dto.comment.Comments;
 import ru.skypro.homework.dto.comment.CreateOrUpdateComment;
 import ru.skypro.homework.service.CommentService;
 
+import java.util.List;
+
 /**
  * Класс-контроллер для комментариев
  * @see Comment
@@ -46,8 +48,10 @@ public class CommentController {
             }
     )
     @GetMapping("/{id}/comments")
-    public ResponseEntity<Comments> getComments(@PathVariable(name = "id") Integer id) {
-        return ResponseEntity.ok(commentService.getComments(id));
+    public ResponseEntity<Comments> getComments(@PathVariable(name = "id") Integer id,
+                                                @RequestParam(required = false) Integer page,
+                                                @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok(commentService.getComments(id, page, size));
     }
 
     @Operation(
@@ -69,6 +73,30 @@ public class CommentController {
         return ResponseEntity.ok(commentService.addComment(id, createOrUpdateComment));
     }
 
+    @Operation(
+            summary = "Добавить несколько комментариев к объявлению",
+            responses = {
+                    @ApiResponse(responseCode = "200",
+                            description = "OK",
+                            content = @Content(
+                                    mediaType = MediaType.APPLICATION_JSON_VALUE,
+                                    schema = @Schema(implementation = Comments.class)
+                            )),
+                    @ApiResponse(responseCode = "400", description = "Bad Request", content = @Content(schema = @Schema(hidden = true))),
+                    @ApiResponse(responseCode = "401", description = "Unauthorized", content = @Content(schema = @Schema(hidden = true))),
+                    @ApiResponse(responseCode = "404", description = "Not Found", content = @Content(schema = @Schema(hidden = true)))
+            }
+    )
+    @PostMapping("/{id}/comments/batch")
+    public ResponseEntity<Comments> addComments(@PathVariable(name = "id") Integer id,
+                                                @RequestBody List<CreateOrUpdateComment> createOrUpdateComments) {
+        Comments comments = commentService.addComments(id, createOrUpdateComments);
+        if (comments != null) {
+            return ResponseEntity.ok(comments);
+        }
+        return ResponseEntity.badRequest().build();
+    }
+
     @Operation(
             summary = "Удалить комментарий",
             responses = {
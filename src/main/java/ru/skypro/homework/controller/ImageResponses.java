@@ -0,0 +1,50 @@
+package ru.skypro.homework.controller;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Формирование ответов сервера с изображениями.<br>
+ * - Тело ответа - ресурс файла, который копируется в ответ потоком, без чтения всего файла в память.<br>
+ * - Заголовки {@code ETag}, {@code Last-Modified} и {@code Cache-Control} позволяют клиенту
+ * повторно использовать загруженное изображение. Условные запросы ({@code If-None-Match},
+ * {@code If-Modified-Since}) и запросы части файла ({@code Range}) обрабатываются
+ * {@link org.springframework.web.servlet.mvc.method.annotation.HttpEntityMethodProcessor}
+ */
+@Component
+public class ImageResponses {
+
+    private final CacheControl cacheControl;
+
+    public ImageResponses(@Value("${images.cache-control.max-age}") Duration maxAge) {
+        this.cacheControl = CacheControl.maxAge(maxAge).cachePrivate();
+    }
+
+    /**
+     * Ответ сервера с изображением
+     * @param image ресурс файла картинки, {@code null}, если изображение не загружено
+     * @return ответ со статусом 200 и заголовками кэширования или 404, если изображения нет
+     * @throws IOException ошибка чтения атрибутов файла
+     */
+    public ResponseEntity<Resource> of(Resource image) throws IOException {
+        if (image == null) {
+            return ResponseEntity.notFound().build();
+        }
+        long lastModified = image.lastModified();
+        String eTag = "\"" + Long.toHexString(lastModified) + "-" + Long.toHexString(image.contentLength()) + "\"";
+        return ResponseEntity.ok()
+                .contentType(MediaTypeFactory.getMediaType(image).orElse(MediaType.APPLICATION_OCTET_STREAM))
+                .eTag(eTag)
+                .lastModified(lastModified)
+                .cacheControl(cacheControl)
+                .body(image);
+    }
+}
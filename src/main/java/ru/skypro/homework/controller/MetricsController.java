@@ -0,0 +1,26 @@
+package ru.skypro.homework.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import ru.skypro.homework.metrics.MetricsRegistry;
+
+/**
+ * Класс-контроллер для выгрузки метрик приложения. Доступен только администраторам
+ * @see MetricsRegistry
+ */
+@RestController
+@RequiredArgsConstructor
+@Tag(name = "Метрики")
+public class MetricsController {
+
+    private final MetricsRegistry metricsRegistry;
+
+    @Operation(summary = "Получить метрики приложения в формате Prometheus")
+    @GetMapping(value = "/metrics", produces = "text/plain;version=0.0.4;charset=utf-8")
+    public String scrape() {
+        return metricsRegistry.scrape();
+    }
+}
@@ -0,0 +1,34 @@
+package ru.skypro.homework.controller;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.time.Duration;
+
+/**
+ * Ответ 503 с заголовком {@code Retry-After}, когда очередь пула потоков переполнена
+ * (например, пула хеширования паролей {@link ru.skypro.homework.security.PasswordHasher})
+ */
+@Slf4j
+@RestControllerAdvice
+public class OverloadExceptionHandler {
+    private final String retryAfter;
+
+    public OverloadExceptionHandler(@Value("${bulkhead.retry-after}") Duration retryAfter) {
+        this.retryAfter = Long.toString(Math.max(1, retryAfter.getSeconds()));
+    }
+
+    @ExceptionHandler(TaskRejectedException.class)
+    public ResponseEntity<?> handleTaskRejected(TaskRejectedException e) {
+        log.warn("Task rejected: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, retryAfter)
+                .build();
+    }
+}
@@ -0,0 +1,11 @@
+package ru.skypro.homework.dto.account;
+
+import lombok.Data;
+
+@Data
+public class AuthTokens {
+    private String accessToken;
+    private String refreshToken;
+    private String tokenType;
+    private long expiresIn;
+}
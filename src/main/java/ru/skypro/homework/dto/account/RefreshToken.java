@@ -0,0 +1,8 @@
+package ru.skypro.homework.dto.account;
+
+import lombok.Data;
+
+@Data
+public class RefreshToken {
+    private String refreshToken;
+}
@@ -11,4 +11,5 @@ public class User {
     private String phone;
     private Role role;
     private String image;
+    private int adCount;
 }
@@ -9,4 +9,5 @@ public class Ad {
     private int pk;
     private int price;
     private String title;
+    private int commentCount;
 }
@@ -8,4 +8,5 @@ import java.util.List;
 public class Ads {
     private int count;
     private List<Ad> results;
+    private Integer next;
 }
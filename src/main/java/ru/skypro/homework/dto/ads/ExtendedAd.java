@@ -13,4 +13,5 @@ public class ExtendedAd {
     private String phone;
     private int price;
     private String title;
+    private int commentCount;
 }
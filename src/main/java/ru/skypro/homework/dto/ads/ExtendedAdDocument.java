@@ -0,0 +1,14 @@
+package ru.skypro.homework.dto.ads;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Сериализованный в JSON объект {@link ExtendedAd} и его {@code ETag}
+ */
+@Getter
+@RequiredArgsConstructor
+public class ExtendedAdDocument {
+    private final byte[] content;
+    private final String eTag;
+}
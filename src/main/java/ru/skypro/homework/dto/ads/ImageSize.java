@@ -0,0 +1,41 @@
+package ru.skypro.homework.dto.ads;
+
+/**
+ * Варианты размера изображения объявления. Для {@link #THUMB} и {@link #MEDIUM}
+ * большая сторона изображения уменьшается до {@code maxDimension} пикселей
+ */
+public enum ImageSize {
+    ORIGINAL("original", 0),
+    THUMB("thumb", 320),
+    MEDIUM("medium", 1024);
+
+    private final String value;
+    private final int maxDimension;
+
+    ImageSize(String value, int maxDimension) {
+        this.value = value;
+        this.maxDimension = maxDimension;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public int getMaxDimension() {
+        return maxDimension;
+    }
+
+    /**
+     * Получение варианта размера по значению параметра запроса
+     * @param value значение параметра {@code size}
+     * @return вариант размера, {@link #ORIGINAL} для пустого или неизвестного значения
+     */
+    public static ImageSize of(String value) {
+        for (ImageSize size : values()) {
+            if (size.value.equalsIgnoreCase(value)) {
+                return size;
+            }
+        }
+        return ORIGINAL;
+    }
+}
@@ -8,4 +8,5 @@ import java.util.List;
 public class Comments {
     private int count;
     private List<Comment> results;
+    private Integer next;
 }
@@ -0,0 +1,140 @@
+package ru.skypro.homework.filter;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import ru.skypro.homework.limiter.AdaptiveConcurrencyLimiter;
+import ru.skypro.homework.limiter.RequestClass;
+import ru.skypro.homework.metrics.MetricsRegistry;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Изоляция классов запросов ({@link RequestClass}) друг от друга: у каждого класса свой адаптивный предел
+ * одновременно обрабатываемых запросов ({@link AdaptiveConcurrencyLimiter}).<br>
+ * Запросы сверх предела отклоняются сразу со статусом 503 и заголовком {@code Retry-After}, не занимая поток и соединение с БД.<br>
+ * Фильтр стоит перед Spring Security, чтобы проверка пароля при Basic-аутентификации тоже не выполнялась для отклонённых запросов
+ */
+@Slf4j
+@Component
+@Order(SecurityProperties.DEFAULT_FILTER_ORDER - 1)
+public class BulkheadFilter extends OncePerRequestFilter {
+    private final Map<RequestClass, AdaptiveConcurrencyLimiter> limiters = new EnumMap<>(RequestClass.class);
+    private final String retryAfter;
+
+    public BulkheadFilter(Environment environment,
+                          MetricsRegistry metricsRegistry,
+                          @Value("${bulkhead.min-limit}") int minLimit,
+                          @Value("${bulkhead.retry-after}") Duration retryAfter) {
+        this.retryAfter = Long.toString(Math.max(1, retryAfter.getSeconds()));
+        for (RequestClass requestClass : RequestClass.values()) {
+            String prefix = "bulkhead." + requestClass.getName();
+            AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(
+                    environment.getRequiredProperty(prefix + ".initial-limit", Integer.class),
+                    minLimit,
+                    environment.getRequiredProperty(prefix + ".max-limit", Integer.class));
+            limiters.put(requestClass, limiter);
+            metricsRegistry.gauge("bulkhead_limit", limiter::getLimit, "class", requestClass.getName());
+            metricsRegistry.gauge("bulkhead_inflight", limiter::getInflight, "class", requestClass.getName());
+            metricsRegistry.functionCounter("bulkhead_rejected_total", limiter::getRejected,
+                    "class", requestClass.getName());
+        }
+    }
+
+    /**
+     * Предел для класса запросов
+     *
+     * @param requestClass класс запросов
+     * @return {@link AdaptiveConcurrencyLimiter}
+     */
+    public AdaptiveConcurrencyLimiter getLimiter(RequestClass requestClass) {
+        return limiters.get(requestClass);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest httpServletRequest,
+                                    HttpServletResponse httpServletResponse,
+                                    FilterChain filterChain)
+            throws ServletException, IOException {
+        String path = httpServletRequest.getRequestURI().substring(httpServletRequest.getContextPath().length());
+        RequestClass requestClass = RequestClass.of(httpServletRequest.getMethod(), path);
+        if (requestClass == null) {
+            filterChain.doFilter(httpServletRequest, httpServletResponse);
+            return;
+        }
+        AdaptiveConcurrencyLimiter limiter = limiters.get(requestClass);
+        if (!limiter.tryAcquire()) {
+            log.debug("Rejected {} {}: {} limit {} reached", httpServletRequest.getMethod(), path,
+                    requestClass.getName(), limiter.getLimit());
+            httpServletResponse.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            httpServletResponse.setHeader(HttpHeaders.RETRY_AFTER, retryAfter);
+            return;
+        }
+        Permit permit = new Permit(limiter);
+        try {
+            filterChain.doFilter(httpServletRequest, httpServletResponse);
+        } catch (IOException | ServletException | RuntimeException e) {
+            permit.release(true);
+            throw e;
+        }
+        if (httpServletRequest.isAsyncStarted()) {
+            httpServletRequest.getAsyncContext().addListener(new AsyncListener() {
+                @Override
+                public void onComplete(AsyncEvent event) {
+                    permit.release(httpServletResponse.getStatus() >= 500);
+                }
+
+                @Override
+                public void onTimeout(AsyncEvent event) {
+                    permit.release(true);
+                }
+
+                @Override
+                public void onError(AsyncEvent event) {
+                    permit.release(true);
+                }
+
+                @Override
+                public void onStartAsync(AsyncEvent event) {
+                }
+            });
+        } else {
+            permit.release(httpServletResponse.getStatus() >= 500);
+        }
+    }
+
+    /**
+     * Разрешение, возвращаемое ровно один раз: при асинхронной обработке после таймаута или ошибки вызывается ещё и onComplete
+     */
+    private static class Permit {
+        private final AdaptiveConcurrencyLimiter limiter;
+        private final long start = System.nanoTime();
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        Permit(AdaptiveConcurrencyLimiter limiter) {
+            this.limiter = limiter;
+        }
+
+        void release(boolean dropped) {
+            if (released.compareAndSet(false, true)) {
+                limiter.release(System.nanoTime() - start, dropped);
+            }
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package ru.skypro.homework.filter;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+import ru.skypro.homework.metrics.MetricsRegistry;
+import ru.skypro.homework.metrics.StatementCounter;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+
+/**
+ * Метрики HTTP-запросов: время обработки {@code http_server_requests_seconds},
+ * число SQL-запросов на один HTTP-запрос {@code http_server_requests_statements}
+ * и объём отданных изображений {@code images_served_bytes_total}
+ */
+@Component
+public class RequestMetricsFilter extends OncePerRequestFilter {
+    private static final long[] STATEMENT_BOUNDS = {0, 1, 2, 3, 5, 10, 20, 50, 100};
+
+    private final MetricsRegistry metricsRegistry;
+    private final StatementCounter statementCounter;
+
+    public RequestMetricsFilter(MetricsRegistry metricsRegistry, StatementCounter statementCounter) {
+        this.metricsRegistry = metricsRegistry;
+        this.statementCounter = statementCounter;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest httpServletRequest,
+                                    HttpServletResponse httpServletResponse,
+                                    FilterChain filterChain)
+            throws ServletException, IOException {
+        CountingResponse countingResponse = httpServletRequest.getRequestURI().contains("/image/")
+                ? new CountingResponse(httpServletResponse)
+                : null;
+        long start = System.nanoTime();
+        statementCounter.start();
+        try {
+            filterChain.doFilter(httpServletRequest, countingResponse == null ? httpServletResponse : countingResponse);
+        } finally {
+            int statements = statementCounter.stop();
+            Object pattern = httpServletRequest.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            String uri = pattern == null ? "UNKNOWN" : pattern.toString();
+            String method = httpServletRequest.getMethod();
+            metricsRegistry.histogram("http_server_requests_statements", STATEMENT_BOUNDS,
+                    "method", method, "uri", uri).record(statements);
+            if (httpServletRequest.isAsyncStarted()) {
+                httpServletRequest.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        record(method, uri, httpServletResponse, countingResponse, start);
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                    }
+                });
+            } else {
+                record(method, uri, httpServletResponse, countingResponse, start);
+            }
+        }
+    }
+
+    /**
+     * Для асинхронных запросов время и статус записываются по завершении обработки;
+     * SQL-запросы, выполненные вне потока запроса, не учитываются
+     */
+    private void record(String method, String uri, HttpServletResponse httpServletResponse,
+                        CountingResponse countingResponse, long start) {
+        metricsRegistry.timer("http_server_requests_seconds", "method", method, "uri", uri,
+                "status", Integer.toString(httpServletResponse.getStatus())).record(System.nanoTime() - start);
+        if (countingResponse != null && countingResponse.bytes > 0) {
+            metricsRegistry.counter("images_served_bytes_total", "uri", uri).increment(countingResponse.bytes);
+        }
+    }
+
+    /**
+     * Обёртка ответа, считающая байты, записанные в тело
+     */
+    private static class CountingResponse extends HttpServletResponseWrapper {
+        private long bytes;
+        private ServletOutputStream outputStream;
+
+        CountingResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (outputStream == null) {
+                ServletOutputStream delegate = super.getOutputStream();
+                outputStream = new ServletOutputStream() {
+                    @Override
+                    public void write(int b) throws IOException {
+                        delegate.write(b);
+                        bytes++;
+                    }
+
+                    @Override
+                    public void write(byte[] b, int off, int len) throws IOException {
+                        delegate.write(b, off, len);
+                        bytes += len;
+                    }
+
+                    @Override
+                    public void flush() throws IOException {
+                        delegate.flush();
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        delegate.close();
+                    }
+
+                    @Override
+                    public boolean isReady() {
+                        return delegate.isReady();
+                    }
+
+                    @Override
+                    public void setWriteListener(WriteListener writeListener) {
+                        delegate.setWriteListener(writeListener);
+                    }
+                };
+            }
+            return outputStream;
+        }
+    }
+}
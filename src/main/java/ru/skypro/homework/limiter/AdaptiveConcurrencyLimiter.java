@@ -0,0 +1,129 @@
+package ru.skypro.homework.limiter;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Адаптивный предел одновременно обрабатываемых запросов по градиенту времени ответа.<br>
+ * Сравнивает краткосрочное среднее время ответа с долгосрочным (базовым):<br>
+ * - если время ответа растёт, значит запросы встают в очередь за общими ресурсами, и предел уменьшается;<br>
+ * - если время ответа держится у базового, предел растёт на корень из текущего значения, оставляя небольшой запас под очередь;<br>
+ * - запрос, завершившийся ошибкой сервера, уменьшает предел на {@link #BACKOFF_RATIO}.<br>
+ * Предел не растёт, пока занято меньше половины разрешений: по такой нагрузке нельзя судить о пропускной способности
+ */
+public class AdaptiveConcurrencyLimiter {
+    /**
+     * Во сколько раз краткосрочное время ответа может превышать базовое, прежде чем предел начнёт уменьшаться
+     */
+    static final double RTT_TOLERANCE = 1.5;
+    static final double BACKOFF_RATIO = 0.9;
+    private static final double SMOOTHING = 0.2;
+    private static final int SHORT_WINDOW = 10;
+    private static final int LONG_WINDOW = 600;
+    private static final int WARMUP_SAMPLES = SHORT_WINDOW;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final int minLimit;
+    private final int maxLimit;
+    private double limit;
+    private int inflight;
+    private long rejected;
+    private long samples;
+    private double shortRtt;
+    private double longRtt;
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit) {
+        if (minLimit < 1 || minLimit > maxLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Expected 1 <= min-limit <= initial-limit <= max-limit, got "
+                    + minLimit + ", " + initialLimit + ", " + maxLimit);
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = initialLimit;
+    }
+
+    /**
+     * Получение разрешения на обработку запроса
+     *
+     * @return {@code false}, если предел исчерпан и запрос нужно отклонить
+     */
+    public boolean tryAcquire() {
+        lock.lock();
+        try {
+            if (inflight >= (int) limit) {
+                rejected++;
+                return false;
+            }
+            inflight++;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Возврат разрешения и пересчёт предела по времени обработки запроса
+     *
+     * @param rttNanos время обработки запроса в наносекундах
+     * @param dropped  запрос завершился ошибкой сервера
+     */
+    public void release(long rttNanos, boolean dropped) {
+        lock.lock();
+        try {
+            int inflightAtStart = inflight;
+            inflight--;
+            if (dropped) {
+                limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+                return;
+            }
+            shortRtt = average(shortRtt, rttNanos, SHORT_WINDOW);
+            longRtt = average(longRtt, rttNanos, LONG_WINDOW);
+            if (++samples < WARMUP_SAMPLES) {
+                return;
+            }
+            // после спада нагрузки базовое время остаётся завышенным, его нужно быстрее вернуть к текущему
+            if (longRtt > 2 * shortRtt) {
+                longRtt *= 0.95;
+            }
+            if (inflightAtStart < limit / 2) {
+                return;
+            }
+            double gradient = Math.max(0.5, Math.min(1.0, RTT_TOLERANCE * longRtt / shortRtt));
+            double newLimit = limit * gradient + Math.sqrt(limit);
+            newLimit = limit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+            limit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getInflight() {
+        lock.lock();
+        try {
+            return inflight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getRejected() {
+        lock.lock();
+        try {
+            return rejected;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static double average(double current, long sample, int window) {
+        return current == 0 ? sample : current + (sample - current) * 2 / (window + 1);
+    }
+}
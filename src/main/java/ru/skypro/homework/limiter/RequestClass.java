@@ -0,0 +1,59 @@
+package ru.skypro.homework.limiter;
+
+import org.springframework.http.HttpMethod;
+
+/**
+ * Классы запросов, для каждого из которых действует отдельный предел одновременно обрабатываемых запросов
+ */
+public enum RequestClass {
+    /**
+     * Загрузка и отдача изображений
+     */
+    IMAGE_IO("image-io"),
+    /**
+     * Вход, регистрация, обновление токенов и смена пароля (хеширование BCrypt)
+     */
+    AUTH("auth"),
+    /**
+     * Чтение объявлений, комментариев и данных пользователя
+     */
+    DB_READ("db-read"),
+    /**
+     * Изменение объявлений, комментариев и данных пользователя
+     */
+    DB_WRITE("db-write");
+
+    private final String name;
+
+    RequestClass(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Имя класса в свойствах {@code bulkhead.<имя>.*} и в метках метрик
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Определение класса запроса по методу и пути без контекста приложения
+     *
+     * @param method HTTP-метод
+     * @param path   путь запроса
+     * @return класс запроса или {@code null}, если запрос не ограничивается (документация API, метрики)
+     */
+    public static RequestClass of(String method, String path) {
+        if (path.equals("/login") || path.equals("/register") || path.equals("/refresh")
+                || path.equals("/users/set_password")) {
+            return AUTH;
+        }
+        if (!path.startsWith("/ads") && !path.startsWith("/users")) {
+            return null;
+        }
+        if (path.contains("/image") || HttpMethod.POST.matches(method) && path.equals("/ads")) {
+            return IMAGE_IO;
+        }
+        return HttpMethod.GET.matches(method) ? DB_READ : DB_WRITE;
+    }
+}
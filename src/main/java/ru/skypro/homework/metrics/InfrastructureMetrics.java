@@ -0,0 +1,123 @@
+package ru.skypro.homework.metrics;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import ru.skypro.homework.config.CaffeineRegionFactory;
+import ru.skypro.homework.config.ReplicaRoutingDataSource;
+import ru.skypro.homework.security.AuthenticationCache;
+import ru.skypro.homework.service.impl.AdDocumentCache;
+import ru.skypro.homework.service.impl.ImageCache;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Регистрация метрик пулов соединений Hikari, маршрутизации между основной БД и репликами, пулов потоков,
+ * кэшей Caffeine и регионов кэша второго уровня Hibernate
+ */
+@Component
+public class InfrastructureMetrics {
+    private static final String[] ENTITY_REGIONS = {"ads", "users"};
+
+    public InfrastructureMetrics(MetricsRegistry metricsRegistry,
+                                 DataSource dataSource,
+                                 ImageCache imageCache,
+                                 AuthenticationCache authenticationCache,
+                                 AdDocumentCache adDocumentCache,
+                                 EntityManagerFactory entityManagerFactory,
+                                 @Qualifier("imageExecutor") ThreadPoolTaskExecutor imageExecutor,
+                                 @Qualifier("passwordExecutor") ThreadPoolTaskExecutor passwordExecutor)
+            throws SQLException {
+        if (dataSource.isWrapperFor(ReplicaRoutingDataSource.class)) {
+            bindRouting(metricsRegistry, dataSource.unwrap(ReplicaRoutingDataSource.class));
+        } else if (dataSource.isWrapperFor(HikariDataSource.class)) {
+            bindPool(metricsRegistry, dataSource.unwrap(HikariDataSource.class));
+        }
+        bindExecutor(metricsRegistry, "image", imageExecutor);
+        bindExecutor(metricsRegistry, "password", passwordExecutor);
+        bindCache(metricsRegistry, "images", imageCache.getNativeCache());
+        bindCache(metricsRegistry, "authentication", authenticationCache.getNativeCache());
+        bindCache(metricsRegistry, "ad-documents", adDocumentCache.getNativeCache());
+        RegionFactory regionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getCache().getRegionFactory();
+        if (regionFactory instanceof CaffeineRegionFactory) {
+            for (String region : ENTITY_REGIONS) {
+                Cache<?, ?> cache = ((CaffeineRegionFactory) regionFactory).getNativeCache(region);
+                if (cache != null) {
+                    bindCache(metricsRegistry, "hibernate." + region, cache);
+                }
+            }
+        }
+    }
+
+    private static void bindRouting(MetricsRegistry metricsRegistry, ReplicaRoutingDataSource routingDataSource)
+            throws SQLException {
+        for (Map.Entry<String, DataSource> pool : routingDataSource.getPools().entrySet()) {
+            if (pool.getValue().isWrapperFor(HikariDataSource.class)) {
+                bindPool(metricsRegistry, pool.getValue().unwrap(HikariDataSource.class));
+            }
+            metricsRegistry.functionCounter("datasource_connections_routed_total",
+                    () -> routingDataSource.getRoutedConnections(pool.getKey()), "pool", pool.getKey());
+        }
+        for (String replica : routingDataSource.getReplicaNames()) {
+            metricsRegistry.gauge("datasource_replica_lag_seconds",
+                    () -> routingDataSource.getReplicaLag(replica), "pool", replica);
+            metricsRegistry.gauge("datasource_replica_available",
+                    () -> routingDataSource.isReplicaAvailable(replica) ? 1 : 0, "pool", replica);
+        }
+    }
+
+    private static void bindPool(MetricsRegistry metricsRegistry, HikariDataSource dataSource) {
+        String pool = String.valueOf(dataSource.getPoolName());
+        poolGauge(metricsRegistry, "hikaricp_connections_active", pool, dataSource, HikariPoolMXBean::getActiveConnections);
+        poolGauge(metricsRegistry, "hikaricp_connections_idle", pool, dataSource, HikariPoolMXBean::getIdleConnections);
+        poolGauge(metricsRegistry, "hikaricp_connections", pool, dataSource, HikariPoolMXBean::getTotalConnections);
+        poolGauge(metricsRegistry, "hikaricp_connections_pending", pool, dataSource,
+                HikariPoolMXBean::getThreadsAwaitingConnection);
+        metricsRegistry.gauge("hikaricp_connections_max", dataSource::getMaximumPoolSize, "pool", pool);
+    }
+
+    /**
+     * Пул создаётся при первом получении соединения, до этого значения не выгружаются
+     */
+    private static void poolGauge(MetricsRegistry metricsRegistry, String name, String pool,
+                                  HikariDataSource dataSource, Function<HikariPoolMXBean, Number> value) {
+        metricsRegistry.gauge(name, () -> {
+            HikariPoolMXBean poolMXBean = dataSource.getHikariPoolMXBean();
+            return poolMXBean == null ? null : value.apply(poolMXBean);
+        }, "pool", pool);
+    }
+
+    private static void bindExecutor(MetricsRegistry metricsRegistry, String name, ThreadPoolTaskExecutor executor) {
+        metricsRegistry.gauge("executor_active_threads", executor::getActiveCount, "executor", name);
+        metricsRegistry.gauge("executor_queued_tasks",
+                () -> executor.getThreadPoolExecutor().getQueue().size(), "executor", name);
+        metricsRegistry.gauge("executor_queue_remaining_tasks",
+                () -> executor.getThreadPoolExecutor().getQueue().remainingCapacity(), "executor", name);
+        metricsRegistry.functionCounter("executor_completed_tasks_total",
+                () -> executor.getThreadPoolExecutor().getCompletedTaskCount(), "executor", name);
+    }
+
+    private static void bindCache(MetricsRegistry metricsRegistry, String name, Cache<?, ?> cache) {
+        metricsRegistry.gauge("cache_size", cache::estimatedSize, "cache", name);
+        metricsRegistry.functionCounter("cache_gets_total", () -> cache.stats().hitCount(),
+                "cache", name, "result", "hit");
+        metricsRegistry.functionCounter("cache_gets_total", () -> cache.stats().missCount(),
+                "cache", name, "result", "miss");
+        metricsRegistry.functionCounter("cache_evictions_total", () -> cache.stats().evictionCount(),
+                "cache", name);
+        cache.policy().eviction()
+                .filter(eviction -> eviction.isWeighted())
+                .ifPresent(eviction -> metricsRegistry.gauge("cache_weight_bytes",
+                        () -> eviction.weightedSize().orElse(0), "cache", name));
+    }
+}
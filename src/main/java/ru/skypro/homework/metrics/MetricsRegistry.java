@@ -0,0 +1,254 @@
+package ru.skypro.homework.metrics;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Реестр метрик приложения: счётчики, гистограммы и вычисляемые значения.
+ * Метрики идентифицируются именем и набором тегов и выгружаются в текстовом формате Prometheus
+ * методом {@link #scrape()}
+ */
+@Component
+public class MetricsRegistry {
+    /**
+     * Границы интервалов гистограмм времени выполнения, в наносекундах
+     */
+    private static final long[] DURATION_BOUNDS = {
+            TimeUnit.MILLISECONDS.toNanos(1), TimeUnit.MILLISECONDS.toNanos(5), TimeUnit.MILLISECONDS.toNanos(10),
+            TimeUnit.MILLISECONDS.toNanos(25), TimeUnit.MILLISECONDS.toNanos(50), TimeUnit.MILLISECONDS.toNanos(100),
+            TimeUnit.MILLISECONDS.toNanos(250), TimeUnit.MILLISECONDS.toNanos(500), TimeUnit.SECONDS.toNanos(1),
+            TimeUnit.MILLISECONDS.toNanos(2500), TimeUnit.SECONDS.toNanos(5), TimeUnit.SECONDS.toNanos(10)};
+    private static final double NANOS_IN_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final ConcurrentMap<String, Meter> meters = new ConcurrentHashMap<>();
+
+    /**
+     * Гистограмма времени выполнения. Значения записываются в наносекундах, выгружаются в секундах
+     * @param name имя метрики
+     * @param tags пары имя-значение тегов
+     * @return гистограмма
+     */
+    public Histogram timer(String name, String... tags) {
+        return (Histogram) meters.computeIfAbsent(key(name, tags),
+                key -> new Histogram(name, tags(tags), DURATION_BOUNDS, NANOS_IN_SECOND));
+    }
+
+    /**
+     * Гистограмма произвольных целых значений, например числа SQL-запросов
+     * @param name имя метрики
+     * @param bounds границы интервалов
+     * @param tags пары имя-значение тегов
+     * @return гистограмма
+     */
+    public Histogram histogram(String name, long[] bounds, String... tags) {
+        return (Histogram) meters.computeIfAbsent(key(name, tags),
+                key -> new Histogram(name, tags(tags), bounds, 1));
+    }
+
+    public Counter counter(String name, String... tags) {
+        return (Counter) meters.computeIfAbsent(key(name, tags), key -> new Counter(name, tags(tags)));
+    }
+
+    /**
+     * Регистрация значения, вычисляемого в момент выгрузки метрик
+     * @param name имя метрики
+     * @param value источник значения, {@code null} означает отсутствие значения
+     * @param tags пары имя-значение тегов
+     */
+    public void gauge(String name, Supplier<Number> value, String... tags) {
+        meters.putIfAbsent(key(name, tags), new FunctionMeter(name, tags(tags), "gauge", value));
+    }
+
+    /**
+     * Регистрация монотонно возрастающего значения, которое ведётся вне реестра (например, статистика кэша)
+     * @param name имя метрики
+     * @param value источник значения
+     * @param tags пары имя-значение тегов
+     */
+    public void functionCounter(String name, Supplier<Number> value, String... tags) {
+        meters.putIfAbsent(key(name, tags), new FunctionMeter(name, tags(tags), "counter", value));
+    }
+
+    /**
+     * Выгрузка всех метрик в текстовом формате Prometheus
+     * @return текст метрик
+     */
+    public String scrape() {
+        StringBuilder out = new StringBuilder();
+        String previousName = null;
+        List<Meter> sorted = new ArrayList<>(meters.values());
+        sorted.sort(Comparator.comparing((Meter meter) -> meter.name).thenComparing(meter -> meter.labels));
+        for (Meter meter : sorted) {
+            if (!meter.name.equals(previousName)) {
+                out.append("# TYPE ").append(meter.name).append(' ').append(meter.type()).append('\n');
+                previousName = meter.name;
+            }
+            meter.write(out);
+        }
+        return out.toString();
+    }
+
+    private static String key(String name, String... tags) {
+        return name + tags(tags);
+    }
+
+    private static String tags(String... tags) {
+        if (tags.length % 2 != 0) {
+            throw new IllegalArgumentException("Tags must be name-value pairs");
+        }
+        Map<String, String> sorted = new TreeMap<>();
+        for (int i = 0; i < tags.length; i += 2) {
+            sorted.put(tags[i], tags[i + 1]);
+        }
+        StringBuilder labels = new StringBuilder();
+        sorted.forEach((name, value) -> {
+            labels.append(labels.length() == 0 ? "" : ",").append(name).append("=\"");
+            for (char c : String.valueOf(value).toCharArray()) {
+                if (c == '\\' || c == '"') {
+                    labels.append('\\').append(c);
+                } else if (c == '\n') {
+                    labels.append("\\n");
+                } else {
+                    labels.append(c);
+                }
+            }
+            labels.append('"');
+        });
+        return labels.toString();
+    }
+
+    private static String format(double value) {
+        return value == Math.rint(value) && !Double.isInfinite(value)
+                ? Long.toString((long) value)
+                : Double.toString(value);
+    }
+
+    private abstract static class Meter {
+        final String name;
+        final String labels;
+
+        Meter(String name, String labels) {
+            this.name = name;
+            this.labels = labels;
+        }
+
+        abstract String type();
+
+        abstract void write(StringBuilder out);
+
+        void sample(StringBuilder out, String suffix, String extraLabel, String value) {
+            out.append(name).append(suffix);
+            if (!labels.isEmpty() || extraLabel != null) {
+                out.append('{').append(labels);
+                if (extraLabel != null) {
+                    out.append(labels.isEmpty() ? "" : ",").append(extraLabel);
+                }
+                out.append('}');
+            }
+            out.append(' ').append(value).append('\n');
+        }
+    }
+
+    public static final class Histogram extends Meter {
+        private final long[] bounds;
+        private final double scale;
+        private final LongAdder[] buckets;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+
+        private Histogram(String name, String labels, long[] bounds, double scale) {
+            super(name, labels);
+            this.bounds = bounds;
+            this.scale = scale;
+            this.buckets = new LongAdder[bounds.length];
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        public void record(long value) {
+            count.increment();
+            sum.add(value);
+            for (int i = 0; i < bounds.length; i++) {
+                if (value <= bounds[i]) {
+                    buckets[i].increment();
+                    return;
+                }
+            }
+        }
+
+        @Override
+        String type() {
+            return "histogram";
+        }
+
+        @Override
+        void write(StringBuilder out) {
+            long cumulative = 0;
+            for (int i = 0; i < bounds.length; i++) {
+                cumulative += buckets[i].sum();
+                sample(out, "_bucket", "le=\"" + format(bounds[i] / scale) + "\"", Long.toString(cumulative));
+            }
+            long total = count.sum();
+            sample(out, "_bucket", "le=\"+Inf\"", Long.toString(total));
+            sample(out, "_sum", null, format(sum.sum() / scale));
+            sample(out, "_count", null, Long.toString(total));
+        }
+    }
+
+    public static final class Counter extends Meter {
+        private final LongAdder value = new LongAdder();
+
+        private Counter(String name, String labels) {
+            super(name, labels);
+        }
+
+        public void increment(long amount) {
+            value.add(amount);
+        }
+
+        @Override
+        String type() {
+            return "counter";
+        }
+
+        @Override
+        void write(StringBuilder out) {
+            sample(out, "", null, Long.toString(value.sum()));
+        }
+    }
+
+    private static final class FunctionMeter extends Meter {
+        private final String type;
+        private final Supplier<Number> value;
+
+        private FunctionMeter(String name, String labels, String type, Supplier<Number> value) {
+            super(name, labels);
+            this.type = type;
+            this.value = value;
+        }
+
+        @Override
+        String type() {
+            return type;
+        }
+
+        @Override
+        void write(StringBuilder out) {
+            Number number = value.get();
+            if (number != null) {
+                sample(out, "", null, format(number.doubleValue()));
+            }
+        }
+    }
+}
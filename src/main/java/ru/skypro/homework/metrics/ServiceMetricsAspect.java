@@ -0,0 +1,55 @@
+package ru.skypro.homework.metrics;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Измерение времени выполнения методов сервисов и репозиториев.
+ * Метрики {@code service_method_seconds} и {@code repository_method_seconds}
+ * с тегами класса, метода и типа выброшенного исключения
+ */
+@Aspect
+@Component
+public class ServiceMetricsAspect {
+    private final MetricsRegistry metricsRegistry;
+    private final Map<Class<?>, String> repositoryNames = new ConcurrentHashMap<>();
+
+    public ServiceMetricsAspect(MetricsRegistry metricsRegistry) {
+        this.metricsRegistry = metricsRegistry;
+    }
+
+    @Around("execution(public * ru.skypro.homework.service.AdService.*(..))"
+            + " || execution(public * ru.skypro.homework.service.CommentService.*(..))"
+            + " || execution(public * ru.skypro.homework.service.AccountService.*(..))"
+            + " || execution(public * ru.skypro.homework.service.AuthService.*(..))")
+    public Object timeService(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time("service_method_seconds", joinPoint.getTarget().getClass().getSimpleName(), joinPoint);
+    }
+
+    @Around("execution(public * org.springframework.data.repository.Repository+.*(..))")
+    public Object timeRepository(ProceedingJoinPoint joinPoint) throws Throwable {
+        String repository = repositoryNames.computeIfAbsent(joinPoint.getTarget().getClass(),
+                targetClass -> AopProxyUtils.proxiedUserInterfaces(joinPoint.getTarget())[0].getSimpleName());
+        return time("repository_method_seconds", repository, joinPoint);
+    }
+
+    private Object time(String name, String className, ProceedingJoinPoint joinPoint) throws Throwable {
+        long start = System.nanoTime();
+        String exception = "none";
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable e) {
+            exception = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            metricsRegistry.timer(name, "class", className, "method", joinPoint.getSignature().getName(),
+                    "exception", exception).record(System.nanoTime() - start);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package ru.skypro.homework.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.stereotype.Component;
+
+/**
+ * Подсчёт SQL-запросов, выполненных Hibernate в текущем потоке.
+ * Подсчёт ведётся только между вызовами {@link #start()} и {@link #stop()},
+ * запросы фоновых задач не учитываются
+ */
+@Component
+public class StatementCounter implements StatementInspector {
+    private final ThreadLocal<int[]> counter = new ThreadLocal<>();
+
+    @Override
+    public String inspect(String sql) {
+        int[] count = counter.get();
+        if (count != null) {
+            count[0]++;
+        }
+        return sql;
+    }
+
+    public void start() {
+        counter.set(new int[1]);
+    }
+
+    /**
+     * @return число запросов с момента вызова {@link #start()}
+     */
+    public int stop() {
+        int[] count = counter.get();
+        counter.remove();
+        return count == null ? 0 : count[0];
+    }
+}
@@ -13,10 +13,14 @@ import java.util.Objects;
 @ToString
 @NoArgsConstructor
 @Entity
-@Table(name = "comments")
+@Table(name = "comments", indexes = {
+        @Index(name = "comments_ad_id_created_at_idx", columnList = "ad_id, createdAt, id"),
+        @Index(name = "comments_user_id_idx", columnList = "user_id")
+})
 public class CommentEntity {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "comments_seq")
+    @SequenceGenerator(name = "comments_seq", sequenceName = "comments_seq", allocationSize = 50)
     private int id;
 
     @Column(nullable = false)
@@ -30,7 +34,7 @@ public class CommentEntity {
     @ToString.Exclude
     private UserEntity userEntity;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "ad_id", referencedColumnName = "id")
     @ToString.Exclude
     private AdEntity adEntity;
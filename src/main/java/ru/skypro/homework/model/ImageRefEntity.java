@@ -0,0 +1,45 @@
+package ru.skypro.homework.model;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+import javax.persistence.*;
+import java.util.Objects;
+
+/**
+ * Счётчик ссылок на файл изображения в контентно-адресуемом хранилище.
+ * Имя файла - SHA-256 содержимого и расширение
+ */
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+@Entity
+@Table(name = "image_refs")
+public class ImageRefEntity {
+    @Id
+    private String name;
+
+    @Column(name = "ref_count", nullable = false)
+    private int refCount;
+
+    public ImageRefEntity(String name, int refCount) {
+        this.name = name;
+        this.refCount = refCount;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ImageRefEntity that = (ImageRefEntity) o;
+        return Objects.equals(name, that.name);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name);
+    }
+}
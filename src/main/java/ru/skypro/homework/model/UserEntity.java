@@ -4,7 +4,11 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.ToString;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
 import ru.skypro.homework.dto.account.Role;
+import ru.skypro.homework.security.AuthenticationCacheListener;
 
 import javax.persistence.*;
 import java.util.Objects;
@@ -14,13 +18,17 @@ import java.util.Objects;
 @Getter
 @Setter
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "users")
+@EntityListeners(AuthenticationCacheListener.class)
 @Table(name = "users")
 public class UserEntity {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+    @SequenceGenerator(name = "users_seq", sequenceName = "users_seq", allocationSize = 50)
     private int id;
 
-    @Column(name = "email_user",nullable = false)
+    @Column(name = "email_user", nullable = false, unique = true)
     private String email;
 
     @Column(name="password_user",nullable = false)
@@ -42,6 +50,10 @@ public class UserEntity {
     @Enumerated(EnumType.STRING)
     private Role role;
 
+    @Column(name = "ad_count", nullable = false, insertable = false, updatable = false)
+    @ColumnDefault("0")
+    private int adCount;
+
     @Override
     public boolean equals(Object o) {
 
@@ -1,11 +1,63 @@
 package ru.skypro.homework.repository;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import ru.skypro.homework.model.AdEntity;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
 
+import static org.hibernate.annotations.QueryHints.NATIVE_SPACES;
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_CACHE_REGION;
+
 public interface AdRepository extends JpaRepository<AdEntity, Integer> {
+    /**
+     * Пространство запросов для обновления счётчиков. Не совпадает ни с одной таблицей сущностей,
+     * поэтому Hibernate не очищает весь регион кэша второго уровня после каждого обновления счётчика.
+     * Изменённые записи удаляются из кэша вызывающим кодом
+     */
+    String COUNTERS_SPACE = "counters";
+
+    @EntityGraph(attributePaths = "userEntity")
+    List<AdEntity> findAllByIdGreaterThanOrderByIdAsc(int id, Pageable pageable);
+    @EntityGraph(attributePaths = "userEntity")
+    @QueryHints({
+            @QueryHint(name = HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HINT_CACHE_REGION, value = "user-ads")
+    })
     List<AdEntity> findAllByUserEntityEmail(String userName);
-    List<AdEntity> findAllByTitleLike(String title);
+    @EntityGraph(attributePaths = "userEntity")
+    List<AdEntity> findAllByIdIn(Collection<Integer> ids);
+    @Query(value = "SELECT a.id FROM ads a, plainto_tsquery('russian', :query) q " +
+            "WHERE a.search_vector @@ q AND a.price BETWEEN :minPrice AND :maxPrice " +
+            "ORDER BY ts_rank(a.search_vector, q) DESC, a.id " +
+            "LIMIT :limit OFFSET :offset", nativeQuery = true)
+    List<Integer> searchIds(@Param("query") String query,
+                            @Param("minPrice") int minPrice,
+                            @Param("maxPrice") int maxPrice,
+                            @Param("limit") int limit,
+                            @Param("offset") int offset);
+    @Modifying
+    @Query(value = "UPDATE ads SET comment_count = comment_count + :delta WHERE id = :adId", nativeQuery = true)
+    @QueryHints(@QueryHint(name = NATIVE_SPACES, value = COUNTERS_SPACE))
+    int changeCommentCount(@Param("adId") int adId, @Param("delta") int delta);
+    @Query(value = "SELECT a.id FROM ads a " +
+            "WHERE a.comment_count <> (SELECT COUNT(*) FROM comments c WHERE c.ad_id = a.id)", nativeQuery = true)
+    List<Integer> findCommentCountDrift();
+    @Query(value = "SELECT id FROM ads WHERE id IN (:adIds) ORDER BY id FOR UPDATE", nativeQuery = true)
+    @QueryHints(@QueryHint(name = NATIVE_SPACES, value = COUNTERS_SPACE))
+    List<Integer> lockCounters(@Param("adIds") Collection<Integer> adIds);
+    @Modifying
+    @Query(value = "UPDATE ads SET comment_count = (SELECT COUNT(*) FROM comments c WHERE c.ad_id = ads.id) " +
+            "WHERE id IN (:adIds) " +
+            "AND comment_count <> (SELECT COUNT(*) FROM comments c WHERE c.ad_id = ads.id)", nativeQuery = true)
+    @QueryHints(@QueryHint(name = NATIVE_SPACES, value = COUNTERS_SPACE))
+    int reconcileCommentCounts(@Param("adIds") Collection<Integer> adIds);
 }
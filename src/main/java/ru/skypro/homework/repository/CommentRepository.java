@@ -1,6 +1,11 @@
 package ru.skypro.homework.repository;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import ru.skypro.homework.model.CommentEntity;
 
 import java.util.List;
@@ -8,6 +13,14 @@ import java.util.Optional;
 
 public interface CommentRepository extends JpaRepository<CommentEntity, Integer> {
     List<CommentEntity> findCommentEntitiesByAdEntity_Id(Integer id);
+    @Query("select c.id as id, c.text as text, c.createdAt as createdAt, " +
+            "u.id as authorId, u.firstName as authorFirstName " +
+            "from CommentEntity c join c.userEntity u " +
+            "where c.adEntity.id = :adId " +
+            "order by c.createdAt, c.id")
+    Slice<CommentView> findCommentViewsByAdId(@Param("adId") int adId, Pageable pageable);
     Optional<CommentEntity> findByIdAndAdEntity_Id(int commentId, int adId);
-    void deleteAllByAdEntity_Id(int adId);
+    @Modifying
+    @Query("delete from CommentEntity c where c.adEntity.id = :adId")
+    int deleteAllByAdId(@Param("adId") int adId);
 }
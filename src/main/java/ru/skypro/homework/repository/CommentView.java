@@ -0,0 +1,12 @@
+package ru.skypro.homework.repository;
+
+/**
+ * Проекция комментария, содержащая только поля, необходимые для ответа клиенту
+ */
+public interface CommentView {
+    int getId();
+    String getText();
+    Long getCreatedAt();
+    int getAuthorId();
+    String getAuthorFirstName();
+}
@@ -0,0 +1,40 @@
+package ru.skypro.homework.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import ru.skypro.homework.model.ImageRefEntity;
+
+import javax.persistence.QueryHint;
+
+import static org.hibernate.annotations.QueryHints.NATIVE_SPACES;
+
+public interface ImageRefRepository extends JpaRepository<ImageRefEntity, String> {
+    String IMAGE_REFS_SPACE = "image_refs";
+
+    @Modifying
+    @Query(value = "INSERT INTO image_refs (name, ref_count) VALUES (:name, :delta) " +
+            "ON CONFLICT (name) DO UPDATE SET ref_count = image_refs.ref_count + :delta", nativeQuery = true)
+    @QueryHints(@QueryHint(name = NATIVE_SPACES, value = IMAGE_REFS_SPACE))
+    int upsertRefCount(@Param("name") String name, @Param("delta") int delta);
+
+    @Modifying
+    @Query(value = "MERGE INTO image_refs r USING (SELECT CAST(:name AS VARCHAR(255)) AS name) s ON r.name = s.name " +
+            "WHEN MATCHED THEN UPDATE SET ref_count = r.ref_count + :delta " +
+            "WHEN NOT MATCHED THEN INSERT (name, ref_count) VALUES (s.name, :delta)", nativeQuery = true)
+    @QueryHints(@QueryHint(name = NATIVE_SPACES, value = IMAGE_REFS_SPACE))
+    int mergeRefCount(@Param("name") String name, @Param("delta") int delta);
+
+    @Query("select r.refCount from ImageRefEntity r where r.name = :name")
+    int findRefCount(@Param("name") String name);
+
+    @Modifying
+    @Query("update ImageRefEntity r set r.refCount = r.refCount - 1 where r.name = :name and r.refCount > 0")
+    int decrementRefCount(@Param("name") String name);
+
+    @Modifying
+    @Query("delete from ImageRefEntity r where r.name = :name and r.refCount <= 0")
+    int deleteUnreferenced(@Param("name") String name);
+}
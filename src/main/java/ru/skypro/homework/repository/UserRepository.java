@@ -1,11 +1,47 @@
 package ru.skypro.homework.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import ru.skypro.homework.model.UserEntity;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
+import static org.hibernate.annotations.QueryHints.NATIVE_SPACES;
+import static ru.skypro.homework.repository.AdRepository.COUNTERS_SPACE;
+
 public interface UserRepository extends JpaRepository<UserEntity, Integer> {
+    /**
+     * Пространство запросов для смены пароля. Не совпадает ни с одной таблицей сущностей,
+     * поэтому Hibernate не очищает весь регион кэша пользователей. Пользователь удаляется из кэша вызывающим кодом
+     */
+    String PASSWORD_SPACE = "passwords";
+
     Optional<UserEntity> findByEmail(String email);
     boolean existsByEmail(String userName);
+    @Modifying
+    @Query(value = "UPDATE users SET ad_count = ad_count + :delta WHERE id = :userId", nativeQuery = true)
+    @QueryHints(@QueryHint(name = NATIVE_SPACES, value = COUNTERS_SPACE))
+    int changeAdCount(@Param("userId") int userId, @Param("delta") int delta);
+    @Query(value = "SELECT u.id FROM users u " +
+            "WHERE u.ad_count <> (SELECT COUNT(*) FROM ads a WHERE a.user_id = u.id)", nativeQuery = true)
+    List<Integer> findAdCountDrift();
+    @Query(value = "SELECT id FROM users WHERE id IN (:userIds) ORDER BY id FOR UPDATE", nativeQuery = true)
+    @QueryHints(@QueryHint(name = NATIVE_SPACES, value = COUNTERS_SPACE))
+    List<Integer> lockCounters(@Param("userIds") Collection<Integer> userIds);
+    @Modifying
+    @Query(value = "UPDATE users SET ad_count = (SELECT COUNT(*) FROM ads a WHERE a.user_id = users.id) " +
+            "WHERE id IN (:userIds) " +
+            "AND ad_count <> (SELECT COUNT(*) FROM ads a WHERE a.user_id = users.id)", nativeQuery = true)
+    @QueryHints(@QueryHint(name = NATIVE_SPACES, value = COUNTERS_SPACE))
+    int reconcileAdCounts(@Param("userIds") Collection<Integer> userIds);
+    @Modifying
+    @Query(value = "UPDATE users SET password_user = :password WHERE id = :userId", nativeQuery = true)
+    @QueryHints(@QueryHint(name = NATIVE_SPACES, value = PASSWORD_SPACE))
+    int updatePassword(@Param("userId") int userId, @Param("password") String password);
 }
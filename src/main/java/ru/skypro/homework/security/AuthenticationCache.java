@@ -0,0 +1,119 @@
+package ru.skypro.homework.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.KeyGenerator;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Кэш успешных аутентификаций. Хранит данные пользователя вместе с HMAC-хэшем
+ * предъявленного пароля, чтобы повторные запросы с теми же учётными данными
+ * не обращались к БД и не выполняли дорогую проверку BCrypt.
+ * Ключ HMAC генерируется при старте приложения и нигде не сохраняется.<br>
+ * - Данные пользователя хранятся без хэша BCrypt: совпадение HMAC уже подтверждает пароль.<br>
+ * - Каждое удаление записи увеличивает поколение логина {@link #generation(String)}. Запись, загруженная
+ * до удаления (например, вход, начатый до смены пароля), в кэш не попадает.
+ */
+@Component
+public class AuthenticationCache {
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final int GENERATION_STRIPES = 256;
+
+    private final Cache<String, Entry> cache;
+    private final SecretKey key;
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    public AuthenticationCache(@Value("${security.auth-cache.ttl}") Duration ttl,
+                               @Value("${security.auth-cache.max-size}") long maxSize) throws GeneralSecurityException {
+        this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+        this.key = KeyGenerator.getInstance(HMAC_ALGORITHM).generateKey();
+    }
+
+    /**
+     * Получение данных пользователя, если для этих логина и пароля есть неистёкшая запись
+     * @param username логин пользователя
+     * @param password предъявленный пароль
+     * @return принципал пользователя или {@code null}, если записи нет или пароль не совпадает
+     */
+    public SecurityUser get(String username, String password) {
+        Entry entry = cache.getIfPresent(username);
+        if (entry == null || !MessageDigest.isEqual(entry.credentialHash, hash(password))) {
+            return null;
+        }
+        return entry.user;
+    }
+
+    /**
+     * Поколение записей логина. Запоминается до загрузки пользователя и передаётся в
+     * {@link #put(String, String, SecurityUser, long)}. Логины распределены по фиксированному числу полос,
+     * поэтому удаление записи одного пользователя может изредка отменить сохранение записи другого
+     * @param username логин пользователя
+     * @return текущее поколение
+     */
+    public long generation(String username) {
+        return generations.get(stripe(username));
+    }
+
+    /**
+     * Сохранение успешной аутентификации, если с момента {@link #generation(String)} запись логина не удалялась.
+     * Проверка поколения и вставка выполняются атомарно для ключа
+     * @param username логин пользователя
+     * @param password предъявленный пароль
+     * @param user принципал пользователя, хэш пароля в кэш не сохраняется
+     * @param generation поколение, полученное до загрузки пользователя
+     */
+    public void put(String username, String password, SecurityUser user, long generation) {
+        Entry entry = new Entry(hash(password), user.withoutPassword());
+        cache.asMap().compute(username, (key, current) -> generation(key) == generation ? entry : current);
+    }
+
+    /**
+     * Удаление записи пользователя. Вызывается при смене пароля и данных профиля и при удалении пользователя.
+     * @param username логин пользователя
+     */
+    public void evict(String username) {
+        generations.incrementAndGet(stripe(username));
+        cache.invalidate(username);
+    }
+
+    public Cache<String, ?> getNativeCache() {
+        return cache;
+    }
+
+    private static int stripe(String username) {
+        return Math.floorMod(username.hashCode(), GENERATION_STRIPES);
+    }
+
+    private byte[] hash(String password) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(key);
+            return mac.doFinal(password.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class Entry {
+        private final byte[] credentialHash;
+        private final SecurityUser user;
+
+        private Entry(byte[] credentialHash, SecurityUser user) {
+            this.credentialHash = credentialHash;
+            this.user = user;
+        }
+    }
+}
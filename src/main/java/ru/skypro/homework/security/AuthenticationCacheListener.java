@@ -0,0 +1,25 @@
+package ru.skypro.homework.security;
+
+import org.springframework.stereotype.Component;
+import ru.skypro.homework.model.UserEntity;
+
+import javax.persistence.PostRemove;
+
+/**
+ * Удаление записи пользователя из {@link AuthenticationCache} при удалении пользователя из БД.
+ * Кэш хранит идентификатор пользователя, поэтому без сброса пользователь, созданный заново
+ * с тем же логином и паролем, получил бы принципал с идентификатором удалённого пользователя.
+ */
+@Component
+public class AuthenticationCacheListener {
+    private final AuthenticationCache authenticationCache;
+
+    public AuthenticationCacheListener(AuthenticationCache authenticationCache) {
+        this.authenticationCache = authenticationCache;
+    }
+
+    @PostRemove
+    public void evict(UserEntity userEntity) {
+        authenticationCache.evict(userEntity.getEmail());
+    }
+}
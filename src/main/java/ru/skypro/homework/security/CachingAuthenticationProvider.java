@@ -0,0 +1,55 @@
+package ru.skypro.homework.security;
+
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+/**
+ * Провайдер аутентификации по логину и паролю, который сначала проверяет
+ * {@link AuthenticationCache} и только при промахе делегирует проверку
+ * {@link DaoAuthenticationProvider} (загрузка пользователя из БД и проверка BCrypt).
+ * Поколение записи запоминается до загрузки пользователя, поэтому вход, завершившийся после смены пароля,
+ * не возвращает в кэш прежние учётные данные.
+ */
+@Component
+public class CachingAuthenticationProvider implements AuthenticationProvider {
+    private final DaoAuthenticationProvider delegate;
+    private final AuthenticationCache authenticationCache;
+
+    public CachingAuthenticationProvider(SecurityUserManager securityUserManager,
+                                         PasswordEncoder passwordEncoder,
+                                         AuthenticationCache authenticationCache) {
+        this.delegate = new DaoAuthenticationProvider();
+        this.delegate.setUserDetailsService(securityUserManager);
+        this.delegate.setPasswordEncoder(passwordEncoder);
+        this.authenticationCache = authenticationCache;
+    }
+
+    @Override
+    public Authentication authenticate(Authentication authentication) throws AuthenticationException {
+        String username = authentication.getName();
+        Object credentials = authentication.getCredentials();
+        if (credentials == null) {
+            return delegate.authenticate(authentication);
+        }
+        String password = credentials.toString();
+        SecurityUser cachedUser = authenticationCache.get(username, password);
+        if (cachedUser != null) {
+            return new UsernamePasswordAuthenticationToken(cachedUser, null, cachedUser.getAuthorities());
+        }
+        long generation = authenticationCache.generation(username);
+        Authentication result = delegate.authenticate(authentication);
+        SecurityUser user = ((SecurityUser) result.getPrincipal()).withoutPassword();
+        authenticationCache.put(username, password, user, generation);
+        return new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities());
+    }
+
+    @Override
+    public boolean supports(Class<?> authentication) {
+        return delegate.supports(authentication);
+    }
+}
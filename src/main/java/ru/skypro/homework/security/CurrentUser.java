@@ -0,0 +1,27 @@
+package ru.skypro.homework.security;
+
+import org.springframework.security.authentication.AuthenticationCredentialsNotFoundException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+/**
+ * Получение принципала текущего запроса {@link SecurityUser} из {@code SecurityContext}.
+ * Идентификатор, логин и роль пользователя определяются при аутентификации,
+ * поэтому сервисам не нужно искать текущего пользователя в БД по логину.
+ */
+@Component
+public class CurrentUser {
+
+    /**
+     * @return принципал аутентифицированного пользователя
+     * @throws AuthenticationCredentialsNotFoundException если текущий запрос не аутентифицирован
+     */
+    public SecurityUser get() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !(authentication.getPrincipal() instanceof SecurityUser)) {
+            throw new AuthenticationCredentialsNotFoundException("User is not authenticated");
+        }
+        return (SecurityUser) authentication.getPrincipal();
+    }
+}
@@ -0,0 +1,77 @@
+package ru.skypro.homework.security;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+import ru.skypro.homework.metrics.MetricsRegistry;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Хеширование и проверка паролей в отдельном пуле потоков {@code passwordExecutor}.<br>
+ * BCrypt занимает сотни миллисекунд процессорного времени, поэтому число одновременно хешируемых паролей
+ * ограничено размером пула, а не числом потоков обработки запросов.<br>
+ * При переполнении очереди пула задача отклоняется с {@link TaskRejectedException}, и запрос получает ответ 503.<br>
+ * Метрики: время ожидания в очереди {@code password_hashing_wait_seconds} и время хеширования
+ * {@code password_hashing_seconds}, число отклонённых задач {@code password_hashing_rejected_total}
+ */
+@Component
+public class PasswordHasher {
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolTaskExecutor passwordExecutor;
+    private final MetricsRegistry metricsRegistry;
+
+    public PasswordHasher(PasswordEncoder passwordEncoder,
+                          @Qualifier("passwordExecutor") ThreadPoolTaskExecutor passwordExecutor,
+                          MetricsRegistry metricsRegistry) {
+        this.passwordEncoder = passwordEncoder;
+        this.passwordExecutor = passwordExecutor;
+        this.metricsRegistry = metricsRegistry;
+    }
+
+    /**
+     * Хеширование пароля
+     *
+     * @param rawPassword пароль
+     * @return хеш пароля
+     * @see PasswordEncoder#encode(CharSequence)
+     */
+    public CompletableFuture<String> encode(CharSequence rawPassword) {
+        return submit("encode", () -> passwordEncoder.encode(rawPassword));
+    }
+
+    /**
+     * Проверка пароля
+     *
+     * @param rawPassword     пароль
+     * @param encodedPassword хеш пароля из БД
+     * @return {@code true}, если пароль совпадает с хешем
+     * @see PasswordEncoder#matches(CharSequence, String)
+     */
+    public CompletableFuture<Boolean> matches(CharSequence rawPassword, String encodedPassword) {
+        return submit("matches", () -> passwordEncoder.matches(rawPassword, encodedPassword));
+    }
+
+    private <T> CompletableFuture<T> submit(String operation, Supplier<T> task) {
+        long submitted = System.nanoTime();
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                long start = System.nanoTime();
+                metricsRegistry.timer("password_hashing_wait_seconds", "operation", operation)
+                        .record(start - submitted);
+                try {
+                    return task.get();
+                } finally {
+                    metricsRegistry.timer("password_hashing_seconds", "operation", operation)
+                            .record(System.nanoTime() - start);
+                }
+            }, passwordExecutor);
+        } catch (TaskRejectedException e) {
+            metricsRegistry.counter("password_hashing_rejected_total", "operation", operation).increment(1);
+            throw e;
+        }
+    }
+}
@@ -1,45 +1,70 @@
 package ru.skypro.homework.security;
 
-import org.springframework.context.annotation.ScopedProxyMode;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.stereotype.Component;
-import org.springframework.web.context.annotation.RequestScope;
+import ru.skypro.homework.dto.account.Role;
 
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Optional;
 
-@Component
-@RequestScope(proxyMode = ScopedProxyMode.TARGET_CLASS)
+/**
+ * Принципал аутентифицированного пользователя. Создаётся один раз при аутентификации
+ * (из БД, из {@link AuthenticationCache} или из токена доступа) и хранится в {@code SecurityContext}.
+ * Неизменяем, поэтому один экземпляр может использоваться кэшем аутентификаций в разных запросах.
+ */
 public class SecurityUser implements UserDetails {
+    private final int id;
+    private final String username;
+    private final String password;
+    private final Role role;
+    private final Collection<? extends GrantedAuthority> authorities;
 
-    private SecurityUserDto securityUserDto;
+    public SecurityUser(SecurityUserDto securityUserDto) {
+        this.id = securityUserDto.getId();
+        this.username = securityUserDto.getUserName();
+        this.password = securityUserDto.getPassword();
+        this.role = securityUserDto.getRole();
+        this.authorities = role == null ? Collections.emptySet()
+                : Collections.singleton(new SimpleGrantedAuthority("ROLE_" + role.name()));
+    }
+
+    private SecurityUser(SecurityUser user, String password) {
+        this.id = user.id;
+        this.username = user.username;
+        this.password = password;
+        this.role = user.role;
+        this.authorities = user.authorities;
+    }
+
+    /**
+     * @return копия принципала без хэша пароля, например для {@link AuthenticationCache} и {@code SecurityContext}
+     */
+    public SecurityUser withoutPassword() {
+        return password == null ? this : new SecurityUser(this, null);
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public Role getRole() {
+        return role;
+    }
 
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
-        return Optional.ofNullable(securityUserDto)
-                .map(SecurityUserDto::getRole)
-                .map(Enum::name)
-                .map(role -> "ROLE_" + role)
-                .map(SimpleGrantedAuthority::new)
-                .map(Collections::singleton)
-                .orElseGet(Collections::emptySet);
+        return authorities;
     }
 
     @Override
     public String getPassword() {
-        return Optional.ofNullable(securityUserDto)
-                .map(SecurityUserDto::getPassword)
-                .orElse(null);
+        return password;
     }
 
     @Override
     public String getUsername() {
-        return Optional.ofNullable(securityUserDto)
-                .map(SecurityUserDto::getUserName)
-                .orElse(null);
+        return username;
     }
 
     @Override
@@ -61,14 +86,4 @@ public class SecurityUser implements UserDetails {
     public boolean isEnabled() {
         return true;
     }
-
-    public SecurityUserDto getSecurityUserDto() {
-        return securityUserDto;
-    }
-
-    public void setSecurityUserDto(SecurityUserDto securityUserDto) {
-        this.securityUserDto = securityUserDto;
-    }
 }
-
-
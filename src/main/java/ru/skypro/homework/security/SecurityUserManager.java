@@ -2,29 +2,43 @@ package ru.skypro.homework.security;
 
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.provisioning.UserDetailsManager;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.skypro.homework.model.UserEntity;
 import ru.skypro.homework.repository.UserRepository;
 import ru.skypro.homework.service.SecurityUserMapper;
 
+import javax.persistence.Cache;
+import javax.persistence.EntityManagerFactory;
+import java.util.concurrent.CompletableFuture;
+
 @Service
 public class SecurityUserManager implements UserDetailsManager {
 
     private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHasher passwordHasher;
     private final SecurityUserMapper securityUserMapper;
-    private final SecurityUser securityUser;
+    private final CurrentUser currentUser;
+    private final AuthenticationCache authenticationCache;
+    private final TransactionTemplate transactionTemplate;
+    private final Cache secondLevelCache;
 
     public SecurityUserManager(UserRepository userRepository,
-                               PasswordEncoder passwordEncoder,
+                               PasswordHasher passwordHasher,
                                SecurityUserMapper securityUserMapper,
-                               SecurityUser securityUser) {
+                               CurrentUser currentUser,
+                               AuthenticationCache authenticationCache,
+                               PlatformTransactionManager transactionManager,
+                               EntityManagerFactory entityManagerFactory) {
         this.userRepository = userRepository;
-        this.passwordEncoder = passwordEncoder;
+        this.passwordHasher = passwordHasher;
         this.securityUserMapper = securityUserMapper;
-        this.securityUser = securityUser;
+        this.currentUser = currentUser;
+        this.authenticationCache = authenticationCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.secondLevelCache = entityManagerFactory.getCache();
     }
 
     @Override
@@ -44,12 +58,36 @@ public class SecurityUserManager implements UserDetailsManager {
 
     @Override
     public void changePassword(String oldPassword, String newPassword) {
-        if (passwordEncoder.matches(oldPassword, securityUser.getPassword())) {
-            UserEntity userEntity = userRepository.findByEmail(securityUser.getUsername())
-                    .orElseThrow(() -> new UsernameNotFoundException("User not found"));
-            userEntity.setPassword(passwordEncoder.encode(newPassword));
-            userRepository.save(userEntity);
-        }
+        changePasswordAsync(oldPassword, newPassword).join();
+    }
+
+    /**
+     * Смена пароля текущего пользователя с проверкой и хешированием в {@link PasswordHasher}.<br>
+     * - Пользователь определяется и загружается в потоке запроса.<br>
+     * - После хеширования в отдельной транзакции изменяется только пароль {@link UserRepository#updatePassword(int, String)},
+     * поэтому одновременные изменения других данных пользователя не перезаписываются.<br>
+     * - После фиксации транзакции пользователь удаляется из кэша второго уровня и кэша аутентификации
+     *
+     * @param oldPassword текущий пароль
+     * @param newPassword новый пароль
+     * @return {@code true}, если текущий пароль совпал и новый пароль сохранён
+     */
+    public CompletableFuture<Boolean> changePasswordAsync(String oldPassword, String newPassword) {
+        UserEntity userEntity = userRepository.findById(currentUser.get().getId())
+                .orElseThrow(() -> new UsernameNotFoundException("User not found"));
+        return passwordHasher.matches(oldPassword, userEntity.getPassword())
+                .thenCompose(matches -> {
+                    if (!matches) {
+                        return CompletableFuture.completedFuture(false);
+                    }
+                    return passwordHasher.encode(newPassword).thenApply(encodedPassword -> {
+                        transactionTemplate.executeWithoutResult(status ->
+                                userRepository.updatePassword(userEntity.getId(), encodedPassword));
+                        secondLevelCache.evict(UserEntity.class, userEntity.getId());
+                        authenticationCache.evict(userEntity.getEmail());
+                        return true;
+                    });
+                });
     }
 
     @Override
@@ -59,11 +97,10 @@ public class SecurityUserManager implements UserDetailsManager {
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        SecurityUserDto securityUserDto = userRepository.findByEmail(username)
+        return userRepository.findByEmail(username)
                 .map(securityUserMapper::toSecurityUserDto)
+                .map(SecurityUser::new)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found"));
-        securityUser.setSecurityUserDto(securityUserDto);
-        return securityUser;
     }
 }
 
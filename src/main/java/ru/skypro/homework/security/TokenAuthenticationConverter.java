@@ -0,0 +1,26 @@
+package ru.skypro.homework.security;
+
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.stereotype.Component;
+
+/**
+ * Преобразование проверенного токена доступа в аутентификацию с тем же принципалом
+ * {@link SecurityUser}, что и при аутентификации по логину и паролю, без обращения к БД
+ */
+@Component
+public class TokenAuthenticationConverter implements Converter<Jwt, AbstractAuthenticationToken> {
+    private final TokenService tokenService;
+
+    public TokenAuthenticationConverter(TokenService tokenService) {
+        this.tokenService = tokenService;
+    }
+
+    @Override
+    public AbstractAuthenticationToken convert(Jwt jwt) {
+        SecurityUser securityUser = new SecurityUser(tokenService.toSecurityUserDto(jwt));
+        return new UsernamePasswordAuthenticationToken(securityUser, jwt, securityUser.getAuthorities());
+    }
+}
@@ -0,0 +1,174 @@
+package ru.skypro.homework.security;
+
+import com.nimbusds.jose.jwk.source.ImmutableSecret;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.oauth2.core.DelegatingOAuth2TokenValidator;
+import org.springframework.security.oauth2.core.OAuth2Error;
+import org.springframework.security.oauth2.core.OAuth2TokenValidator;
+import org.springframework.security.oauth2.core.OAuth2TokenValidatorResult;
+import org.springframework.security.oauth2.jose.jws.MacAlgorithm;
+import org.springframework.security.oauth2.jwt.*;
+import org.springframework.stereotype.Service;
+import ru.skypro.homework.dto.account.AuthTokens;
+import ru.skypro.homework.dto.account.Role;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Выпуск и проверка подписанных HMAC-SHA256 токенов доступа и обновления.
+ * Токен доступа содержит идентификатор, логин и роль пользователя и проверяется
+ * без обращения к БД. Токен обновления дополнительно содержит отпечаток хэша пароля,
+ * поэтому после смены пароля выданные ранее токены обновления перестают приниматься.<br>
+ * Ключ подписи задаётся только через {@code security.token.secret} (переменная окружения {@code TOKEN_SECRET}):
+ * без ключа или с ключом короче 256 бит приложение не запускается.
+ */
+@Service
+public class TokenService {
+    public static final String TOKEN_TYPE_CLAIM = "token_type";
+    public static final String USER_ID_CLAIM = "uid";
+    public static final String ROLE_CLAIM = "role";
+    private static final String PASSWORD_FINGERPRINT_CLAIM = "pwd";
+    private static final String ACCESS = "access";
+    private static final String REFRESH = "refresh";
+    private static final String ISSUER = "ads";
+    private static final int MIN_SECRET_BYTES = 32;
+
+    private final JwtEncoder encoder;
+    private final JwtDecoder accessTokenDecoder;
+    private final JwtDecoder refreshTokenDecoder;
+    private final Duration accessTokenTtl;
+    private final Duration refreshTokenTtl;
+
+    public TokenService(@Value("${security.token.secret}") String secret,
+                        @Value("${security.token.access-ttl}") Duration accessTokenTtl,
+                        @Value("${security.token.refresh-ttl}") Duration refreshTokenTtl) {
+        SecretKey key = new SecretKeySpec(decodeSecret(secret), "HmacSHA256");
+        this.encoder = new NimbusJwtEncoder(new ImmutableSecret<>(key));
+        this.accessTokenDecoder = decoder(key, ACCESS);
+        this.refreshTokenDecoder = decoder(key, REFRESH);
+        this.accessTokenTtl = accessTokenTtl;
+        this.refreshTokenTtl = refreshTokenTtl;
+    }
+
+    /**
+     * Ключ подписи в Base64 длиной не менее 256 бит
+     * @throws IllegalStateException если ключ не задан, не в Base64 или слишком короткий
+     */
+    private static byte[] decodeSecret(String secret) {
+        if (secret == null || secret.isBlank()) {
+            throw new IllegalStateException("security.token.secret is not set, provide a Base64 key of at least "
+                    + MIN_SECRET_BYTES * 8 + " bits in TOKEN_SECRET");
+        }
+        byte[] key;
+        try {
+            key = Base64.getDecoder().decode(secret.trim());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("security.token.secret is not valid Base64", e);
+        }
+        if (key.length < MIN_SECRET_BYTES) {
+            throw new IllegalStateException("security.token.secret is " + key.length * 8
+                    + " bits long, at least " + MIN_SECRET_BYTES * 8 + " bits are required");
+        }
+        return key;
+    }
+
+    /**
+     * Выпуск пары токенов для пользователя
+     * @param user данные аутентифицированного пользователя
+     * @param passwordHash текущий хэш пароля пользователя из БД
+     */
+    public AuthTokens issue(SecurityUserDto user, String passwordHash) {
+        Instant now = Instant.now();
+        JwtClaimsSet accessClaims = claims(user, ACCESS, now, accessTokenTtl).build();
+        JwtClaimsSet refreshClaims = claims(user, REFRESH, now, refreshTokenTtl)
+                .id(UUID.randomUUID().toString())
+                .claim(PASSWORD_FINGERPRINT_CLAIM, fingerprint(passwordHash))
+                .build();
+        AuthTokens tokens = new AuthTokens();
+        tokens.setAccessToken(encode(accessClaims));
+        tokens.setRefreshToken(encode(refreshClaims));
+        tokens.setTokenType("Bearer");
+        tokens.setExpiresIn(accessTokenTtl.getSeconds());
+        return tokens;
+    }
+
+    /**
+     * Проверка подписи, срока действия и типа токена доступа
+     * @throws JwtException если токен недействителен
+     */
+    public Jwt decodeAccessToken(String token) {
+        return accessTokenDecoder.decode(token);
+    }
+
+    /**
+     * Проверка подписи, срока действия и типа токена обновления
+     * @throws JwtException если токен недействителен
+     */
+    public Jwt decodeRefreshToken(String token) {
+        return refreshTokenDecoder.decode(token);
+    }
+
+    /**
+     * Проверка, что токен обновления выпущен для текущего пароля пользователя
+     */
+    public boolean matchesPassword(Jwt refreshToken, String passwordHash) {
+        return fingerprint(passwordHash).equals(refreshToken.getClaimAsString(PASSWORD_FINGERPRINT_CLAIM));
+    }
+
+    /**
+     * Восстановление данных пользователя из утверждений токена доступа
+     */
+    public SecurityUserDto toSecurityUserDto(Jwt accessToken) {
+        SecurityUserDto user = new SecurityUserDto();
+        user.setId(((Number) accessToken.getClaim(USER_ID_CLAIM)).intValue());
+        user.setUserName(accessToken.getSubject());
+        user.setRole(Role.valueOf(accessToken.getClaimAsString(ROLE_CLAIM)));
+        return user;
+    }
+
+    private JwtClaimsSet.Builder claims(SecurityUserDto user, String tokenType, Instant now, Duration ttl) {
+        return JwtClaimsSet.builder()
+                .issuer(ISSUER)
+                .subject(user.getUserName())
+                .issuedAt(now)
+                .expiresAt(now.plus(ttl))
+                .claim(USER_ID_CLAIM, user.getId())
+                .claim(ROLE_CLAIM, user.getRole().name())
+                .claim(TOKEN_TYPE_CLAIM, tokenType);
+    }
+
+    private String encode(JwtClaimsSet claims) {
+        JwsHeader header = JwsHeader.with(MacAlgorithm.HS256).build();
+        return encoder.encode(JwtEncoderParameters.from(header, claims)).getTokenValue();
+    }
+
+    private static JwtDecoder decoder(SecretKey key, String tokenType) {
+        NimbusJwtDecoder decoder = NimbusJwtDecoder.withSecretKey(key)
+                .macAlgorithm(MacAlgorithm.HS256)
+                .build();
+        OAuth2TokenValidator<Jwt> tokenTypeValidator = jwt -> tokenType.equals(jwt.getClaimAsString(TOKEN_TYPE_CLAIM))
+                ? OAuth2TokenValidatorResult.success()
+                : OAuth2TokenValidatorResult.failure(new OAuth2Error("invalid_token", "Unexpected token type", null));
+        decoder.setJwtValidator(new DelegatingOAuth2TokenValidator<>(
+                JwtValidators.createDefaultWithIssuer(ISSUER), tokenTypeValidator));
+        return decoder;
+    }
+
+    private static String fingerprint(String passwordHash) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(passwordHash.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -1,10 +1,12 @@
 package ru.skypro.homework.service;
 
+import org.springframework.core.io.Resource;
 import org.springframework.web.multipart.MultipartFile;
 import ru.skypro.homework.dto.account.NewPassword;
 import ru.skypro.homework.dto.account.User;
 
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
 
 public interface AccountService {
     /**
@@ -12,7 +14,7 @@ public interface AccountService {
      * @param newPassword объект, содержащий текущий и новый пароли пользователя
      * @return возвращает {@code true}, если пароль успешно изменён, или {@code false}, если новый пароль некорректен
      */
-    boolean updatePassword(NewPassword newPassword);
+    CompletableFuture<Boolean> updatePassword(NewPassword newPassword);
 
     /**
      * Получение данных пользователя
@@ -44,5 +46,5 @@ public interface AccountService {
      * @param userId   id пользователя
      * @throws IOException ошибка ввода-вывода
      */
-    byte[] downloadAvatarFromFS(int userId) throws IOException;
+    Resource downloadAvatarFromFS(int userId) throws IOException;
 }
@@ -0,0 +1,30 @@
+package ru.skypro.homework.service;
+
+import ru.skypro.homework.model.AdEntity;
+
+import java.util.List;
+
+public interface AdSearchService {
+    /**
+     * Полнотекстовый поиск объявлений по заголовку и описанию
+     * @param query поисковый запрос
+     * @param minPrice минимальная цена (включительно)
+     * @param maxPrice максимальная цена (включительно)
+     * @param offset количество пропускаемых результатов
+     * @param limit максимальное количество результатов
+     * @return идентификаторы найденных объявлений, отсортированные по убыванию релевантности
+     */
+    List<Integer> search(String query, int minPrice, int maxPrice, int offset, int limit);
+
+    /**
+     * Добавление или обновление объявления в поисковом индексе
+     * @param adEntity объявление
+     */
+    void index(AdEntity adEntity);
+
+    /**
+     * Удаление объявления из поискового индекса
+     * @param adId идентификатор объявления в БД
+     */
+    void remove(int adId);
+}
@@ -1,10 +1,13 @@
 package ru.skypro.homework.service;
 
+import org.springframework.core.io.Resource;
 import org.springframework.web.multipart.MultipartFile;
 import ru.skypro.homework.dto.ads.Ad;
 import ru.skypro.homework.dto.ads.Ads;
 import ru.skypro.homework.dto.ads.CreateOrUpdateAd;
 import ru.skypro.homework.dto.ads.ExtendedAd;
+import ru.skypro.homework.dto.ads.ExtendedAdDocument;
+import ru.skypro.homework.dto.ads.ImageSize;
 
 import java.io.IOException;
 
@@ -18,9 +21,11 @@ public interface AdService {
     Ad createAd(CreateOrUpdateAd createOrUpdateAd, MultipartFile image) throws IOException;
 
     /**
-     * Получение всех объявлений
+     * Получение страницы ленты объявлений
+     * @param cursor идентификатор последнего объявления предыдущей страницы, {@code null} для первой страницы
+     * @param size размер страницы, {@code null} для размера по умолчанию
      */
-    Ads getAllAdvertising();
+    Ads getAllAdvertising(Integer cursor, Integer size);
 
     /**
      * Получение объявления по id
@@ -28,6 +33,12 @@ public interface AdService {
      */
     ExtendedAd getAdvertisingById(int id);
 
+    /**
+     * Получение объявления по id в виде готового JSON-документа с {@code ETag}
+     * @param id идентификатор объявления в БД
+     */
+    ExtendedAdDocument getAdvertisingDocumentById(int id);
+
     /**
      * Удаление объявления
      * @param id идентификатор объявления в БД
@@ -58,13 +69,19 @@ public interface AdService {
     /**
      * Выгрузка изображения объявления из файловой системы
      * @param adId идентификатор объявления в БД
+     * @param size вариант размера изображения
      * @throws IOException выбрасывается при ошибках, возникающих во время выгрузки изображения
      */
-    byte[] downloadAdImageFromFS(int adId) throws IOException;
+    Resource downloadAdImageFromFS(int adId, ImageSize size) throws IOException;
 
     /**
-     * Поиск объявления по заголовку
-     * @param title заголовок объявления
+     * Полнотекстовый поиск объявлений по заголовку и описанию
+     * @param query поисковый запрос
+     * @param minPrice минимальная цена, {@code null} без ограничения
+     * @param maxPrice максимальная цена, {@code null} без ограничения
+     * @param page номер страницы (начиная с 0), {@code null} для первой страницы
+     * @param size размер страницы, {@code null} для размера по умолчанию
+     * @return найденные объявления или {@code null}, если параметры страницы недопустимы
      */
-    Ads findByTitle(String title);
+    Ads searchAds(String query, Integer minPrice, Integer maxPrice, Integer page, Integer size);
 }
@@ -1,9 +1,13 @@
 package ru.skypro.homework.service;
 
+import ru.skypro.homework.dto.account.AuthTokens;
 import ru.skypro.homework.dto.account.Register;
 
+import java.util.concurrent.CompletableFuture;
+
 public interface AuthService {
-    boolean login(String userName, String password);
-    boolean register(Register register);
+    CompletableFuture<AuthTokens> login(String userName, String password);
+    AuthTokens refresh(String refreshToken);
+    CompletableFuture<Boolean> register(Register register);
 
 }
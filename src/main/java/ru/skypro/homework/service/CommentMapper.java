@@ -4,6 +4,7 @@ import ru.skypro.homework.dto.comment.Comment;
 import ru.skypro.homework.dto.comment.Comments;
 import ru.skypro.homework.dto.comment.CreateOrUpdateComment;
 import ru.skypro.homework.model.CommentEntity;
+import ru.skypro.homework.repository.CommentView;
 
 import java.util.List;
 
@@ -11,4 +12,6 @@ public interface CommentMapper {
     CommentEntity toCommentEntity(CreateOrUpdateComment createOrUpdateComment, CommentEntity commentEntity);
     Comment toComment(CommentEntity commentEntity);
     Comments toComments(List<CommentEntity> commentEntityList);
+    Comment toComment(CommentView commentView);
+    Comments toCommentsFromViews(List<CommentView> commentViewList);
 }
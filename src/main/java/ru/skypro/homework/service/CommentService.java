@@ -4,9 +4,12 @@ import ru.skypro.homework.dto.comment.Comment;
 import ru.skypro.homework.dto.comment.Comments;
 import ru.skypro.homework.dto.comment.CreateOrUpdateComment;
 
+import java.util.List;
+
 public interface CommentService {
-    Comments getComments(Integer id);
+    Comments getComments(Integer id, Integer page, Integer size);
     Comment addComment(Integer id, CreateOrUpdateComment createOrUpdateComment);
+    Comments addComments(Integer id, List<CreateOrUpdateComment> createOrUpdateComments);
     boolean deleteComment(Integer adId, Integer commentId);
     Comment updateComment(Integer adId, Integer commentId, CreateOrUpdateComment createOrUpdateComment);
 }
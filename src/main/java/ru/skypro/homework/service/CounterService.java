@@ -0,0 +1,23 @@
+package ru.skypro.homework.service;
+
+public interface CounterService {
+    /**
+     * Атомарное изменение счётчика комментариев объявления в текущей транзакции
+     * @param adId идентификатор объявления в БД
+     * @param delta изменение счётчика
+     */
+    void changeCommentCount(int adId, int delta);
+
+    /**
+     * Атомарное изменение счётчика объявлений пользователя в текущей транзакции
+     * @param userId идентификатор пользователя в БД
+     * @param delta изменение счётчика
+     */
+    void changeAdCount(int userId, int delta);
+
+    /**
+     * Пересчёт счётчиков, разошедшихся с фактическим количеством комментариев и объявлений
+     * @return количество исправленных записей
+     */
+    int reconcile();
+}
@@ -1,11 +1,56 @@
 package ru.skypro.homework.service;
 
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.Resource;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.nio.file.Path;
 
 public interface FileService {
-    byte[] downloadImage(String imagePath) throws IOException;
-    void uploadImage(MultipartFile image, Path filePath) throws IOException;
+    Resource downloadImage(String imagePath) throws IOException;
+
+    /**
+     * Запись загружаемого файла картинки во временную папку. Вызывается вне транзакции
+     * @param image файл картинки
+     * @param filePath желаемый путь к файлу на сервере
+     * @return подготовленный файл для {@link #commitImage(StagedImage)}
+     * @throws IOException ошибка ввода - вывода
+     */
+    StagedImage stageImage(MultipartFile image, Path filePath) throws IOException;
+
+    /**
+     * Сохранение подготовленного файла картинки. Вызывается в транзакции:
+     * файл перемещается на постоянное место до её фиксации и удаляется, если транзакция откатится
+     * @param stagedImage подготовленный файл
+     * @return путь к файлу на постоянном месте
+     * @throws java.io.UncheckedIOException если файл не удалось переместить
+     */
+    Path commitImage(StagedImage stagedImage);
+
+    /**
+     * Удаление временного файла, если он не был перемещён на постоянное место.
+     * Вызывается после завершения транзакции
+     * @param stagedImage подготовленный файл
+     */
+    void discardImage(StagedImage stagedImage);
+
+    /**
+     * Удаление файла картинки после фиксации текущей транзакции
+     * @param imagePath путь к файлу, полученный из {@link #commitImage(StagedImage)}
+     * @return {@code true}, если файл будет удалён с диска
+     */
+    boolean deleteImage(String imagePath);
+
+    /**
+     * Загруженный файл картинки во временной папке
+     */
+    @Getter
+    @RequiredArgsConstructor
+    class StagedImage {
+        private final Path tempFile;
+        private final Path target;
+        private final String name;
+    }
 }
@@ -0,0 +1,30 @@
+package ru.skypro.homework.service;
+
+import ru.skypro.homework.dto.ads.ImageSize;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+
+public interface ImageVariantService {
+    /**
+     * Создание уменьшенных вариантов изображения рядом с оригиналом
+     * @param original путь к оригиналу изображения
+     * @return завершается после записи всех вариантов
+     */
+    CompletableFuture<Void> generateVariants(Path original);
+
+    /**
+     * Путь к варианту изображения заданного размера
+     * @param original путь к оригиналу изображения
+     * @param size вариант размера
+     */
+    Path variantPath(Path original, ImageSize size);
+
+    /**
+     * Удаление всех вариантов изображения
+     * @param original путь к оригиналу изображения
+     * @throws IOException ошибка ввода-вывода
+     */
+    void deleteVariants(Path original) throws IOException;
+}
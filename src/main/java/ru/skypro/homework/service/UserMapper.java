@@ -5,7 +5,7 @@ import ru.skypro.homework.dto.account.User;
 import ru.skypro.homework.model.UserEntity;
 
 public interface UserMapper {
-    UserEntity toUserEntity(Register register);
+    UserEntity toUserEntity(Register register, String encodedPassword);
 
     User toUser(UserEntity userEntity);
 
@@ -0,0 +1,141 @@
+package ru.skypro.homework.service.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.web.multipart.MultipartFile;
+import ru.skypro.homework.service.FileService;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * Общая часть хранилищ файлов картинок.<br>
+ * - Загружаемый файл сначала записывается во временную папку {@code images.storage.staging-dir} вне транзакции.<br>
+ * - В транзакции, до её фиксации, файл атомарно перемещается на постоянное место: строка БД никогда
+ * не ссылается на файл, которого ещё нет на диске. Если перемещение не удалось, транзакция откатывается,
+ * а при откате перемещённый файл удаляется.<br>
+ * - Временные файлы, оставшиеся после сбоев, удаляются по расписанию.
+ */
+@Slf4j
+public abstract class AbstractFileService implements FileService {
+    private final Path stagingDir;
+    private final Duration stagingTtl;
+
+    protected AbstractFileService(String stagingDir, Duration stagingTtl) {
+        this.stagingDir = Path.of(stagingDir).toAbsolutePath();
+        this.stagingTtl = stagingTtl;
+    }
+
+    /**
+     * Получение файла картинки для потоковой отдачи клиенту. Содержимое файла не читается в память:
+     * возвращается {@link FileSystemResource}, данные которого копируются в ответ сервера
+     * буфером фиксированного размера через {@link java.nio.channels.FileChannel}.
+     * Размер и дата изменения файла используются для формирования заголовков {@code ETag} и {@code Last-Modified}
+     * @param imagePath путь и название файла с картинкой
+     * @return image - ресурс файла картинки
+     * @throws NoSuchFileException если файл картинки не найден
+     */
+    @Override
+    public Resource downloadImage(String imagePath) throws IOException {
+        Path path = Path.of(imagePath);
+        if (!Files.isReadable(path)) {
+            throw new NoSuchFileException(imagePath);
+        }
+        log.info("Image was downloaded successfully.");
+        return new FileSystemResource(path);
+    }
+
+    @Override
+    public void discardImage(StagedImage stagedImage) {
+        try {
+            Files.deleteIfExists(stagedImage.getTempFile());
+        } catch (IOException e) {
+            log.warn("Staged image {} was not deleted.", stagedImage.getTempFile(), e);
+        }
+    }
+
+    /**
+     * Удаление временных файлов старше {@code images.storage.staging-ttl}, оставшихся после сбоев
+     */
+    @Scheduled(fixedDelayString = "${images.storage.staging-cleanup-interval}")
+    public void deleteOrphanStagedImages() {
+        if (!Files.isDirectory(stagingDir)) {
+            return;
+        }
+        FileTime threshold = FileTime.from(Instant.now().minus(stagingTtl));
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(stagingDir)) {
+            for (Path file : files) {
+                if (Files.getLastModifiedTime(file).compareTo(threshold) < 0 && Files.deleteIfExists(file)) {
+                    log.info("Orphan staged image {} was deleted.", file);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Staged images cleanup failed.", e);
+        }
+    }
+
+    /**
+     * Копирование загружаемого файла во временную папку {@link MultipartFile#transferTo(java.io.File)}.
+     * Если контейнер сервлетов уже сохранил загрузку на диск, файл переименовывается без копирования
+     * @param image файл картинки
+     * @return путь к временному файлу
+     * @throws IOException ошибка ввода - вывода
+     */
+    protected Path stageToTempFile(MultipartFile image) throws IOException {
+        Path tempFile = createTempFile();
+        try {
+            image.transferTo(tempFile.toFile());
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+        return tempFile;
+    }
+
+    protected Path createTempFile() throws IOException {
+        Files.createDirectories(stagingDir);
+        return Files.createTempFile(stagingDir, "upload", ".tmp");
+    }
+
+    /**
+     * Атомарное перемещение подготовленного файла на постоянное место
+     * @param stagedImage подготовленный файл
+     * @throws UncheckedIOException если файл не удалось переместить, чтобы откатить текущую транзакцию
+     */
+    protected void moveIntoPlace(StagedImage stagedImage) {
+        Path target = stagedImage.getTarget();
+        try {
+            Files.createDirectories(target.getParent());
+            try {
+                Files.move(stagedImage.getTempFile(), target, REPLACE_EXISTING, ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(stagedImage.getTempFile(), target, REPLACE_EXISTING);
+            }
+            log.info("Image was uploaded successfully.");
+        } catch (IOException e) {
+            log.error("Staged image {} was not moved to {}.", stagedImage.getTempFile(), target, e);
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    protected void deleteFile(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Image {} was not deleted.", path, e);
+        }
+    }
+}
@@ -2,25 +2,31 @@ package ru.skypro.homework.service.impl;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.core.io.Resource;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
-import org.springframework.security.provisioning.UserDetailsManager;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 import ru.skypro.homework.dto.account.NewPassword;
 import ru.skypro.homework.dto.account.User;
 import ru.skypro.homework.model.UserEntity;
 import ru.skypro.homework.repository.UserRepository;
+import ru.skypro.homework.security.AuthenticationCache;
+import ru.skypro.homework.security.CurrentUser;
+import ru.skypro.homework.security.SecurityUser;
+import ru.skypro.homework.security.SecurityUserManager;
 import ru.skypro.homework.service.AccountService;
 import ru.skypro.homework.service.FileService;
 import ru.skypro.homework.service.UserMapper;
 
 import javax.servlet.http.HttpServletResponse;
 import java.io.*;
-import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Класс для осуществления операций с базой данных пользователей
@@ -30,16 +36,26 @@ import java.nio.file.Path;
 public class AccountServiceImpl implements AccountService {
     private final UserRepository userRepository;
     private final UserMapper userMapper;
-    private final UserDetails userDetails;
-    private final UserDetailsManager userDetailsManager;
+    private final CurrentUser currentUser;
+    private final SecurityUserManager securityUserManager;
     private final FileService fileService;
+    private final AuthenticationCache authenticationCache;
+    private final ImageCache imageCache;
+    private final AdDocumentCache adDocumentCache;
+    private final TransactionTemplate transactionTemplate;
 
-    public AccountServiceImpl(UserRepository userRepository, UserMapper userMapper, UserDetails userDetails, UserDetailsManager userDetailsManager, FileService fileService) {
+    public AccountServiceImpl(UserRepository userRepository, UserMapper userMapper, CurrentUser currentUser, SecurityUserManager securityUserManager, FileService fileService,
+                              AuthenticationCache authenticationCache, ImageCache imageCache,
+                              AdDocumentCache adDocumentCache, PlatformTransactionManager transactionManager) {
         this.userRepository = userRepository;
         this.userMapper = userMapper;
-        this.userDetails = userDetails;
-        this.userDetailsManager = userDetailsManager;
+        this.currentUser = currentUser;
+        this.securityUserManager = securityUserManager;
         this.fileService = fileService;
+        this.authenticationCache = authenticationCache;
+        this.imageCache = imageCache;
+        this.adDocumentCache = adDocumentCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
     private static final String USER_NOT_FOUND = "User not found";
@@ -52,54 +68,63 @@ public class AccountServiceImpl implements AccountService {
      * <b>NewPassword</b>,
      * происходит проверка корректности нового и текущего паролей,
      * сохраняется новый пароль для текущего пользователя.
-     * Используется метод класса {@link UserDetailsManager#changePassword(String, String)}
+     * Используется метод класса {@link SecurityUserManager#changePasswordAsync(String, String)},
+     * проверка и хеширование паролей выполняются вне потока запроса
      * Используются методы класса {@link NewPassword#getNewPassword()}
      * Используются методы класса {@link NewPassword#getCurrentPassword()}
      * @param newPassword объект, содержащий текущий и новый пароли пользователя
      * @return возвращает {@code true}, если пароль успешно изменён, или {@code false}, если новый пароль некорректен
-     * @see UserDetails#getUsername()
+     * @see CurrentUser#get()
      */
     @Override
-    @Transactional
-    public boolean updatePassword(NewPassword newPassword) {
+    public CompletableFuture<Boolean> updatePassword(NewPassword newPassword) {
+        String userName = currentUser.get().getUsername();
         if (newPassword.getNewPassword() != null &&
                 !newPassword.getNewPassword().isEmpty() &&
                 !newPassword.getNewPassword().isBlank() &&
                 newPassword.getCurrentPassword() != null &&
                 !newPassword.getCurrentPassword().isEmpty() &&
                 !newPassword.getCurrentPassword().isBlank()) {
-            userDetailsManager.changePassword(newPassword.getCurrentPassword(), newPassword.getNewPassword());
-            log.info("Password for user: {} was changed successfully.", userDetails.getUsername());
-            return true;
+            return securityUserManager.changePasswordAsync(newPassword.getCurrentPassword(), newPassword.getNewPassword())
+                    .thenApply(changed -> {
+                        if (changed) {
+                            log.info("Password for user: {} was changed successfully.", userName);
+                        } else {
+                            log.warn("Current password does not match for user: {}.", userName);
+                        }
+                        return true;
+                    });
         }
-        log.warn("New password is incorrect for user: {}.", userDetails.getUsername());
-        return false;
+        log.warn("New password is incorrect for user: {}.", userName);
+        return CompletableFuture.completedFuture(false);
     }
 
     /**
      * Получение информации о пользователе из базы данных путём
-     * получения имени пользователя (логина) из объекта класса <b>UserDetails</b>.
-     * <br>Используется метод {@link UserDetails#getUsername()}
+     * получения идентификатора пользователя из данных аутентификации {@link CurrentUser#get()}.
      * <br>Для получения пользователя используется метод класса
-     * {@link UserRepository#findByEmail(String)}
+     * {@link UserRepository#findById(Object)}, пользователь читается из кэша второго уровня Hibernate
      * @return Пользователь
      * @throws UsernameNotFoundException если пользователь с таким логином не найден в базе данных
      */
     @Override
     @Transactional(readOnly = true)
     public User getInfoAboutUser() {
-        String userName = userDetails.getUsername();
-        log.info("Information about user: {} was received.", userName);
-        return userMapper.toUser(userRepository.findByEmail(userName)
+        SecurityUser securityUser = currentUser.get();
+        log.info("Information about user: {} was received.", securityUser.getUsername());
+        return userMapper.toUser(userRepository.findById(securityUser.getId())
                 .orElseThrow(() -> new UsernameNotFoundException(USER_NOT_FOUND)));
     }
 
     /**
-     * Обновление данных пользователя. Логин пользователя получается из объекта
-     * класса <b>UserDetails</b> методом {@link UserDetails#getUsername()}
+     * Обновление данных пользователя. Идентификатор и логин пользователя получаются
+     * из данных аутентификации {@link CurrentUser#get()}
      * <br> Получение пользователя из базы данных происходит в методе
-     * {@link UserRepository#findByEmail(String)}
+     * {@link UserRepository#findById(Object)}
      * <br> Сохранение пользователя происходит в методе {@link UserRepository#save(Object)}
+     * <br> Запись пользователя удаляется из кэша аутентификаций {@link AuthenticationCache#evict(String)}
+     * <br> После фиксации транзакции из кэша документов удаляются объявления пользователя, содержащие
+     * его имя и телефон {@link AdDocumentCache#evictByAuthor(String)}
      * @param user Данные пользователя из веб-интерфейса
      * @return обновлённый пользователь
      * @throws UsernameNotFoundException если пользователь с таким логином не найден в базе данных
@@ -108,69 +133,81 @@ public class AccountServiceImpl implements AccountService {
     @Override
     @Transactional
     public User patchInfoAboutUser(User user) {
-        String userName = userDetails.getUsername();
-        UserEntity userEntity = userRepository.findByEmail(userName)
+        SecurityUser securityUser = currentUser.get();
+        String userName = securityUser.getUsername();
+        UserEntity userEntity = userRepository.findById(securityUser.getId())
                 .orElseThrow(() -> new UsernameNotFoundException(USER_NOT_FOUND));
         UserEntity updatedUser = userRepository.save(userMapper.updateUserEntity(userEntity, user));
+        authenticationCache.evict(userName);
+        TransactionCallbacks.afterCommit(() -> adDocumentCache.evictByAuthor(userName));
         log.info("Information about user: {} was updated successfully.", userName);
         return userMapper.toUser(updatedUser);
     }
 
     /**
-     * Обновление аватара пользователя. Используется метод
-     * <br> <b>uploadImage(image, filePath)</b>. Логин пользователя получается из объекта
-     * класса <b>UserDetails</b> методом {@link UserDetails#getUsername()}
+     * Обновление аватара пользователя. Файл картинки записывается во временную папку вне транзакции методом
+     * <br> {@link FileService#stageImage(MultipartFile, Path)} и перемещается на постоянное место до фиксации
+     * транзакции {@link FileService#commitImage(FileService.StagedImage)}. Идентификатор пользователя
+     * получается из данных аутентификации {@link CurrentUser#get()}
      * <br> Получение пользователя из базы данных происходит в методе
-     * {@link UserRepository#findByEmail(String)}
+     * {@link UserRepository#findById(Object)}
      * @param image файл картинки
      * @return {@code true}, если аватар успешно обновлён
      * @throws IOException ошибка ввода-вывода
      * @throws UsernameNotFoundException если текущий пользователь не найден в базе данных
-     * @see Files#deleteIfExists(Path)
+     * @see FileService#deleteImage(String)
      * @see UserEntity#getImagePath()
      * @see Path#of(String, String...)
      * @see StringUtils#getFilenameExtension(String)
      */
     @Override
-    @Transactional
     public boolean updateUserAvatar(MultipartFile image) throws IOException {
-        String userName = userDetails.getUsername();
-        UserEntity userEntity = userRepository.findByEmail(userName)
-                .orElseThrow(() -> new UsernameNotFoundException(USER_NOT_FOUND));
-        if (userEntity.getImagePath() != null) {
-            Files.deleteIfExists(Path.of(userEntity.getImagePath()));
+        SecurityUser securityUser = currentUser.get();
+        FileService.StagedImage stagedImage = fileService.stageImage(image, Path.of(avatarsDir, UUID.randomUUID() + "."
+                + StringUtils.getFilenameExtension(image.getOriginalFilename())));
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                UserEntity userEntity = userRepository.findById(securityUser.getId())
+                        .orElseThrow(() -> new UsernameNotFoundException(USER_NOT_FOUND));
+                String oldImagePath = userEntity.getImagePath();
+                userEntity.setImagePath(fileService.commitImage(stagedImage).toString());
+                userRepository.save(userEntity);
+                if (oldImagePath != null && !oldImagePath.equals(userEntity.getImagePath())) {
+                    fileService.deleteImage(oldImagePath);
+                }
+                TransactionCallbacks.afterCommit(() -> imageCache.evict(ImageCache.userKey(userEntity.getId())));
+            });
+        } finally {
+            fileService.discardImage(stagedImage);
         }
-        Path filePath = Path.of(avatarsDir, userEntity.getId() + "."
-                + StringUtils.getFilenameExtension(image.getOriginalFilename()));
-        fileService.uploadImage(image, filePath);
-        userEntity.setImagePath(filePath.toAbsolutePath().toString());
-        userRepository.save(userEntity);
-        log.info("Avatar for user: {} was updated successfully.", userName);
+        log.info("Avatar for user: {} was updated successfully.", securityUser.getUsername());
         return true;
     }
 
     /**
-     * Загрузка аватара из файловой системы по id пользователя. <br> Используется метод
+     * Загрузка аватара из файловой системы по id пользователя. <br> Аватар сначала ищется
+     * в кэше изображений {@link ImageCache#get(String, ImageCache.ImageLoader)}, при промахе используется метод
      * {@link UserRepository#findById(Object)} для получения пользователя из базы данных.
      * Для формирования ответа сервера используется метод
      * {@link FileService#downloadImage(String)}
      * @param userId id пользователя
-     * @return image - массив байт картинки
+     * @return image - ресурс файла картинки или {@code null}, если аватар не загружен
      * @throws IOException ошибка ввода-вывода
      * @throws UsernameNotFoundException если пользователь с данным id не найден в базе данных
      * @see #downloadAvatarFromFS(int)
      */
     @Override
-    @Transactional
-    public byte[] downloadAvatarFromFS(int userId) throws IOException {
-        UserEntity userEntity = userRepository.findById(userId)
-                .orElseThrow(() -> new UsernameNotFoundException(USER_NOT_FOUND));
-        if (userEntity.getImagePath() != null) {
-            byte[] image = fileService.downloadImage(userEntity.getImagePath());
-            log.info("Download avatar for user: {} method was invoked", userEntity.getEmail());
-            return image;
-        }
-        return new byte[0];
+    public Resource downloadAvatarFromFS(int userId) throws IOException {
+        return imageCache.get(ImageCache.userKey(userId), () -> {
+            UserEntity userEntity = userRepository.findById(userId)
+                    .orElseThrow(() -> new UsernameNotFoundException(USER_NOT_FOUND));
+            if (userEntity.getImagePath() != null) {
+                Resource image = fileService.downloadImage(userEntity.getImagePath());
+                log.info("Download avatar for user: {} method was invoked", userEntity.getEmail());
+                return image;
+            }
+            return null;
+        });
     }
 
 }
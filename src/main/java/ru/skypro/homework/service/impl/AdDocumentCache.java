@@ -0,0 +1,118 @@
+package ru.skypro.homework.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import ru.skypro.homework.dto.ads.ExtendedAd;
+import ru.skypro.homework.dto.ads.ExtendedAdDocument;
+
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * Кэш готовых JSON-ответов {@link ExtendedAd} по идентификатору объявления.<br>
+ * - При попадании в кэш не выполняются ни запрос к БД, ни маппинг, ни сериализация.<br>
+ * - Документ строит первый запросивший его поток, остальные ждут тот же {@link CompletableFuture}.
+ * Блокировка ключа удерживается только на время вставки future, а не на время запроса к БД,
+ * поэтому построение не закрепляет виртуальный поток за потоком-носителем.<br>
+ * - Сброс записи во время построения удаляет незавершённый future, и документ, прочитанный до изменения,
+ * в кэш не попадает.<br>
+ * - Записи сбрасываются после фиксации транзакций, изменяющих объявление или данные его автора.
+ */
+@Slf4j
+@Component
+public class AdDocumentCache {
+    private final AsyncCache<Integer, CachedDocument> cache;
+    private final ObjectMapper objectMapper;
+
+    public AdDocumentCache(ObjectMapper objectMapper,
+                           @Value("${ads.document-cache.max-size}") long maxSize,
+                           @Value("${ads.document-cache.ttl}") Duration ttl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .buildAsync();
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Получение документа объявления из кэша. При промахе объявление загружается через {@code loader},
+     * сериализуется в JSON и помещается в кэш вместе с {@code ETag} (MD5 содержимого)
+     * @param adId идентификатор объявления в БД
+     * @param loader загрузка объявления, исключения передаются вызывающему без изменений
+     * @return сериализованное объявление
+     */
+    public ExtendedAdDocument get(int adId, Supplier<ExtendedAd> loader) {
+        CompletableFuture<CachedDocument> loading = new CompletableFuture<>();
+        CompletableFuture<CachedDocument> cached = cache.get(adId, (id, executor) -> loading);
+        if (cached == loading) {
+            try {
+                loading.complete(toDocument(loader.get()));
+            } catch (RuntimeException | Error e) {
+                loading.completeExceptionally(e);
+                throw e;
+            }
+        }
+        try {
+            return cached.join().document;
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Удаление документа объявления из кэша. Вызывается при изменении и удалении объявления
+     * @param adId идентификатор объявления в БД
+     */
+    public void evict(int adId) {
+        cache.asMap().remove(adId);
+    }
+
+    /**
+     * Удаление из кэша документов всех объявлений автора. Вызывается при изменении данных пользователя,
+     * которые входят в {@link ExtendedAd}. Строящиеся документы тоже удаляются: их автор ещё неизвестен
+     * @param email логин (email) автора
+     */
+    public void evictByAuthor(String email) {
+        cache.asMap().values().removeIf(cached -> !cached.isDone()
+                || !cached.isCompletedExceptionally() && email.equals(cached.join().authorEmail));
+    }
+
+    public Cache<Integer, ?> getNativeCache() {
+        return cache.synchronous();
+    }
+
+    private CachedDocument toDocument(ExtendedAd ad) {
+        byte[] content;
+        try {
+            content = objectMapper.writeValueAsBytes(ad);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+        log.debug("Advertisement {} document was cached, {} bytes.", ad.getPk(), content.length);
+        return new CachedDocument(new ExtendedAdDocument(content, DigestUtils.md5DigestAsHex(content)), ad.getEmail());
+    }
+
+    private static final class CachedDocument {
+        private final ExtendedAdDocument document;
+        private final String authorEmail;
+
+        private CachedDocument(ExtendedAdDocument document, String authorEmail) {
+            this.document = document;
+            this.authorEmail = authorEmail;
+        }
+    }
+}
@@ -5,6 +5,7 @@ import ru.skypro.homework.dto.ads.Ad;
 import ru.skypro.homework.dto.ads.Ads;
 import ru.skypro.homework.dto.ads.CreateOrUpdateAd;
 import ru.skypro.homework.dto.ads.ExtendedAd;
+import ru.skypro.homework.dto.ads.ImageSize;
 import ru.skypro.homework.model.AdEntity;
 import ru.skypro.homework.service.AdMapper;
 
@@ -25,10 +26,11 @@ public class AdMapperImpl implements AdMapper {
     public Ad toAd(AdEntity adEntity) {
         Ad ad = new Ad();
         ad.setAuthor(adEntity.getUserEntity().getId());
-        ad.setImage("/ads/image/" + adEntity.getId());
+        ad.setImage("/ads/image/" + adEntity.getId() + "?size=" + ImageSize.THUMB.getValue());
         ad.setPk(adEntity.getId());
         ad.setPrice(adEntity.getPrice());
         ad.setTitle(adEntity.getTitle());
+        ad.setCommentCount(adEntity.getCommentCount());
         return ad;
     }
 
@@ -44,6 +46,7 @@ public class AdMapperImpl implements AdMapper {
         extendedAd.setPhone(adEntity.getUserEntity().getPhoneUser());
         extendedAd.setPrice(adEntity.getPrice());
         extendedAd.setTitle(adEntity.getTitle());
+        extendedAd.setCommentCount(adEntity.getCommentCount());
         return extendedAd;
     }
 
@@ -2,10 +2,14 @@ package ru.skypro.homework.service.impl;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.core.io.Resource;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 import ru.skypro.homework.dto.account.Role;
@@ -13,22 +17,33 @@ import ru.skypro.homework.dto.ads.Ad;
 import ru.skypro.homework.dto.ads.Ads;
 import ru.skypro.homework.dto.ads.CreateOrUpdateAd;
 import ru.skypro.homework.dto.ads.ExtendedAd;
+import ru.skypro.homework.dto.ads.ExtendedAdDocument;
+import ru.skypro.homework.dto.ads.ImageSize;
 import ru.skypro.homework.model.AdEntity;
 import ru.skypro.homework.model.UserEntity;
 import ru.skypro.homework.repository.AdRepository;
 import ru.skypro.homework.repository.CommentRepository;
 import ru.skypro.homework.repository.UserRepository;
+import ru.skypro.homework.security.CurrentUser;
+import ru.skypro.homework.security.SecurityUser;
 import ru.skypro.homework.service.AdMapper;
+import ru.skypro.homework.service.AdSearchService;
 import ru.skypro.homework.service.AdService;
+import ru.skypro.homework.service.CounterService;
 import ru.skypro.homework.service.FileService;
+import ru.skypro.homework.service.ImageVariantService;
 
 import javax.persistence.EntityNotFoundException;
-import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.nio.file.Files;
-import java.nio.file.OpenOption;
 import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
 
 /**
  * Класс для осуществления операций с базой данных объявлений
@@ -40,72 +55,126 @@ public class AdServiceImpl implements AdService {
     private final UserRepository userRepository;
     private final AdRepository adRepository;
     private final AdMapper adMapper;
-    private final UserDetails userDetails;
+    private final CurrentUser currentUser;
     private final FileService fileService;
-    private static final String USER_NOT_FOUND = "User not found";
+    private final AdSearchService adSearchService;
+    private final ImageCache imageCache;
+    private final AdDocumentCache adDocumentCache;
+    private final CounterService counterService;
+    private final ImageVariantService imageVariantService;
+    private final TransactionTemplate transactionTemplate;
     private static final String AD_NOT_FOUND = "Ad not found";
     @Value("${ad.image.dir.path}")
     private String adImageDirPath;
+    @Value("${ads.feed.page-size}")
+    private int feedPageSize;
+    @Value("${ads.feed.max-page-size}")
+    private int feedMaxPageSize;
+    @Value("${ads.search.page-size}")
+    private int searchPageSize;
+    @Value("${ads.search.max-page-size}")
+    private int searchMaxPageSize;
+    @Value("${ads.search.max-offset}")
+    private long searchMaxOffset;
 
     public AdServiceImpl(CommentRepository commentRepository,
                          UserRepository userRepository,
                          AdRepository adRepository,
                          AdMapper adMapper,
-                         UserDetails userDetails, FileService fileService) {
+                         CurrentUser currentUser, FileService fileService,
+                         AdSearchService adSearchService,
+                         ImageCache imageCache,
+                         AdDocumentCache adDocumentCache,
+                         CounterService counterService,
+                         ImageVariantService imageVariantService,
+                         PlatformTransactionManager transactionManager) {
         this.commentRepository = commentRepository;
         this.userRepository = userRepository;
         this.adRepository = adRepository;
         this.adMapper = adMapper;
-        this.userDetails = userDetails;
+        this.currentUser = currentUser;
         this.fileService = fileService;
+        this.adSearchService = adSearchService;
+        this.imageCache = imageCache;
+        this.adDocumentCache = adDocumentCache;
+        this.counterService = counterService;
+        this.imageVariantService = imageVariantService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
     /**
      * Создание объявления и сохранение его в базе данных.<br>
-     * - Поиск пользователя в базе данных по данным аутентификации {@link UserDetails#getUsername()}, {@link UserRepository#findByEmail(String)}.<br>
-     * - Создание объявления из входных данных {@link AdMapper#toAdEntity(CreateOrUpdateAd, AdEntity)}
-     * и сохранение его в базе данных {@link AdRepository#save(Object)}.<br>
-     * - Создание пути для загрузки изображения объявления {@link #createPath(MultipartFile, AdEntity)}.<br>
-     * - Загрузка с сайта и сохранение в файловой системе изображения объявления {@link FileService#uploadImage(MultipartFile, Path)}.<br>
-     * - Задание необходимых параметров созданному объявлению {@link AdEntity#setUserEntity(UserEntity)}, {@link AdEntity#setImagePath(String)}.<br>
-     * - Сохранение созданного объявления в базе данных {@link AdRepository#save(Object)}.<br>
-     * - Преобразование (маппинг) созданного объявления в объект возвращаемого класса {@link AdMapper#toAd(AdEntity)}.
+     * - Запись изображения объявления во временную папку вне транзакции {@link #stageImage(MultipartFile)}.<br>
+     * - В транзакции: получение ссылки на текущего пользователя по идентификатору из данных аутентификации
+     * без запроса к БД {@link CurrentUser#get()}, {@link UserRepository#getReferenceById(Object)}.<br>
+     * - Создание объявления из входных данных {@link AdMapper#toAdEntity(CreateOrUpdateAd, AdEntity)}.<br>
+     * - Задание необходимых параметров созданному объявлению {@link AdEntity#setUserEntity(UserEntity)}, {@link AdEntity#setImagePath(String)}.
+     * Изображение перемещается на постоянное место до сохранения {@link FileService#commitImage(FileService.StagedImage)}.<br>
+     * - Сохранение созданного объявления в базе данных одним запросом {@link AdRepository#save(Object)}.<br>
+     * - Увеличение счётчика объявлений пользователя {@link CounterService#changeAdCount(int, int)}.<br>
+     * - Преобразование (маппинг) созданного объявления в объект возвращаемого класса {@link AdMapper#toAd(AdEntity)}.<br>
+     * - После фиксации транзакции запускается создание уменьшенных вариантов изображения {@link #generateVariants(int, Path)}.
+     * Временный файл удаляется, если транзакция не была зафиксирована {@link FileService#discardImage(FileService.StagedImage)}.
      * @param createOrUpdateAd объект, содержащий необходимую информацию для создания объявления
      * @param image загружаемое изображение
      * @return объект {@link Ad}, содержащий необходимую информацию о созданном объявлении
      * @throws IOException выбрасывается при ошибках, возникающих во время загрузки изображения
      */
     @Override
-    @Transactional
     public Ad createAd(CreateOrUpdateAd createOrUpdateAd, MultipartFile image) throws IOException {
-        UserEntity user = userRepository.findByEmail(userDetails.getUsername())
-                .orElseThrow(() -> new UsernameNotFoundException(USER_NOT_FOUND));
-        AdEntity adEntity = adRepository.save(adMapper.toAdEntity(createOrUpdateAd, new AdEntity()));
-        Path filePath = createPath(image, adEntity);
-        adEntity.setUserEntity(user);
-        adEntity.setImagePath(filePath.toAbsolutePath().toString());
-        Ad savedAd = adMapper.toAd(adRepository.save(adEntity));
-        log.info("Advertisement was created successfully.");
-        return savedAd;
+        FileService.StagedImage stagedImage = stageImage(image);
+        try {
+            return transactionTemplate.execute(status -> {
+                UserEntity user = userRepository.getReferenceById(currentUser.get().getId());
+                AdEntity adEntity = adMapper.toAdEntity(createOrUpdateAd, new AdEntity());
+                adEntity.setUserEntity(user);
+                adEntity.setImagePath(fileService.commitImage(stagedImage).toString());
+                AdEntity savedAdEntity = adRepository.save(adEntity);
+                counterService.changeAdCount(user.getId(), 1);
+                TransactionCallbacks.afterCommit(() ->
+                        generateVariants(savedAdEntity.getId(), Path.of(savedAdEntity.getImagePath())));
+                log.info("Advertisement was created successfully.");
+                return adMapper.toAd(savedAdEntity);
+            });
+        } finally {
+            fileService.discardImage(stagedImage);
+        }
     }
 
     /**
-     * Получение всех объявлений.<br>
-     * - Поиск всех объявлений в базе данных {@link AdRepository#findAll()}.<br>
-     * - Преобразование (маппинг) списка найденных объявлений в объект возвращаемого класса {@link AdMapper#toAds(List)}.
-     * @return объект {@link Ads}, содержащий количество объявлений и список объявлений
+     * Получение страницы ленты объявлений (keyset-пагинация по идентификатору объявления).<br>
+     * - Ограничение размера страницы значениями {@code ads.feed.page-size} и {@code ads.feed.max-page-size}.<br>
+     * - Поиск в базе данных объявлений с идентификатором больше курсора {@link AdRepository#findAllByIdGreaterThanOrderByIdAsc(int, Pageable)}.
+     * Запрашивается на одну запись больше размера страницы, чтобы определить наличие следующей страницы.<br>
+     * - Преобразование (маппинг) списка найденных объявлений в объект возвращаемого класса {@link AdMapper#toAds(List)}.<br>
+     * - Установка курсора следующей страницы {@link Ads#setNext(Integer)}.
+     * @param cursor идентификатор последнего объявления предыдущей страницы, {@code null} для первой страницы
+     * @param size размер страницы, {@code null} для размера по умолчанию
+     * @return объект {@link Ads}, содержащий количество объявлений на странице, список объявлений и курсор следующей страницы
+     * (<B>null</B>, если страница последняя)
      */
     @Override
     @Transactional(readOnly = true)
-    public Ads getAllAdvertising() {
-        List<AdEntity> adEntityList = adRepository.findAll();
+    public Ads getAllAdvertising(Integer cursor, Integer size) {
+        int pageSize = (size == null || size < 1) ? feedPageSize : Math.min(size, feedMaxPageSize);
+        int afterId = (cursor == null) ? 0 : cursor;
+        List<AdEntity> adEntityList = adRepository.findAllByIdGreaterThanOrderByIdAsc(afterId,
+                PageRequest.of(0, pageSize + 1));
+        boolean hasNext = adEntityList.size() > pageSize;
+        if (hasNext) {
+            adEntityList = adEntityList.subList(0, pageSize);
+        }
         Ads ads = adMapper.toAds(adEntityList);
-        log.info("Advertisements were received successfully.");
+        if (hasNext) {
+            ads.setNext(adEntityList.get(pageSize - 1).getId());
+        }
+        log.info("Advertisements page after id: {} was received successfully.", afterId);
         return ads;
     }
 
     /** Получение объявления по id.<br>
-     * - Поиск объявления по id {@link AdRepository#findById(Object)}.<br>
+     * - Поиск объявления и его автора по id {@link AdRepository#findById(Object)}. Оба читаются из кэша второго уровня
+     * Hibernate (регионы {@code ads} и {@code users}) и запрашиваются из БД только при промахе.<br>
      * - Преобразование (маппинг) найденного объявления в объект возвращаемого класса {@link AdMapper#toExtendedAd(AdEntity)}.
      * @param id идентификатор объявления в БД
      * @return объект {@link ExtendedAd}, содержащий необходимую информацию о запрашиваемом объявлении
@@ -113,19 +182,37 @@ public class AdServiceImpl implements AdService {
     @Override
     @Transactional(readOnly = true)
     public ExtendedAd getAdvertisingById(int id) {
-        AdEntity adEntity = adRepository.findById(id).orElseThrow(() -> new EntityNotFoundException(AD_NOT_FOUND));
+        AdEntity adEntity = adRepository.findById(id)
+                .orElseThrow(() -> new EntityNotFoundException(AD_NOT_FOUND));
         ExtendedAd ad = adMapper.toExtendedAd(adEntity);
         log.info("Advertisement with id: {} was received successfully.", id);
         return ad;
     }
 
+    /**
+     * Получение объявления по id в виде готового JSON-документа.<br>
+     * - Поиск документа в кэше {@link AdDocumentCache#get(int, java.util.function.Supplier)}.<br>
+     * - При промахе объявление загружается {@link #getAdvertisingById(int)}, сериализуется и помещается в кэш
+     * вместе с {@code ETag}. Загрузка выполняется в транзакции на запись, чтобы документ читался из основной БД,
+     * а не из реплики, которая может отставать и вернуть объявление до изменения.
+     * @param id идентификатор объявления в БД
+     * @return объект {@link ExtendedAdDocument}, содержащий сериализованное объявление и его {@code ETag}
+     */
+    @Override
+    public ExtendedAdDocument getAdvertisingDocumentById(int id) {
+        return adDocumentCache.get(id, () -> transactionTemplate.execute(status -> getAdvertisingById(id)));
+    }
+
     /**
      * Удаление объявления.<br>
-     * - Поиск пользователя в базе данных по данным аутентификации {@link UserDetails#getUsername()}, {@link UserRepository#findByEmail(String)}.<br>
-     * - Поиск объявления в базе данных по идентификатору объявления {@link AdRepository#findById(Object)}.<br>
-     * - Удаление из базы данных всех комментариев найденного объявления {@link CommentRepository#deleteAllByAdEntity_Id(int)}.<br>
+     * - Получение идентификатора и роли текущего пользователя из данных аутентификации {@link CurrentUser#get()}.<br>
+     * - Поиск объявления в базе данных по идентификатору объявления {@link AdRepository#findById(Object)}.
+     * Права проверяются по идентификатору автора без загрузки пользователя.<br>
+     * - Удаление из базы данных всех комментариев найденного объявления одним запросом {@link CommentRepository#deleteAllByAdId(int)}.<br>
      * - Удаление из базы данных объявления по id {@link AdRepository#deleteById(Object)}.<br>
-     * - Удаление из файловой системы изображения объявления {@link Files#deleteIfExists(Path)}.
+     * - Уменьшение счётчика объявлений автора {@link CounterService#changeAdCount(int, int)}.<br>
+     * - Удаление изображения объявления {@link #deleteImage(String)} и удаление его из кэша изображений
+     * после фиксации транзакции {@link #evictImages(int)}. Документ объявления удаляется из кэша {@link AdDocumentCache#evict(int)}.
      * @param id идентификатор объявления в БД
      * @return <B>true</B>, если у пользователя есть права на удаление объявления.<br>
      * В противном случае <B>false</B>
@@ -134,15 +221,18 @@ public class AdServiceImpl implements AdService {
     @Override
     @Transactional
     public boolean deleteAdvertisingById(int id) throws IOException {
-        String userName = userDetails.getUsername();
-        UserEntity userEntity = userRepository.findByEmail(userName)
-                .orElseThrow(() -> new UsernameNotFoundException(USER_NOT_FOUND));
+        SecurityUser user = currentUser.get();
         AdEntity adEntity = adRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(AD_NOT_FOUND));
-        if (userEntity.getRole() == Role.ADMIN || adEntity.getUserEntity().equals(userEntity)){
-            commentRepository.deleteAllByAdEntity_Id(id);
+        if (user.getRole() == Role.ADMIN || adEntity.getUserEntity().getId() == user.getId()) {
+            commentRepository.deleteAllByAdId(id);
             adRepository.deleteById(id);
-            Files.deleteIfExists(Path.of(adEntity.getImagePath()));
+            counterService.changeAdCount(adEntity.getUserEntity().getId(), -1);
+            deleteImage(adEntity.getImagePath());
+            TransactionCallbacks.afterCommit(() -> {
+                evictImages(id);
+                adDocumentCache.evict(id);
+            });
             log.info("Advertisement with id: {} was deleted successfully.", id);
             return true;
         }
@@ -151,11 +241,13 @@ public class AdServiceImpl implements AdService {
 
     /**
      * Обновление объявления.<br>
-     * - Поиск пользователя в базе данных по данным аутентификации {@link UserDetails#getUsername()}, {@link UserRepository#findByEmail(String)}.<br>
-     * - Поиск объявления в базе данных по идентификатору объявления {@link AdRepository#findById(Object)}.<br>
+     * - Получение идентификатора и роли текущего пользователя из данных аутентификации {@link CurrentUser#get()}.<br>
+     * - Поиск объявления в базе данных по идентификатору объявления {@link AdRepository#findById(Object)}.
+     * Права проверяются по идентификатору автора без загрузки пользователя.<br>
      * - Преобразование (маппинг) найденного объявления и входных данных в обновленное объявление {@link AdMapper#toAdEntity(CreateOrUpdateAd, AdEntity)}.<br>
      * - Сохранение обновленного объявления в базе данных {@link AdRepository#save(Object)}.<br>
-     * - Преобразование (маппинг) обновленного объявления в объект возвращаемого класса {@link AdMapper#toAd(AdEntity)}.
+     * - Преобразование (маппинг) обновленного объявления в объект возвращаемого класса {@link AdMapper#toAd(AdEntity)}.<br>
+     * - Удаление документа объявления из кэша после фиксации транзакции {@link AdDocumentCache#evict(int)}.
      * @param id идентификатор объявления в БД
      * @param createOrUpdateAd объект, содержащий необходимую информацию для обновления объявления
      * @return объект {@link Ad}, содержащий необходимую информацию об обновленном объявлении.<br>
@@ -164,13 +256,12 @@ public class AdServiceImpl implements AdService {
     @Override
     @Transactional
     public Ad updateAdvertising(int id, CreateOrUpdateAd createOrUpdateAd) {
-        String userName = userDetails.getUsername();
-        UserEntity userEntity = userRepository.findByEmail(userName)
-                .orElseThrow(() -> new UsernameNotFoundException(USER_NOT_FOUND));
+        SecurityUser user = currentUser.get();
         AdEntity adEntity = adRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(AD_NOT_FOUND));
-        if (userEntity.getRole() == Role.ADMIN || adEntity.getUserEntity().equals(userEntity)){
+        if (user.getRole() == Role.ADMIN || adEntity.getUserEntity().getId() == user.getId()) {
             Ad updatedAd = adMapper.toAd(adRepository.save(adMapper.toAdEntity(createOrUpdateAd, adEntity)));
+            TransactionCallbacks.afterCommit(() -> adDocumentCache.evict(id));
             log.info("Advertisement with id: {} was updated successfully.", id);
             return updatedAd;
         }
@@ -179,90 +270,203 @@ public class AdServiceImpl implements AdService {
 
     /**
      * Получение всех объявлений аутентифицированного пользователя.<br>
-     * - Поиск в базе данных всех объявлений текущего пользователя {@link AdRepository#findAllByUserEntityEmail(String)}.<br>
+     * - Поиск в базе данных всех объявлений текущего пользователя {@link AdRepository#findAllByUserEntityEmail(String)}.
+     * Результат хранится в кэше запросов (регион {@code user-ads}) до изменения таблиц объявлений или пользователей.<br>
      * - Преобразование (маппинг) списка найденных объявлений в объект возвращаемого класса {@link AdMapper#toAds(List)}.
      * @return объект {@link Ads}, содержащий количество объявлений и список объявлений текущего пользователя
      */
     @Override
     @Transactional(readOnly = true)
     public Ads getAllAuthenticatedUserAdvertising() {
-        List<AdEntity> adEntityList = adRepository.findAllByUserEntityEmail(userDetails.getUsername());
+        String userName = currentUser.get().getUsername();
+        List<AdEntity> adEntityList = adRepository.findAllByUserEntityEmail(userName);
         Ads userAds = adMapper.toAds(adEntityList);
-        log.info("Advertisements for user: {} were successfully received.", userDetails.getUsername());
+        log.info("Advertisements for user: {} were successfully received.", userName);
         return userAds;
     }
 
     /**
      * Обновление изображения объявления.<br>
-     * - Поиск объявления в базе данных по идентификатору объявления {@link AdRepository#findById(Object)}.<br>
-     * - Удаление текущего изображения объявления {@link Files#deleteIfExists(Path)}, если в объявлении сохранен путь к изображению в файловой системе.<br>
-     * - Создание пути для загрузки обновленного изображения объявления {@link #createPath(MultipartFile, AdEntity)}.<br>
-     * - Загрузка с сайта и сохранение в файловой системе обновленного изображения объявления {@link FileService#uploadImage(MultipartFile, Path)}.<br>
-     * - Задание необходимых параметров найденному объявлению {@link AdEntity#setUserEntity(UserEntity)}, {@link AdEntity#setImagePath(String)}.<br>
-     * - Сохранение в базе данных объявления с обновленным изображением {@link AdRepository#save(Object)}.
+     * - Запись обновленного изображения во временную папку вне транзакции {@link #stageImage(MultipartFile)}.<br>
+     * - В транзакции: поиск объявления в базе данных по идентификатору объявления {@link AdRepository#findById(Object)}.<br>
+     * - Задание пути к обновленному изображению {@link FileService#commitImage(FileService.StagedImage)}, {@link AdEntity#setImagePath(String)}.<br>
+     * - Сохранение в базе данных объявления с обновленным изображением {@link AdRepository#save(Object)}.<br>
+     * - Удаление прежнего изображения объявления {@link #deleteImage(String)}, если новое изображение сохранено по другому пути.<br>
+     * - После фиксации транзакции: удаление прежнего изображения и его уменьшенных вариантов из кэша изображений {@link #evictImages(int)},
+     * удаление документа объявления из кэша {@link AdDocumentCache#evict(int)}
+     * и запуск создания уменьшенных вариантов нового изображения {@link #generateVariants(int, Path)}.
      * @param id идентификатор объявления в БД
      * @param image загружаемое изображение
      * @return <B>true</B>
      * @throws IOException выбрасывается при ошибках, возникающих во время загрузки изображения
      */
     @Override
-    @Transactional
     public boolean updateAdvertisingImage(int id, MultipartFile image) throws IOException {
-        AdEntity adEntity = adRepository.findById(id).orElseThrow(() -> new EntityNotFoundException(AD_NOT_FOUND));
-        if (adEntity.getImagePath() != null) {
-            Files.deleteIfExists(Path.of(adEntity.getImagePath()));
+        FileService.StagedImage stagedImage = stageImage(image);
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                AdEntity adEntity = adRepository.findById(id).orElseThrow(() -> new EntityNotFoundException(AD_NOT_FOUND));
+                String oldImagePath = adEntity.getImagePath();
+                String imagePath = fileService.commitImage(stagedImage).toString();
+                adEntity.setImagePath(imagePath);
+                adRepository.save(adEntity);
+                if (oldImagePath != null && !oldImagePath.equals(imagePath)) {
+                    deleteImage(oldImagePath);
+                }
+                TransactionCallbacks.afterCommit(() -> {
+                    evictImages(id);
+                    adDocumentCache.evict(id);
+                    generateVariants(id, Path.of(imagePath));
+                });
+            });
+        } finally {
+            fileService.discardImage(stagedImage);
         }
-        adEntity.setImagePath(createPath(image, adEntity).toAbsolutePath().toString());
-        adRepository.save(adEntity);
         log.info("Advertisement image was updated successfully.");
         return true;
     }
 
     /**
-     * Вспомогательный метод. Создание пути для загрузки изображения объявления.<br>
-     * - Создание пути из папки хранения изображений объявлений, идентификатора объявления и расширения изображения.
-     * - Копирование данных изображения. Входной поток получаем из метода {@link Files#newInputStream(Path, OpenOption...)}. Выходной поток получаем из метода {@link HttpServletResponse#getOutputStream()}
+     * Вспомогательный метод. Запись изображения объявления во временную папку.<br>
+     * - Создание пути из папки хранения изображений объявлений, уникального имени и расширения изображения.<br>
+     * - Запись изображения во временную папку {@link FileService#stageImage(MultipartFile, Path)}.
+     * Хранилище может сохранить файл по другому пути.
      * @param image загружаемое изображение
-     * @param adEntity объявление, для которого загружается изображение
-     * @return объект класса {@link Path}
-     * @throws IOException выбрасывается при ошибках, возникающих во время выгрузки изображения
+     * @return подготовленный файл изображения
+     * @throws IOException выбрасывается при ошибках, возникающих во время загрузки изображения
      */
-    private Path createPath(MultipartFile image, AdEntity adEntity) throws IOException {
-        Path filePath = Path.of(adImageDirPath, "Advertisement_" + adEntity.getId() + "."
-                + StringUtils.getFilenameExtension(image.getOriginalFilename()));
-        fileService.uploadImage(image, filePath);
+    private FileService.StagedImage stageImage(MultipartFile image) throws IOException {
+        FileService.StagedImage stagedImage = fileService.stageImage(image, Path.of(adImageDirPath,
+                "Advertisement_" + UUID.randomUUID() + "." + StringUtils.getFilenameExtension(image.getOriginalFilename())));
         log.info("Upload image from database method was invoked.");
-        return filePath;
+        return stagedImage;
+    }
+
+    /**
+     * Вспомогательный метод. Асинхронное создание уменьшенных вариантов изображения объявления
+     * {@link ImageVariantService#generateVariants(Path)}. Пока варианты не созданы, вместо них отдаётся оригинал,
+     * поэтому после создания вариантов кэш изображений объявления сбрасывается.
+     * Если пул потоков обработки изображений переполнен, варианты не создаются.
+     * @param adId идентификатор объявления в БД
+     * @param filePath путь к оригиналу изображения
+     */
+    private void generateVariants(int adId, Path filePath) {
+        try {
+            imageVariantService.generateVariants(filePath).thenRun(() -> evictImages(adId));
+        } catch (TaskRejectedException e) {
+            log.warn("Image variants for advertisement with id: {} were skipped, image executor is busy.", adId);
+        }
+    }
+
+    /**
+     * Вспомогательный метод. Удаление изображения объявления {@link FileService#deleteImage(String)}.
+     * Если файл удаляется с диска (на него больше не ссылаются другие объявления),
+     * после фиксации транзакции удаляются и его уменьшенные варианты {@link ImageVariantService#deleteVariants(Path)}.
+     * @param imagePath путь к изображению, {@code null}, если изображения нет
+     */
+    private void deleteImage(String imagePath) {
+        if (imagePath != null && fileService.deleteImage(imagePath)) {
+            TransactionCallbacks.afterCommit(() -> {
+                try {
+                    imageVariantService.deleteVariants(Path.of(imagePath));
+                } catch (IOException e) {
+                    log.warn("Image variants for {} were not deleted.", imagePath, e);
+                }
+            });
+        }
+    }
+
+    /**
+     * Вспомогательный метод. Удаление из кэша изображений всех вариантов изображения объявления
+     * {@link ImageCache#evict(String)}.
+     * @param adId идентификатор объявления в БД
+     */
+    private void evictImages(int adId) {
+        for (ImageSize size : ImageSize.values()) {
+            imageCache.evict(ImageCache.adKey(adId, size));
+        }
     }
 
     /**
      * Выгрузка изображения объявления из файловой системы.<br>
+     * - Поиск изображения в кэше изображений {@link ImageCache#get(String, ImageCache.ImageLoader)}.
+     * При попадании в кэш следующие шаги не выполняются.<br>
      * - Поиск объявления в базе данных по идентификатору объявления {@link AdRepository#findById(Object)}.<br>
-     * - Копирование данных изображения. Входной поток получаем из метода {@link Files#newInputStream(Path, OpenOption...)}
+     * - Выбор уменьшенного варианта изображения {@link ImageVariantService#variantPath(Path, ImageSize)}.
+     * Если вариант ещё не создан или оригинал меньше заданного размера, отдаётся оригинал.<br>
+     * - Получение ресурса файла изображения для потоковой отдачи {@link FileService#downloadImage(String)}
      * @param adId идентификатор объявления в БД
-     * @return image - массив байт картинки
+     * @param size вариант размера изображения
+     * @return image - ресурс файла картинки или {@code null}, если у объявления нет изображения
      * @throws IOException выбрасывается при ошибках, возникающих во время выгрузки изображения
      */
     @Override
-    public byte[] downloadAdImageFromFS(int adId) throws IOException {
-        AdEntity adEntity = adRepository.findById(adId).orElseThrow(() -> new IllegalArgumentException(AD_NOT_FOUND));
-        byte[] image = fileService.downloadImage(adEntity.getImagePath());
-        log.info("Download advertisement image from database method was invoked.");
-        return image;
+    public Resource downloadAdImageFromFS(int adId, ImageSize size) throws IOException {
+        return imageCache.get(ImageCache.adKey(adId, size), () -> {
+            AdEntity adEntity = adRepository.findById(adId).orElseThrow(() -> new IllegalArgumentException(AD_NOT_FOUND));
+            if (adEntity.getImagePath() == null) {
+                return null;
+            }
+            Path variant = imageVariantService.variantPath(Path.of(adEntity.getImagePath()), size);
+            Resource image = fileService.downloadImage(Files.isReadable(variant)
+                    ? variant.toString() : adEntity.getImagePath());
+            log.info("Download advertisement image from database method was invoked.");
+            return image;
+        });
     }
 
     /**
-     * Поиск объявления по заголовку.<br>
-     * - Поиск объявления в базе данных по заголовку объявления {@link AdRepository#findAllByTitleLike(String)}.<br>
+     * Полнотекстовый поиск объявлений по заголовку и описанию.<br>
+     * - Ограничение размера страницы значениями {@code ads.search.page-size} и {@code ads.search.max-page-size}.<br>
+     * - Поиск идентификаторов объявлений, отсортированных по релевантности
+     * {@link AdSearchService#search(String, int, int, int, int)}.
+     * Запрашивается на один результат больше размера страницы, чтобы определить наличие следующей страницы.<br>
+     * - Загрузка найденных объявлений вместе с авторами {@link AdRepository#findAllByIdIn(java.util.Collection)}
+     * и восстановление порядка релевантности.<br>
      * - Преобразование (маппинг) списка найденных объявлений в объект возвращаемого класса {@link AdMapper#toAds(List)}.
-     * @param title заголовок объявления
-     * @return объект {@link Ads}, содержащий количество объявлений и список объявлений
+     * @param query поисковый запрос
+     * @param minPrice минимальная цена, {@code null} без ограничения
+     * @param maxPrice максимальная цена, {@code null} без ограничения
+     * @param page номер страницы (начиная с 0), {@code null} для первой страницы
+     * @param size размер страницы, {@code null} для размера по умолчанию
+     * @return объект {@link Ads}, содержащий количество объявлений на странице, список объявлений
+     * и номер следующей страницы (<B>null</B>, если страница последняя),
+     * или <B>null</B>, если номер или размер страницы отрицательные либо смещение превышает {@code ads.search.max-offset}
      */
     @Override
     @Transactional(readOnly = true)
-    public Ads findByTitle(String title) {
-        Ads foundAds = adMapper.toAds(adRepository.findAllByTitleLike(title));
-        log.info("Advertisement/s with title: {} was/were successfully found.", title);
+    public Ads searchAds(String query, Integer minPrice, Integer maxPrice, Integer page, Integer size) {
+        if ((page != null && page < 0) || (size != null && size < 0)) {
+            log.warn("Negative page: {} or size: {} for query: {}.", page, size, query);
+            return null;
+        }
+        int pageSize = (size == null || size == 0) ? searchPageSize : Math.min(size, searchMaxPageSize);
+        int pageNumber = page == null ? 0 : page;
+        long offset = (long) pageNumber * pageSize;
+        if (offset > searchMaxOffset) {
+            log.warn("Search offset: {} for query: {} exceeds the limit: {}.", offset, query, searchMaxOffset);
+            return null;
+        }
+        List<Integer> ids = adSearchService.search(query,
+                minPrice == null ? 0 : minPrice,
+                maxPrice == null ? Integer.MAX_VALUE : maxPrice,
+                (int) offset, pageSize + 1);
+        boolean hasNext = ids.size() > pageSize;
+        if (hasNext) {
+            ids = ids.subList(0, pageSize);
+        }
+        Map<Integer, Integer> rank = new HashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            rank.put(ids.get(i), i);
+        }
+        List<AdEntity> adEntityList = ids.isEmpty() ? Collections.emptyList() : adRepository.findAllByIdIn(ids).stream()
+                .sorted(Comparator.comparing(adEntity -> rank.get(adEntity.getId())))
+                .collect(Collectors.toList());
+        Ads foundAds = adMapper.toAds(adEntityList);
+        if (hasNext) {
+            foundAds.setNext(pageNumber + 1);
+        }
+        log.info("Advertisement/s for query: {} was/were successfully found.", query);
         return foundAds;
     }
 
@@ -1,17 +1,24 @@
 package ru.skypro.homework.service.impl;
 
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtException;
 import org.springframework.security.provisioning.UserDetailsManager;
 import org.springframework.stereotype.Service;
+import ru.skypro.homework.dto.account.AuthTokens;
 import ru.skypro.homework.dto.account.Register;
 import ru.skypro.homework.dto.account.Role;
+import ru.skypro.homework.model.UserEntity;
 import ru.skypro.homework.repository.UserRepository;
+import ru.skypro.homework.security.PasswordHasher;
+import ru.skypro.homework.security.SecurityUserDto;
+import ru.skypro.homework.security.TokenService;
 import ru.skypro.homework.service.AuthService;
+import ru.skypro.homework.service.SecurityUserMapper;
 import ru.skypro.homework.service.UserMapper;
 
-import java.time.LocalDate;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 import static ru.skypro.homework.dto.account.Role.USER;
 
@@ -19,41 +26,75 @@ import static ru.skypro.homework.dto.account.Role.USER;
 @Service
 public class AuthServiceImpl implements AuthService {
     private final UserDetailsManager manager;
-    private final PasswordEncoder encoder;
+    private final PasswordHasher passwordHasher;
     private final UserMapper userMapper;
     private final UserRepository userRepository;
+    private final SecurityUserMapper securityUserMapper;
+    private final TokenService tokenService;
 
-    public AuthServiceImpl(UserDetailsManager manager, PasswordEncoder encoder,
-                           UserMapper userMapper, UserRepository userRepository) {
+    public AuthServiceImpl(UserDetailsManager manager, PasswordHasher passwordHasher,
+                           UserMapper userMapper, UserRepository userRepository,
+                           SecurityUserMapper securityUserMapper, TokenService tokenService) {
         this.manager = manager;
-        this.encoder = encoder;
+        this.passwordHasher = passwordHasher;
         this.userMapper = userMapper;
         this.userRepository = userRepository;
+        this.securityUserMapper = securityUserMapper;
+        this.tokenService = tokenService;
     }
 
     /*
-     * Проверяет правильность введенных учетных данных при попытке входа в систему.
+     * Проверяет правильность введенных учетных данных при попытке входа в систему
+     * и выпускает токены доступа и обновления.
+     * Пароль проверяется в пуле потоков {@link PasswordHasher}, пользователь загружается в потоке запроса.
      * @param userName Логин пользователя.
      * @param password Пароль пользователя.
-     * @return <B>true</B>   если введенные учетные данные действительны, иначе <B>true</B>.
-     * @see UserDetailsManager#userExists(String)
-     * @see UserDetailsManager#loadUserByUsername(String)
-     * @see PasswordEncoder#matches(CharSequence, String)
-     * @see UserDetails#getPassword()
+     * @return токены {@link AuthTokens}, если введенные учетные данные действительны, иначе <B>null</B>.
+     * @see UserRepository#findByEmail(String)
+     * @see PasswordHasher#matches(CharSequence, String)
+     * @see TokenService#issue(ru.skypro.homework.security.SecurityUserDto, String)
+     */
+    @Override
+    public CompletableFuture<AuthTokens> login(String userName, String password) {
+        Optional<UserEntity> userEntity = userRepository.findByEmail(userName);
+        if (userEntity.isEmpty()) {
+            log.info("User does not exist.");
+            return CompletableFuture.completedFuture(null);
+        }
+        log.info("User with username was successfully loaded.");
+        SecurityUserDto securityUserDto = securityUserMapper.toSecurityUserDto(userEntity.get());
+        String encodedPassword = userEntity.get().getPassword();
+        return passwordHasher.matches(password, encodedPassword)
+                .thenApply(matches -> matches ? tokenService.issue(securityUserDto, encodedPassword) : null);
+    }
+
+    /*
+     * Выпускает новую пару токенов по действительному токену обновления.
+     * Пользователь загружается из БД, чтобы учесть изменения роли и смену пароля.
+     * @param refreshToken Токен обновления.
+     * @return токены {@link AuthTokens}, если токен обновления действителен, иначе <B>null</B>.
+     * @see TokenService#decodeRefreshToken(String)
+     * @see TokenService#matchesPassword(Jwt, String)
      */
     @Override
-    public boolean login(String userName, String password) {
-        if (!manager.userExists(userName)) {
-            log.info("User does not exist. " + LocalDate.now());
-            return false;
+    public AuthTokens refresh(String refreshToken) {
+        Jwt jwt;
+        try {
+            jwt = tokenService.decodeRefreshToken(refreshToken);
+        } catch (JwtException e) {
+            log.info("Refresh token was rejected: {}", e.getMessage());
+            return null;
         }
-        UserDetails userDetails = manager.loadUserByUsername(userName);
-        log.info("User with username was successfully loaded. " + LocalDate.now());
-        return encoder.matches(password, userDetails.getPassword());
+        return userRepository.findByEmail(jwt.getSubject())
+                .filter(userEntity -> tokenService.matchesPassword(jwt, userEntity.getPassword()))
+                .map(userEntity -> tokenService.issue(securityUserMapper.toSecurityUserDto(userEntity),
+                        userEntity.getPassword()))
+                .orElse(null);
     }
 
     /*
      * Регистрирует нового пользователя в системе.
+     * Пароль хешируется в пуле потоков {@link PasswordHasher}, пользователь сохраняется после хеширования.
      * @param register Объект, содержащий информацию о регистрации пользователя.
      * @return <B>true</B>  если регистрация прошла успешно, иначе <B>true</B> .
      * @see UserDetailsManager#userExists(String)
@@ -61,18 +102,21 @@ public class AuthServiceImpl implements AuthService {
      * @see Register#getRole()
      * @see Register#setRole(Role)
      * @see UserRepository#save(Object)
-     * @see UserMapper#toUserEntity(Register)
+     * @see PasswordHasher#encode(CharSequence)
+     * @see UserMapper#toUserEntity(Register, String)
      */
     @Override
-    public boolean register(Register register) {
+    public CompletableFuture<Boolean> register(Register register) {
         if (manager.userExists(register.getUsername())) {
-            log.info("User already exists. " + LocalDate.now());
-            return false;
+            log.info("User already exists.");
+            return CompletableFuture.completedFuture(false);
         }
         Role role = (register.getRole() == null) ? USER : register.getRole();
         register.setRole(role);
-        userRepository.save(userMapper.toUserEntity(register));
-        log.info("User was successfully registered. " + LocalDate.now());
-        return true;
+        return passwordHasher.encode(register.getPassword()).thenApply(encodedPassword -> {
+            userRepository.save(userMapper.toUserEntity(register, encodedPassword));
+            log.info("User was successfully registered.");
+            return true;
+        });
     }
 }
@@ -5,6 +5,7 @@ import ru.skypro.homework.dto.comment.Comment;
 import ru.skypro.homework.dto.comment.Comments;
 import ru.skypro.homework.dto.comment.CreateOrUpdateComment;
 import ru.skypro.homework.model.CommentEntity;
+import ru.skypro.homework.repository.CommentView;
 import ru.skypro.homework.service.CommentMapper;
 
 import java.time.Instant;
@@ -41,4 +42,26 @@ public class CommentMapperImpl implements CommentMapper {
                 .collect(Collectors.toList()));
         return comments;
     }
+
+    @Override
+    public Comment toComment(CommentView commentView) {
+        Comment comment = new Comment();
+        comment.setAuthor(commentView.getAuthorId());
+        comment.setAuthorImage("/users/image/" + commentView.getAuthorId());
+        comment.setAuthorFirstName(commentView.getAuthorFirstName());
+        comment.setCreatedAt(commentView.getCreatedAt());
+        comment.setPk(commentView.getId());
+        comment.setText(commentView.getText());
+        return comment;
+    }
+
+    @Override
+    public Comments toCommentsFromViews(List<CommentView> commentViewList) {
+        Comments comments = new Comments();
+        comments.setCount(commentViewList.size());
+        comments.setResults(commentViewList.stream()
+                .map(this::toComment)
+                .collect(Collectors.toList()));
+        return comments;
+    }
 }
@@ -1,7 +1,10 @@
 package ru.skypro.homework.service.impl;
 
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -14,11 +17,15 @@ import ru.skypro.homework.model.CommentEntity;
 import ru.skypro.homework.model.UserEntity;
 import ru.skypro.homework.repository.AdRepository;
 import ru.skypro.homework.repository.CommentRepository;
+import ru.skypro.homework.repository.CommentView;
 import ru.skypro.homework.repository.UserRepository;
+import ru.skypro.homework.security.CurrentUser;
+import ru.skypro.homework.security.SecurityUser;
 import ru.skypro.homework.service.CommentMapper;
 import ru.skypro.homework.service.CommentService;
+import ru.skypro.homework.service.CounterService;
 
-import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 
 @Slf4j
@@ -28,46 +35,69 @@ public class CommentServiceImpl implements CommentService {
     private final CommentMapper commentMapper;
     private final AdRepository adRepository;
     private final UserRepository userRepository;
-    private final UserDetails userDetails;
+    private final CurrentUser currentUser;
+    private final CounterService counterService;
 
-    private static final String USER_NOT_FOUND = "User not found";
+    @Value("${comments.page-size}")
+    private int commentsPageSize;
+    @Value("${comments.max-page-size}")
+    private int commentsMaxPageSize;
+    @Value("${comments.batch.max-size}")
+    private int commentsBatchMaxSize;
 
     public CommentServiceImpl(CommentRepository commentRepository,
                               CommentMapper commentMapper,
                               AdRepository adRepository,
                               UserRepository userRepository,
-                              UserDetails userDetails) {
+                              CurrentUser currentUser,
+                              CounterService counterService) {
         this.commentRepository = commentRepository;
         this.commentMapper = commentMapper;
         this.adRepository = adRepository;
         this.userRepository = userRepository;
-        this.userDetails = userDetails;
+        this.currentUser = currentUser;
+        this.counterService = counterService;
     }
 
     /**
-     * Получение всех комментариев из БД по id объявления.<br>
-     * - Поиск в БД всех комментариев по id объявления {@link CommentRepository#findCommentEntitiesByAdEntity_Id(Integer)}.<br>
-     * - Маппинг списка найденных комментариев в объект класса {@link CommentMapper#toComments(List)}.
+     * Получение страницы комментариев из БД по id объявления.<br>
+     * - Ограничение размера страницы значениями {@code comments.page-size} и {@code comments.max-page-size}.<br>
+     * - Поиск в БД комментариев вместе с данными автора одним запросом
+     * {@link CommentRepository#findCommentViewsByAdId(int, Pageable)}.
+     * Возвращаемый {@link Slice} определяет наличие следующей страницы без отдельного запроса количества.<br>
+     * - Маппинг списка найденных комментариев в объект класса {@link CommentMapper#toCommentsFromViews(List)}.
      *
-     * @param id идентификатор объявления в БД
+     * @param id   идентификатор объявления в БД
+     * @param page номер страницы (начиная с 0), {@code null} для первой страницы
+     * @param size размер страницы, {@code null} для размера по умолчанию
      * @return объект {@link Comments}, содержащий список комментариев к данному объявлению
+     * и номер следующей страницы (<B>null</B>, если страница последняя)
      */
     @Override
     @Transactional(readOnly = true)
-    public Comments getComments(Integer id) {
-        List<CommentEntity> commentEntityList = commentRepository
-                .findCommentEntitiesByAdEntity_Id(id);
-        log.info("List of comments was received successfully. " + LocalDate.now());
-        return commentMapper.toComments(commentEntityList);
+    public Comments getComments(Integer id, Integer page, Integer size) {
+        int pageSize = (size == null || size < 1) ? commentsPageSize : Math.min(size, commentsMaxPageSize);
+        int pageNumber = (page == null || page < 0) ? 0 : page;
+        Slice<CommentView> commentViews = commentRepository.findCommentViewsByAdId(id,
+                PageRequest.of(pageNumber, pageSize));
+        Comments comments = commentMapper.toCommentsFromViews(commentViews.getContent());
+        if (commentViews.hasNext()) {
+            comments.setNext(pageNumber + 1);
+        }
+        log.info("Page {} of comments for advertisement with id: {} was received successfully.", pageNumber, id);
+        return comments;
     }
 
     /**
      * Создание в БД комментария к выбранному объявлению.<br>
      * - Поиск объявления в БД по id {@link AdRepository#findById(Object)}.<br>
      * - Создание комментария  {@link CommentMapper#toCommentEntity(CreateOrUpdateComment, CommentEntity)}.<br>
-     * - Поиск пользователя в БД по данным аутентификации {@link UserDetails#getUsername()}, {@link UserRepository#findByEmail(String)}.<br>
+     * - Получение текущего пользователя по идентификатору из данных аутентификации {@link CurrentUser#get()},
+     * {@link UserRepository#findById(Object)}. Пользователь обычно читается из кэша второго уровня,
+     * а его имя используется при маппинге комментария без дополнительного запроса.<br>
      * - Инициализация  объявлений и пользователей созданному комментарию {@link CommentEntity#setAdEntity(AdEntity)}, {@link CommentEntity#setUserEntity(UserEntity)}.<br>
      * - Сохранение созданного комментария в БД {@link CommentRepository#save(Object)}.<br>
+     * - Увеличение счётчика комментариев объявления {@link CounterService#changeCommentCount(int, int)}.<br>
      * - Маппинг созданного комментария в объект  класса {@link CommentMapper#toCommentEntity(CreateOrUpdateComment, CommentEntity)}.
      *
      * @param id                    идентификатор объявления в БД
@@ -77,22 +107,67 @@ public class CommentServiceImpl implements CommentService {
     @Override
     @Transactional
     public Comment addComment(Integer id, CreateOrUpdateComment createOrUpdateComment) {
-        UserEntity userEntity = userRepository.findByEmail(userDetails.getUsername())
-                .orElseThrow(() -> new UsernameNotFoundException(USER_NOT_FOUND));
+        UserEntity userEntity = userRepository.findById(currentUser.get().getId())
+                .orElseThrow(() -> new UsernameNotFoundException("User not found"));
         AdEntity adEntity = adRepository.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("Advertisement not found"));
         CommentEntity commentEntity = commentMapper.toCommentEntity(createOrUpdateComment, new CommentEntity());
         commentEntity.setUserEntity(userEntity);
         commentEntity.setAdEntity(adEntity);
-        log.info("A comment was created in database. " + LocalDate.now());
-        return commentMapper.toComment(commentRepository.save(commentEntity));
+        Comment comment = commentMapper.toComment(commentRepository.save(commentEntity));
+        counterService.changeCommentCount(id, 1);
+        log.info("A comment was created in database.");
+        return comment;
+    }
+
+    /**
+     * Создание в БД нескольких комментариев к выбранному объявлению.<br>
+     * - Проверка размера пакета, не более {@code comments.batch.max-size} комментариев.<br>
+     * - Получение текущего пользователя {@link UserRepository#findById(Object)} и поиск объявления в БД
+     * один раз на весь пакет {@link AdRepository#findById(Object)}.<br>
+     * - Создание комментариев {@link CommentMapper#toCommentEntity(CreateOrUpdateComment, CommentEntity)}.<br>
+     * - Сохранение всех комментариев {@link CommentRepository#saveAll(Iterable)}. Идентификаторы берутся из последовательности,
+     * поэтому вставки выполняются пакетами JDBC размером {@code hibernate.jdbc.batch_size}.<br>
+     * - Увеличение счётчика комментариев объявления на размер пакета одним запросом {@link CounterService#changeCommentCount(int, int)}.<br>
+     * - Маппинг созданных комментариев в объект класса {@link CommentMapper#toComments(List)}.
+     *
+     * @param id                     идентификатор объявления в БД
+     * @param createOrUpdateComments список объектов, содержащих тексты комментариев
+     * @return объект {@link Comments}, содержащий созданные комментарии,
+     * или <B>null</B>, если список пуст или превышает допустимый размер пакета
+     */
+    @Override
+    @Transactional
+    public Comments addComments(Integer id, List<CreateOrUpdateComment> createOrUpdateComments) {
+        if (createOrUpdateComments == null || createOrUpdateComments.isEmpty()
+                || createOrUpdateComments.size() > commentsBatchMaxSize) {
+            log.info("Batch of comments was rejected. Batch size must be from 1 to {}.", commentsBatchMaxSize);
+            return null;
+        }
+        UserEntity userEntity = userRepository.findById(currentUser.get().getId())
+                .orElseThrow(() -> new UsernameNotFoundException("User not found"));
+        AdEntity adEntity = adRepository.findById(id)
+                .orElseThrow(() -> new IllegalArgumentException("Advertisement not found"));
+        List<CommentEntity> commentEntityList = new ArrayList<>(createOrUpdateComments.size());
+        for (CreateOrUpdateComment createOrUpdateComment : createOrUpdateComments) {
+            CommentEntity commentEntity = commentMapper.toCommentEntity(createOrUpdateComment, new CommentEntity());
+            commentEntity.setUserEntity(userEntity);
+            commentEntity.setAdEntity(adEntity);
+            commentEntityList.add(commentEntity);
+        }
+        Comments comments = commentMapper.toComments(commentRepository.saveAll(commentEntityList));
+        counterService.changeCommentCount(id, commentEntityList.size());
+        log.info("{} comments were created in database for advertisement with id: {}.", comments.getCount(), id);
+        return comments;
     }
 
     /**
      * Удаления из БД комментария выбранного объявления.<br>
-     * - Поиск пользователя в БД по данным аутентификации {@link UserDetails#getUsername()}, {@link UserRepository#findByEmail(String)}.<br>
-     * - Поиск комментария в БД по идентификатору комментария и идентификатору объявления {@link CommentRepository#findByIdAndAdEntity_Id(int, int)}.<br>
-     * - Удаление комментария из БД {@link CommentRepository#delete(Object)}.
+     * - Получение идентификатора и роли текущего пользователя из данных аутентификации {@link CurrentUser#get()}.<br>
+     * - Поиск комментария в БД по идентификатору комментария и идентификатору объявления {@link CommentRepository#findByIdAndAdEntity_Id(int, int)}.
+     * Права проверяются по идентификатору автора без загрузки пользователя.<br>
+     * - Удаление комментария из БД {@link CommentRepository#delete(Object)}.<br>
+     * - Уменьшение счётчика комментариев объявления {@link CounterService#changeCommentCount(int, int)}.
      *
      * @param adId      идентификатор объявления в БД
      * @param commentId идентификатор комментария в БД
@@ -102,25 +177,25 @@ public class CommentServiceImpl implements CommentService {
     @Override
     @Transactional
     public boolean deleteComment(Integer adId, Integer commentId) {
-        String userName = userDetails.getUsername();
-        UserEntity userEntity = userRepository.findByEmail(userName)
-                .orElseThrow(() -> new UsernameNotFoundException(USER_NOT_FOUND));
+        SecurityUser user = currentUser.get();
         CommentEntity commentEntity = commentRepository.findByIdAndAdEntity_Id(commentId, adId)
                 .orElseThrow(() -> new IllegalArgumentException("Comment not found"));
-        if (userEntity.getRole() == Role.ADMIN || commentEntity.getUserEntity().equals(userEntity)) {
+        if (user.getRole() == Role.ADMIN || commentEntity.getUserEntity().getId() == user.getId()) {
             commentRepository.delete(commentEntity);
-            log.info("Comment was removed from database. " + LocalDate.now());
+            counterService.changeCommentCount(adId, -1);
+            log.info("Comment was removed from database.");
             return true;
         }
         log.info("It is not possible to delete comment from database. " +
-                "Maybe there is no comment with this identification number in database." + LocalDate.now());
+                "Maybe there is no comment with this identification number in database.");
         return false;
     }
 
     /**
      * Обновление комментария выбранного объявления.<br>
-     * - Поиск пользователя в БД по данным аутентификации {@link UserDetails#getUsername()}, {@link UserRepository#findByEmail(String)}.<br>
-     * - Поиск комментария в БД по идентификатору комментария и идентификатору объявления {@link CommentRepository#findByIdAndAdEntity_Id(int, int)}.<br>
+     * - Получение идентификатора и роли текущего пользователя из данных аутентификации {@link CurrentUser#get()}.<br>
+     * - Поиск комментария в БД по идентификатору комментария и идентификатору объявления {@link CommentRepository#findByIdAndAdEntity_Id(int, int)}.
+     * Права проверяются по идентификатору автора без загрузки пользователя.<br>
      * - Маппинг найденного комментария и входных данных в обновленный комментарий {@link CommentMapper#toCommentEntity(CreateOrUpdateComment, CommentEntity)}.<br>
      * - Сохранение обновленного комментария в БД {@link CommentRepository#save(Object)}.<br>
      * - Маппинг обновленного комментария в объект возвращаемого класса {@link CommentMapper#toCommentEntity(CreateOrUpdateComment, CommentEntity)}.
@@ -134,17 +209,15 @@ public class CommentServiceImpl implements CommentService {
     @Override
     @Transactional
     public Comment updateComment(Integer adId, Integer commentId, CreateOrUpdateComment createOrUpdateComment) {
-        String userName = userDetails.getUsername();
-        UserEntity userEntity = userRepository.findByEmail(userName)
-                .orElseThrow(() -> new UsernameNotFoundException(USER_NOT_FOUND));
+        SecurityUser user = currentUser.get();
         CommentEntity commentEntity = commentRepository.findByIdAndAdEntity_Id(commentId, adId)
                 .orElseThrow(() -> new IllegalArgumentException("Comment not found"));
-        if (userEntity.getRole() == Role.ADMIN || commentEntity.getUserEntity().equals(userEntity)) {
-            log.info("Comment successfully updated." + LocalDate.now());
+        if (user.getRole() == Role.ADMIN || commentEntity.getUserEntity().getId() == user.getId()) {
+            log.info("Comment successfully updated.");
             return commentMapper.toComment(commentRepository.save(
                     commentMapper.toCommentEntity(createOrUpdateComment, commentEntity)));
         }
-        log.info("It is not possible to update a comment in database. " + LocalDate.now());
+        log.info("It is not possible to update a comment in database.");
         return null;
     }
 }
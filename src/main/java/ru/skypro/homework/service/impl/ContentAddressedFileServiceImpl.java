@@ -0,0 +1,182 @@
+package ru.skypro.homework.service.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.dialect.H2Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+import org.springframework.web.multipart.MultipartFile;
+import ru.skypro.homework.repository.ImageRefRepository;
+
+import javax.persistence.EntityManagerFactory;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+
+/**
+ * Контентно-адресуемое хранилище файлов ({@code images.storage.mode=content}).<br>
+ * - Имя файла - SHA-256 содержимого и расширение, например {@code images/3f/a1/3fa1...c9.png}.
+ * Файлы распределяются по подпапкам по первым двум байтам хэша.<br>
+ * - Одинаковые картинки хранятся в одном файле, число ссылок на файл хранится в таблице {@code image_refs}.<br>
+ * - Файл удаляется с диска, когда на него не остаётся ссылок. Проверка числа ссылок, перемещение и удаление файла
+ * выполняются под блокировкой строки счётчика.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "images.storage.mode", havingValue = "content")
+public class ContentAddressedFileServiceImpl extends AbstractFileService {
+    private final ImageRefRepository imageRefRepository;
+    private final Path storageDir;
+    private final boolean h2;
+    private final TransactionTemplate releaseTransactionTemplate;
+
+    public ContentAddressedFileServiceImpl(ImageRefRepository imageRefRepository,
+                                           EntityManagerFactory entityManagerFactory,
+                                           PlatformTransactionManager transactionManager,
+                                           @Value("${images.storage.content-dir}") String storageDir,
+                                           @Value("${images.storage.staging-dir}") String stagingDir,
+                                           @Value("${images.storage.staging-ttl}") Duration stagingTtl) {
+        super(stagingDir, stagingTtl);
+        this.imageRefRepository = imageRefRepository;
+        this.storageDir = Path.of(storageDir).toAbsolutePath();
+        this.h2 = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices().getDialect() instanceof H2Dialect;
+        this.releaseTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.releaseTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Запись загружаемого файла картинки во временную папку с вычислением SHA-256
+     * при чтении входного потока {@link MultipartFile#getInputStream()}
+     * @param image файл картинки
+     * @param filePath желаемый путь к файлу, используется только его расширение
+     * @return подготовленный файл с путём в хранилище
+     * @throws IOException ошибка ввода - вывода
+     */
+    @Override
+    public StagedImage stageImage(MultipartFile image, Path filePath) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        Path tempFile = createTempFile();
+        try (InputStream is = new DigestInputStream(image.getInputStream(), digest);
+             OutputStream os = Files.newOutputStream(tempFile)) {
+            is.transferTo(os);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+        String hash = toHex(digest.digest());
+        String extension = StringUtils.getFilenameExtension(filePath.getFileName().toString());
+        String name = extension == null ? hash : hash + "." + extension.toLowerCase();
+        Path target = storageDir.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(name);
+        return new StagedImage(tempFile, target, name);
+    }
+
+    /**
+     * Сохранение ссылки на подготовленный файл.<br>
+     * - Число ссылок увеличивается одним запросом {@link #changeRefCount(String, int)}:
+     * строка счётчика создаётся или обновляется атомарно и остаётся заблокированной до конца транзакции,
+     * поэтому одновременная загрузка одинаковых картинок не приводит к нарушению первичного ключа,
+     * а {@link #release(String, Path)} не удалит файл, пока транзакция не завершится.<br>
+     * - Если ссылка первая или файла нет на диске, файл перемещается в хранилище до фиксации транзакции,
+     * заменяя файл, который ещё не успело удалить {@link #deleteImage(String)}.
+     * Если транзакция откатится, перемещённый файл освобождается {@link #release(String, Path)}.<br>
+     * - Иначе временный файл не перемещается.
+     * @param stagedImage подготовленный файл
+     * @return путь к файлу в хранилище
+     */
+    @Override
+    @Transactional
+    public Path commitImage(StagedImage stagedImage) {
+        String name = stagedImage.getName();
+        Path target = stagedImage.getTarget();
+        changeRefCount(name, 1);
+        if (imageRefRepository.findRefCount(name) > 1 && Files.exists(target)) {
+            log.info("Image {} already stored, upload skipped.", name);
+            return target;
+        }
+        moveIntoPlace(stagedImage);
+        TransactionCallbacks.afterRollback(() -> release(name, target));
+        return target;
+    }
+
+    /**
+     * Удаление ссылки на файл картинки.<br>
+     * - Уменьшение числа ссылок {@link ImageRefRepository#decrementRefCount(String)}.<br>
+     * - Если ссылок не осталось, после фиксации транзакции файл освобождается {@link #release(String, Path)}.<br>
+     * - Файлы, сохранённые до включения хранилища, освобождаются так же: строка счётчика для них создаётся при освобождении.
+     * @param imagePath путь к файлу, полученный из {@link #commitImage(StagedImage)}
+     * @return {@code true}, если файл будет удалён с диска
+     */
+    @Override
+    @Transactional
+    public boolean deleteImage(String imagePath) {
+        Path path = Path.of(imagePath);
+        String name = path.getFileName().toString();
+        if (imageRefRepository.decrementRefCount(name) > 0 && imageRefRepository.findRefCount(name) > 0) {
+            return false;
+        }
+        log.info("Image {} has no references and will be deleted.", name);
+        TransactionCallbacks.afterCommit(() -> release(name, path));
+        return true;
+    }
+
+    /**
+     * Удаление файла, на который не осталось ссылок. Выполняется в новой транзакции:<br>
+     * - Строка счётчика блокируется запросом {@link #changeRefCount(String, int)} с нулевым изменением,
+     * поэтому проверка числа ссылок и удаление файла не пересекаются с {@link #commitImage(StagedImage)}.<br>
+     * - Если картинку за это время загрузили заново, файл остаётся на диске.<br>
+     * - Иначе файл и счётчик удаляются {@link ImageRefRepository#deleteUnreferenced(String)}.
+     * @param name имя файла в хранилище
+     * @param path путь к файлу
+     */
+    private void release(String name, Path path) {
+        releaseTransactionTemplate.executeWithoutResult(status -> {
+            changeRefCount(name, 0);
+            if (imageRefRepository.findRefCount(name) > 0) {
+                log.info("Image {} was uploaded again, deletion skipped.", name);
+                return;
+            }
+            deleteFile(path);
+            imageRefRepository.deleteUnreferenced(name);
+        });
+    }
+
+    /**
+     * Изменение числа ссылок с блокировкой строки счётчика {@link ImageRefRepository#upsertRefCount(String, int)}
+     * ({@link ImageRefRepository#mergeRefCount(String, int)} на H2). Если строки нет, она создаётся
+     * @param name имя файла в хранилище
+     * @param delta изменение числа ссылок
+     */
+    private void changeRefCount(String name, int delta) {
+        if (h2) {
+            imageRefRepository.mergeRefCount(name, delta);
+        } else {
+            imageRefRepository.upsertRefCount(name, delta);
+        }
+    }
+
+    private String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder();
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+}
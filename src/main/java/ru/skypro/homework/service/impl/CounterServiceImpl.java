@@ -0,0 +1,109 @@
+package ru.skypro.homework.service.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.skypro.homework.model.AdEntity;
+import ru.skypro.homework.model.UserEntity;
+import ru.skypro.homework.repository.AdRepository;
+import ru.skypro.homework.repository.UserRepository;
+import ru.skypro.homework.service.CounterService;
+
+import javax.persistence.Cache;
+import javax.persistence.EntityManagerFactory;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Поддержка денормализованных счётчиков {@code ads.comment_count} и {@code users.ad_count}.<br>
+ * - Счётчики изменяются одним запросом {@code UPDATE ... SET count = count + delta}, поэтому параллельные
+ * изменения не теряются. Сущности не записывают счётчики при сохранении.<br>
+ * - После фиксации транзакции изменённые записи удаляются из кэша второго уровня и кэша документов объявлений.<br>
+ * - Расхождения, возникшие при изменении данных в обход сервисов, исправляются периодическим пересчётом {@link #reconcile()}
+ * под блокировкой пересчитываемых записей.
+ */
+@Slf4j
+@Service
+public class CounterServiceImpl implements CounterService {
+    private final AdRepository adRepository;
+    private final UserRepository userRepository;
+    private final AdDocumentCache adDocumentCache;
+    private final Cache secondLevelCache;
+
+    public CounterServiceImpl(AdRepository adRepository,
+                              UserRepository userRepository,
+                              AdDocumentCache adDocumentCache,
+                              EntityManagerFactory entityManagerFactory) {
+        this.adRepository = adRepository;
+        this.userRepository = userRepository;
+        this.adDocumentCache = adDocumentCache;
+        this.secondLevelCache = entityManagerFactory.getCache();
+    }
+
+    /**
+     * Изменение счётчика комментариев объявления {@link AdRepository#changeCommentCount(int, int)}.
+     * После фиксации транзакции объявление удаляется из кэша второго уровня и кэша документов {@link AdDocumentCache#evict(int)}
+     * @param adId идентификатор объявления в БД
+     * @param delta изменение счётчика
+     */
+    @Override
+    @Transactional
+    public void changeCommentCount(int adId, int delta) {
+        adRepository.changeCommentCount(adId, delta);
+        TransactionCallbacks.afterCommit(() -> {
+            secondLevelCache.evict(AdEntity.class, adId);
+            adDocumentCache.evict(adId);
+        });
+    }
+
+    /**
+     * Изменение счётчика объявлений пользователя {@link UserRepository#changeAdCount(int, int)}.
+     * После фиксации транзакции пользователь удаляется из кэша второго уровня
+     * @param userId идентификатор пользователя в БД
+     * @param delta изменение счётчика
+     */
+    @Override
+    @Transactional
+    public void changeAdCount(int userId, int delta) {
+        userRepository.changeAdCount(userId, delta);
+        TransactionCallbacks.afterCommit(() -> secondLevelCache.evict(UserEntity.class, userId));
+    }
+
+    /**
+     * Пересчёт счётчиков по фактическому количеству комментариев и объявлений.<br>
+     * - Поиск записей с расхождением {@link AdRepository#findCommentCountDrift()}, {@link UserRepository#findAdCountDrift()}.<br>
+     * - Блокировка найденных записей {@code SELECT ... FOR UPDATE} {@link AdRepository#lockCounters(Collection)},
+     * {@link UserRepository#lockCounters(Collection)}. Изменение счётчика {@link #changeCommentCount(int, int)}
+     * и {@link #changeAdCount(int, int)} ждёт снятия блокировки, а пересчёт после её получения видит все
+     * зафиксированные изменения, поэтому параллельное увеличение счётчика не перезаписывается.<br>
+     * - Пересчёт заблокированных записей {@link AdRepository#reconcileCommentCounts(Collection)},
+     * {@link UserRepository#reconcileAdCounts(Collection)}.<br>
+     * Выполняется с интервалом {@code counters.reconciliation-interval}. Исправленные записи удаляются
+     * из кэша второго уровня и кэша документов объявлений после фиксации транзакции
+     * @return количество исправленных записей
+     */
+    @Override
+    @Transactional
+    @Scheduled(initialDelayString = "${counters.reconciliation-interval}",
+            fixedDelayString = "${counters.reconciliation-interval}")
+    public int reconcile() {
+        List<Integer> adIds = adRepository.findCommentCountDrift();
+        List<Integer> userIds = userRepository.findAdCountDrift();
+        int ads = adIds.isEmpty() ? 0 : adRepository.reconcileCommentCounts(adRepository.lockCounters(adIds));
+        int users = userIds.isEmpty() ? 0 : userRepository.reconcileAdCounts(userRepository.lockCounters(userIds));
+        if (ads > 0 || users > 0) {
+            log.warn("Counters drift was fixed for {} advertisements and {} users.", ads, users);
+            TransactionCallbacks.afterCommit(() -> {
+                for (Integer adId : adIds) {
+                    secondLevelCache.evict(AdEntity.class, adId);
+                    adDocumentCache.evict(adId);
+                }
+                for (Integer userId : userIds) {
+                    secondLevelCache.evict(UserEntity.class, userId);
+                }
+            });
+        }
+        return ads + users;
+    }
+}
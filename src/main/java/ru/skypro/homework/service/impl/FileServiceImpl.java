@@ -1,64 +1,62 @@
 package ru.skypro.homework.service.impl;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
-import ru.skypro.homework.service.FileService;
 
-import java.io.*;
-import java.net.URI;
-import java.nio.file.Files;
-import java.nio.file.OpenOption;
+import java.io.IOException;
 import java.nio.file.Path;
-import java.nio.file.attribute.FileAttribute;
-
-import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import java.time.Duration;
 
 /**
- * Класс для работы с файлами
+ * Класс для работы с файлами. Файлы хранятся по пути, заданному вызывающим методом
+ * ({@code images.storage.mode=path})
  */
 @Slf4j
 @Service
-public class FileServiceImpl implements FileService {
+@ConditionalOnProperty(name = "images.storage.mode", havingValue = "path", matchIfMissing = true)
+public class FileServiceImpl extends AbstractFileService {
+
+    public FileServiceImpl(@Value("${images.storage.staging-dir}") String stagingDir,
+                           @Value("${images.storage.staging-ttl}") Duration stagingTtl) {
+        super(stagingDir, stagingTtl);
+    }
+
     /**
-     * Копирование файла картинки. Входной поток получаем
-     * из метода {@link Files#newInputStream(Path, OpenOption...)}
-     * @param imagePath путь и название файла с картинкой
-     * @return image - массив байт картинки
+     * Запись загружаемого файла картинки во временную папку {@link #stageToTempFile(MultipartFile)}
+     * @param image файл картинки
+     * @param filePath путь к файлу на сервере
+     * @return подготовленный файл
      * @throws IOException ошибка ввода - вывода
-     * @see Path#of(URI)
      */
     @Override
-    public byte[] downloadImage(String imagePath) throws IOException {
-        Path path = Path.of(imagePath);
-        try (InputStream is = Files.newInputStream(path)) {
-            byte[] image = is.readAllBytes();
-            log.info("Image was downloaded successfully.");
-            return image;
-        }
+    public StagedImage stageImage(MultipartFile image, Path filePath) throws IOException {
+        return new StagedImage(stageToTempFile(image), filePath.toAbsolutePath(), null);
     }
 
     /**
-     * Загрузка на сервер файла картинки. Входной поток получаем методом
-     * {@link MultipartFile#getInputStream()}. Выходной поток получаем методом
-     * {@link Files#newOutputStream(Path, OpenOption...)}
-     * @param image файл картинки
-     * @param filePath путь к файлу на сервере
-     * @throws IOException ошибка ввода - вывода
-     * @see Files#deleteIfExists(Path)
-     * @see Files#createDirectories(Path, FileAttribute[])
+     * Перемещение подготовленного файла по заданному пути до фиксации транзакции.
+     * Путь уникален для каждой загрузки, поэтому при откате транзакции файл удаляется
+     * @param stagedImage подготовленный файл
+     * @return путь к файлу на сервере
+     */
+    @Override
+    public Path commitImage(StagedImage stagedImage) {
+        moveIntoPlace(stagedImage);
+        TransactionCallbacks.afterRollback(() -> deleteFile(stagedImage.getTarget()));
+        return stagedImage.getTarget();
+    }
+
+    /**
+     * Удаление файла картинки после фиксации транзакции
+     * @param imagePath путь и название файла с картинкой
+     * @return {@code true}
      */
     @Override
-    public void uploadImage(MultipartFile image, Path filePath) throws IOException {
-        Files.deleteIfExists(filePath);
-        Files.createDirectories(filePath.getParent());
-        try (InputStream is = image.getInputStream();
-             OutputStream os = Files.newOutputStream(filePath, CREATE_NEW);
-             BufferedInputStream bis = new BufferedInputStream(is, 1024);
-             BufferedOutputStream bos = new BufferedOutputStream(os, 1024)
-        ) {
-            bis.transferTo(bos);
-            log.info("Image was uploaded successfully.");
-        }
+    public boolean deleteImage(String imagePath) {
+        TransactionCallbacks.afterCommit(() -> deleteFile(Path.of(imagePath)));
+        return true;
     }
 }
@@ -0,0 +1,159 @@
+package ru.skypro.homework.service.impl;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import ru.skypro.homework.dto.ads.ImageSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Кэш содержимого изображений объявлений и аватаров пользователей.<br>
+ * - Ограничен суммарным размером хранимых изображений, вытеснение по алгоритму W-TinyLFU.<br>
+ * - Изображения больше {@code images.cache.max-entry-size} не кэшируются и отдаются потоком из файла.<br>
+ * - Изображение загружает первый запросивший его поток, остальные ждут тот же {@link CompletableFuture}.
+ * Сброс записи во время загрузки удаляет незавершённый future, поэтому изображение, прочитанное
+ * до загрузки нового файла, в кэш не попадает.<br>
+ * - При попадании в кэш не выполняются ни запрос к БД, ни чтение файла.
+ */
+@Slf4j
+@Component
+public class ImageCache {
+    private static final String AD_PREFIX = "ad:";
+    private static final String USER_PREFIX = "user:";
+
+    private final AsyncCache<String, CachedImage> cache;
+    private final long maxEntrySize;
+
+    public ImageCache(@Value("${images.cache.max-size}") DataSize maxSize,
+                      @Value("${images.cache.max-entry-size}") DataSize maxEntrySize) {
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .weigher((String key, CachedImage image) -> image.contentLength() > Integer.MAX_VALUE
+                        ? Integer.MAX_VALUE : (int) image.contentLength())
+                .recordStats()
+                .buildAsync();
+        this.maxEntrySize = maxEntrySize.toBytes();
+    }
+
+    public static String adKey(int adId, ImageSize size) {
+        return size == ImageSize.ORIGINAL ? AD_PREFIX + adId : AD_PREFIX + adId + ":" + size.getValue();
+    }
+
+    public static String userKey(int userId) {
+        return USER_PREFIX + userId;
+    }
+
+    /**
+     * Получение изображения из кэша. При промахе изображение загружается через {@code loader}
+     * и, если его размер не превышает {@code images.cache.max-entry-size}, помещается в кэш.
+     * Потоки, ожидавшие незакэшированное изображение, загружают его сами
+     * @param key ключ изображения {@link #adKey(int, ImageSize)} или {@link #userKey(int)}
+     * @param loader загрузка ресурса файла изображения
+     * @return изображение или {@code null}, если {@code loader} не нашёл изображения
+     * @throws IOException ошибка чтения файла изображения
+     */
+    public Resource get(String key, ImageLoader loader) throws IOException {
+        CompletableFuture<CachedImage> loading = new CompletableFuture<>();
+        CompletableFuture<CachedImage> cached = cache.get(key, (imageKey, executor) -> loading);
+        if (cached != loading) {
+            CachedImage image = await(cached);
+            return image != null ? image : loader.load();
+        }
+        try {
+            Resource image = loader.load();
+            if (image == null || image.contentLength() > maxEntrySize) {
+                loading.complete(null);
+                return image;
+            }
+            long lastModified = image.lastModified();
+            byte[] content;
+            try (InputStream is = image.getInputStream()) {
+                content = is.readAllBytes();
+            }
+            CachedImage loaded = new CachedImage(content, lastModified, image.getFilename());
+            loading.complete(loaded);
+            log.debug("Image {} was cached, {} bytes.", key, content.length);
+            return loaded;
+        } catch (IOException | RuntimeException | Error e) {
+            loading.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Удаление изображения из кэша. Вызывается при загрузке нового изображения и удалении объявления
+     * @param key ключ изображения {@link #adKey(int, ImageSize)} или {@link #userKey(int)}
+     */
+    public void evict(String key) {
+        cache.asMap().remove(key);
+    }
+
+    public Cache<String, ?> getNativeCache() {
+        return cache.synchronous();
+    }
+
+    private static CachedImage await(CompletableFuture<CachedImage> cached) throws IOException {
+        try {
+            return cached.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    @FunctionalInterface
+    public interface ImageLoader {
+        Resource load() throws IOException;
+    }
+
+    /**
+     * Содержимое изображения в памяти. Сохраняет дату изменения и имя исходного файла,
+     * чтобы заголовки {@code ETag}, {@code Last-Modified} и {@code Content-Type}
+     * совпадали с ответом, отданным из файла
+     */
+    private static final class CachedImage extends ByteArrayResource {
+        private final long lastModified;
+        private final String filename;
+
+        private CachedImage(byte[] content, long lastModified, String filename) {
+            super(content);
+            this.lastModified = lastModified;
+            this.filename = filename;
+        }
+
+        @Override
+        public long lastModified() {
+            return lastModified;
+        }
+
+        @Override
+        public String getFilename() {
+            return filename;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return this == other;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package ru.skypro.homework.service.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import ru.skypro.homework.dto.ads.ImageSize;
+import ru.skypro.homework.service.ImageVariantService;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * Класс для создания уменьшенных вариантов изображений объявлений.
+ * Варианты создаются средствами {@link ImageIO} в пуле потоков {@code imageExecutor}
+ * и сохраняются рядом с оригиналом с суффиксом размера, например {@code Advertisement_1_thumb.png}
+ */
+@Slf4j
+@Service
+public class ImageVariantServiceImpl implements ImageVariantService {
+
+    /**
+     * Создание вариантов {@link ImageSize#THUMB} и {@link ImageSize#MEDIUM}.<br>
+     * - Чтение оригинала {@link ImageIO#read(java.io.File)}. Если файл не является изображением
+     * поддерживаемого формата, варианты не создаются.<br>
+     * - Варианты, для которых оригинал не больше заданного размера, не создаются: вместо них отдаётся оригинал.<br>
+     * - Если все варианты созданы позже оригинала, они не пересоздаются: одинаковые изображения
+     * в контентно-адресуемом хранилище используют общие варианты.<br>
+     * - Вариант записывается во временный файл и атомарно переименовывается,
+     * чтобы недописанный файл не был отдан клиенту.
+     * @param original путь к оригиналу изображения
+     * @return завершается после записи всех вариантов
+     */
+    @Async("imageExecutor")
+    @Override
+    public CompletableFuture<Void> generateVariants(Path original) {
+        try {
+            if (isUpToDate(original)) {
+                return CompletableFuture.completedFuture(null);
+            }
+            BufferedImage source = ImageIO.read(original.toFile());
+            String format = StringUtils.getFilenameExtension(original.getFileName().toString());
+            if (source == null || format == null) {
+                log.info("Image variants were not generated for unsupported file: {}", original);
+                return CompletableFuture.completedFuture(null);
+            }
+            boolean alpha = source.getColorModel().hasAlpha() && !isJpeg(format);
+            for (ImageSize size : ImageSize.values()) {
+                int maxDimension = size.getMaxDimension();
+                if (size == ImageSize.ORIGINAL
+                        || (source.getWidth() <= maxDimension && source.getHeight() <= maxDimension)) {
+                    continue;
+                }
+                writeVariant(scale(source, maxDimension, alpha), format, variantPath(original, size));
+            }
+            log.info("Image variants were generated for: {}", original);
+        } catch (IOException e) {
+            log.warn("Image variants were not generated for: {}", original, e);
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public Path variantPath(Path original, ImageSize size) {
+        if (size == ImageSize.ORIGINAL) {
+            return original;
+        }
+        String fileName = original.getFileName().toString();
+        String extension = StringUtils.getFilenameExtension(fileName);
+        String variantName = StringUtils.stripFilenameExtension(fileName) + "_" + size.getValue()
+                + (extension == null ? "" : "." + extension);
+        return original.resolveSibling(variantName);
+    }
+
+    @Override
+    public void deleteVariants(Path original) throws IOException {
+        for (ImageSize size : ImageSize.values()) {
+            if (size != ImageSize.ORIGINAL) {
+                Files.deleteIfExists(variantPath(original, size));
+            }
+        }
+    }
+
+    private boolean isUpToDate(Path original) throws IOException {
+        for (ImageSize size : ImageSize.values()) {
+            Path variant = variantPath(original, size);
+            if (size != ImageSize.ORIGINAL && (!Files.exists(variant)
+                    || Files.getLastModifiedTime(variant).compareTo(Files.getLastModifiedTime(original)) < 0)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private BufferedImage scale(BufferedImage source, int maxDimension, boolean alpha) {
+        double ratio = Math.min((double) maxDimension / source.getWidth(), (double) maxDimension / source.getHeight());
+        int width = Math.max(1, (int) Math.round(source.getWidth() * ratio));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * ratio));
+        BufferedImage target = new BufferedImage(width, height,
+                alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    private void writeVariant(BufferedImage image, String format, Path target) throws IOException {
+        Path tmp = Files.createTempFile(target.getParent(), ".variant", ".tmp");
+        try {
+            if (!ImageIO.write(image, format, tmp.toFile())) {
+                log.info("No image writer for format: {}", format);
+                return;
+            }
+            Files.move(tmp, target, REPLACE_EXISTING, ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private boolean isJpeg(String format) {
+        return "jpg".equalsIgnoreCase(format) || "jpeg".equalsIgnoreCase(format);
+    }
+}
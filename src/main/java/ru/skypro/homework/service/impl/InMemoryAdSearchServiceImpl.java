@@ -0,0 +1,241 @@
+package ru.skypro.homework.service.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.*;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import ru.skypro.homework.model.AdEntity;
+import ru.skypro.homework.repository.AdRepository;
+import ru.skypro.homework.service.AdSearchService;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * Поиск объявлений по инвертированному индексу в памяти приложения.
+ * Используется вместо {@link PostgresAdSearchServiceImpl} там, где нет PostgreSQL (например, в тестах на H2).
+ * Индекс строится из БД при старте приложения и поддерживается в актуальном состоянии
+ * обработчиками событий Hibernate, срабатывающими после фиксации транзакции.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "ads.search.engine", havingValue = "memory")
+public class InMemoryAdSearchServiceImpl implements AdSearchService {
+    /**
+     * Веса совпадений в заголовке и описании, как у весов A и B функции {@code ts_rank}
+     */
+    private static final double TITLE_WEIGHT = 1.0;
+    private static final double DESCRIPTION_WEIGHT = 0.4;
+
+    private final AdRepository adRepository;
+    private final EntityManagerFactory entityManagerFactory;
+    private final Map<String, Map<Integer, Double>> postings = new HashMap<>();
+    private final Map<Integer, Document> documents = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public InMemoryAdSearchServiceImpl(AdRepository adRepository, EntityManagerFactory entityManagerFactory) {
+        this.adRepository = adRepository;
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    /**
+     * Регистрация обработчиков событий вставки, обновления и удаления объявлений
+     * в реестре слушателей Hibernate {@link EventListenerRegistry}
+     */
+    @PostConstruct
+    public void registerListeners() {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        IndexingListener listener = new IndexingListener();
+        registry.appendListeners(EventType.POST_COMMIT_INSERT, listener);
+        registry.appendListeners(EventType.POST_COMMIT_UPDATE, listener);
+        registry.appendListeners(EventType.POST_COMMIT_DELETE, listener);
+    }
+
+    /**
+     * Построение индекса по всем объявлениям из БД {@link AdRepository#findAll()}
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        List<AdEntity> adEntityList = adRepository.findAll();
+        adEntityList.forEach(this::index);
+        log.info("In-memory search index was built for {} advertisements.", adEntityList.size());
+    }
+
+    /**
+     * Поиск объявлений, содержащих все слова запроса. Релевантность считается как сумма
+     * весов совпадений слова, умноженных на его обратную документную частоту.
+     */
+    @Override
+    public List<Integer> search(String query, int minPrice, int maxPrice, int offset, int limit) {
+        Set<String> terms = new LinkedHashSet<>(tokenize(query));
+        if (terms.isEmpty()) {
+            return Collections.emptyList();
+        }
+        lock.readLock().lock();
+        try {
+            Map<Integer, Double> scores = null;
+            for (String term : terms) {
+                Map<Integer, Double> termPostings = postings.getOrDefault(term, Collections.emptyMap());
+                double idf = Math.log(1.0 + (double) documents.size() / Math.max(1, termPostings.size()));
+                Map<Integer, Double> termScores = new HashMap<>();
+                termPostings.forEach((adId, weight) -> {
+                    Document document = documents.get(adId);
+                    if (document.price >= minPrice && document.price <= maxPrice) {
+                        termScores.put(adId, weight * idf);
+                    }
+                });
+                if (scores == null) {
+                    scores = termScores;
+                } else {
+                    scores.keySet().retainAll(termScores.keySet());
+                    scores.replaceAll((adId, score) -> score + termScores.get(adId));
+                }
+            }
+            return scores.entrySet().stream()
+                    .sorted(Map.Entry.<Integer, Double>comparingByValue().reversed()
+                            .thenComparing(Map.Entry.comparingByKey()))
+                    .skip(offset)
+                    .limit(limit)
+                    .map(Map.Entry::getKey)
+                    .collect(Collectors.toList());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void index(AdEntity adEntity) {
+        Map<String, Double> weights = new HashMap<>();
+        tokenize(adEntity.getTitle()).forEach(term -> weights.merge(term, TITLE_WEIGHT, Double::sum));
+        tokenize(adEntity.getDescription()).forEach(term -> weights.merge(term, DESCRIPTION_WEIGHT, Double::sum));
+        lock.writeLock().lock();
+        try {
+            removeUnlocked(adEntity.getId());
+            weights.forEach((term, weight) ->
+                    postings.computeIfAbsent(term, key -> new HashMap<>()).put(adEntity.getId(), weight));
+            documents.put(adEntity.getId(), new Document(adEntity.getPrice(), weights.keySet()));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(int adId) {
+        lock.writeLock().lock();
+        try {
+            removeUnlocked(adId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeUnlocked(int adId) {
+        Document document = documents.remove(adId);
+        if (document == null) {
+            return;
+        }
+        for (String term : document.terms) {
+            Map<Integer, Double> termPostings = postings.get(term);
+            termPostings.remove(adId);
+            if (termPostings.isEmpty()) {
+                postings.remove(term);
+            }
+        }
+    }
+
+    private static List<String> tokenize(String text) {
+        if (text == null) {
+            return Collections.emptyList();
+        }
+        List<String> tokens = new ArrayList<>();
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                token.append(Character.toLowerCase(c));
+            } else if (token.length() > 0) {
+                tokens.add(token.toString());
+                token.setLength(0);
+            }
+        }
+        if (token.length() > 0) {
+            tokens.add(token.toString());
+        }
+        return tokens;
+    }
+
+    private static final class Document {
+        private final int price;
+        private final Set<String> terms;
+
+        private Document(int price, Set<String> terms) {
+            this.price = price;
+            this.terms = terms;
+        }
+    }
+
+    private final class IndexingListener implements PostCommitInsertEventListener,
+            PostCommitUpdateEventListener, PostCommitDeleteEventListener {
+
+        @Override
+        public void onPostInsert(PostInsertEvent event) {
+            if (event.getEntity() instanceof AdEntity) {
+                index((AdEntity) event.getEntity());
+            }
+        }
+
+        @Override
+        public void onPostUpdate(PostUpdateEvent event) {
+            if (event.getEntity() instanceof AdEntity) {
+                index((AdEntity) event.getEntity());
+            }
+        }
+
+        @Override
+        public void onPostDelete(PostDeleteEvent event) {
+            if (event.getEntity() instanceof AdEntity) {
+                remove(((AdEntity) event.getEntity()).getId());
+            }
+        }
+
+        @Override
+        public void onPostInsertCommitFailed(PostInsertEvent event) {
+            // nothing was indexed before commit
+        }
+
+        @Override
+        public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+            // nothing was indexed before commit
+        }
+
+        @Override
+        public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+            // nothing was removed before commit
+        }
+
+        @Override
+        public boolean requiresPostCommitHandling(EntityPersister persister) {
+            return AdEntity.class.equals(persister.getMappedClass());
+        }
+
+        /**
+         * Устаревший метод, в Hibernate 5.6 всё ещё абстрактный. Делегирует {@link #requiresPostCommitHandling(EntityPersister)}
+         */
+        @Override
+        @Deprecated
+        public boolean requiresPostCommitHanding(EntityPersister persister) {
+            return requiresPostCommitHandling(persister);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package ru.skypro.homework.service.impl;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import ru.skypro.homework.model.AdEntity;
+import ru.skypro.homework.repository.AdRepository;
+import ru.skypro.homework.service.AdSearchService;
+
+import java.util.List;
+
+/**
+ * Поиск объявлений средствами PostgreSQL. Колонка {@code ads.search_vector} вычисляется
+ * базой данных из заголовка и описания и индексируется GIN-индексом, поэтому
+ * отдельно поддерживать индекс не требуется.
+ */
+@Service
+@ConditionalOnProperty(name = "ads.search.engine", havingValue = "postgres", matchIfMissing = true)
+public class PostgresAdSearchServiceImpl implements AdSearchService {
+    private final AdRepository adRepository;
+
+    public PostgresAdSearchServiceImpl(AdRepository adRepository) {
+        this.adRepository = adRepository;
+    }
+
+    /**
+     * Поиск выполняется запросом {@link AdRepository#searchIds(String, int, int, int, int)},
+     * результаты ранжируются функцией {@code ts_rank}.
+     */
+    @Override
+    public List<Integer> search(String query, int minPrice, int maxPrice, int offset, int limit) {
+        return adRepository.searchIds(query, minPrice, maxPrice, limit, offset);
+    }
+
+    @Override
+    public void index(AdEntity adEntity) {
+        // search_vector is a generated column
+    }
+
+    @Override
+    public void remove(int adId) {
+        // search_vector is a generated column
+    }
+}
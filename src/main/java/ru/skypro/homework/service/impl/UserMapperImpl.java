@@ -1,6 +1,5 @@
 package ru.skypro.homework.service.impl;
 
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Component;
 import ru.skypro.homework.dto.account.Register;
 import ru.skypro.homework.dto.account.User;
@@ -9,17 +8,11 @@ import ru.skypro.homework.service.UserMapper;
 
 @Component
 public class UserMapperImpl implements UserMapper {
-    private final PasswordEncoder passwordEncoder;
-
-    public UserMapperImpl(PasswordEncoder passwordEncoder) {
-        this.passwordEncoder = passwordEncoder;
-    }
-
     @Override
-    public UserEntity toUserEntity(Register register) {
+    public UserEntity toUserEntity(Register register, String encodedPassword) {
         UserEntity userEntity = new UserEntity();
         userEntity.setEmail(register.getUsername());
-        userEntity.setPassword(passwordEncoder.encode(register.getPassword()));
+        userEntity.setPassword(encodedPassword);
         userEntity.setFirstName(register.getFirstName());
         userEntity.setLastName(register.getLastName());
         userEntity.setPhoneUser(register.getPhone());
@@ -37,6 +30,7 @@ public class UserMapperImpl implements UserMapper {
         user.setPhone(userEntity.getPhoneUser());
         user.setRole(userEntity.getRole());
         user.setImage("/users/image/" + userEntity.getId());
+        user.setAdCount(userEntity.getAdCount());
         return user;
     }
 
@@ -0,0 +1,11 @@
+-- liquibase formatted sql
+
+-- changeset andryDO2009:1
+ALTER TABLE ads ADD COLUMN search_vector tsvector
+    GENERATED ALWAYS AS (
+        setweight(to_tsvector('russian', coalesce(title, '')), 'A') ||
+        setweight(to_tsvector('russian', coalesce(description, '')), 'B')
+    ) STORED;
+
+-- changeset andryDO2009:2
+CREATE INDEX ads_search_vector_idx ON ads USING GIN (search_vector);
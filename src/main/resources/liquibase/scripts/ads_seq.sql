@@ -0,0 +1,7 @@
+-- liquibase formatted sql
+
+-- changeset andryDO2009:1
+CREATE SEQUENCE ads_seq INCREMENT BY 50;
+SELECT setval('ads_seq', (SELECT COALESCE(MAX(id), 0) + 1 FROM ads), false);
+ALTER TABLE ads ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE ads ALTER COLUMN id SET DEFAULT nextval('ads_seq');
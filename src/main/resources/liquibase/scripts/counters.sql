@@ -0,0 +1,9 @@
+-- liquibase formatted sql
+
+-- changeset andryDO2009:1
+ALTER TABLE ads ADD COLUMN comment_count INTEGER NOT NULL DEFAULT 0;
+UPDATE ads SET comment_count = (SELECT COUNT(*) FROM comments c WHERE c.ad_id = ads.id);
+
+-- changeset andryDO2009:2
+ALTER TABLE users ADD COLUMN ad_count INTEGER NOT NULL DEFAULT 0;
+UPDATE users SET ad_count = (SELECT COUNT(*) FROM ads a WHERE a.user_id = users.id);
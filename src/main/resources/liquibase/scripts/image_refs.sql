@@ -0,0 +1,7 @@
+-- liquibase formatted sql
+
+-- changeset andryDO2009:1
+CREATE TABLE image_refs (
+    name VARCHAR(128) PRIMARY KEY,
+    ref_count INTEGER NOT NULL
+);
@@ -0,0 +1,10 @@
+-- liquibase formatted sql
+
+-- changeset andryDO2009:1
+CREATE INDEX comments_ad_id_created_at_idx ON comments (ad_id, created_at, id);
+
+-- changeset andryDO2009:2
+CREATE INDEX comments_user_id_idx ON comments (user_id);
+
+-- changeset andryDO2009:3
+CREATE INDEX ads_user_id_idx ON ads (user_id);
@@ -0,0 +1,99 @@
+package ru.skypro.homework.config;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+
+class ReplicaRoutingDataSourceTest {
+    private JdbcTemplate primary;
+    private JdbcTemplate replica;
+    private ReplicaRoutingDataSource routingDataSource;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate writeTransaction;
+    private TransactionTemplate readOnlyTransaction;
+
+    @BeforeEach
+    void setUp() {
+        DataSource primaryDataSource = h2("primary");
+        DataSource replicaDataSource = h2("replica");
+        primary = new JdbcTemplate(primaryDataSource);
+        replica = new JdbcTemplate(replicaDataSource);
+        for (JdbcTemplate database : new JdbcTemplate[]{primary, replica}) {
+            database.execute("CREATE TABLE marker (name VARCHAR(16))");
+            database.execute("CREATE TABLE replica_lag (seconds DOUBLE)");
+            database.execute("INSERT INTO replica_lag VALUES (0)");
+        }
+        primary.update("INSERT INTO marker VALUES ('primary')");
+        replica.update("INSERT INTO marker VALUES ('replica')");
+
+        routingDataSource = new ReplicaRoutingDataSource(primaryDataSource, Map.of("replica-0", replicaDataSource),
+                "SELECT seconds FROM replica_lag", Duration.ofSeconds(10));
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routingDataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        writeTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+    }
+
+    @Test
+    @DisplayName("Транзакции только для чтения выполняются на реплике, остальные запросы на основной БД")
+    void shouldRouteReadOnlyTransactionsToReplica() {
+
+        Assertions.assertEquals("replica", readOnlyTransaction.execute(status -> marker()));
+        Assertions.assertEquals("primary", writeTransaction.execute(status -> marker()));
+        Assertions.assertEquals("primary", marker());
+        Assertions.assertEquals(1, routingDataSource.getRoutedConnections("replica-0"));
+    }
+
+    @Test
+    @DisplayName("Отставшая реплика исключается из чтения и возвращается после догоняния")
+    void shouldFallBackToPrimaryWhenReplicaLags() {
+
+        replica.update("UPDATE replica_lag SET seconds = 60");
+        routingDataSource.checkReplicaLag();
+
+        Assertions.assertFalse(routingDataSource.isReplicaAvailable("replica-0"));
+        Assertions.assertEquals(60, routingDataSource.getReplicaLag("replica-0"));
+        Assertions.assertEquals("primary", readOnlyTransaction.execute(status -> marker()));
+
+        replica.update("UPDATE replica_lag SET seconds = 1");
+        routingDataSource.checkReplicaLag();
+
+        Assertions.assertTrue(routingDataSource.isReplicaAvailable("replica-0"));
+        Assertions.assertEquals("replica", readOnlyTransaction.execute(status -> marker()));
+    }
+
+    @Test
+    @DisplayName("Недоступная реплика исключается из чтения")
+    void shouldFallBackToPrimaryWhenReplicaFails() {
+
+        replica.execute("DROP TABLE replica_lag");
+        routingDataSource.checkReplicaLag();
+
+        Assertions.assertFalse(routingDataSource.isReplicaAvailable("replica-0"));
+        Assertions.assertEquals(-1, routingDataSource.getReplicaLag("replica-0"));
+        Assertions.assertEquals("primary", readOnlyTransaction.execute(status -> marker()));
+    }
+
+    private String marker() {
+        return jdbcTemplate.queryForObject("SELECT name FROM marker", String.class);
+    }
+
+    private static DataSource h2(String name) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + name + "-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        return dataSource;
+    }
+}
@@ -0,0 +1,70 @@
+package ru.skypro.homework.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.skypro.homework.model.AdEntity;
+import ru.skypro.homework.repository.AdRepository;
+import ru.skypro.homework.repository.UserRepository;
+import ru.skypro.homework.service.TestService;
+
+import javax.persistence.EntityManagerFactory;
+
+@SpringBootTest(properties = {
+        "datasource.replicas.urls=jdbc:h2:mem:replica-l2-test;DB_CLOSE_DELAY=-1",
+        "datasource.replicas.lag-query=SELECT 0",
+        // индекс поиска в памяти строится при запуске чтением с реплики, схема которой создаётся в тесте
+        "ads.search.engine=postgres"
+})
+class ReplicaSecondLevelCacheTest {
+    @Autowired
+    private ReplicaRoutingDataSource routingDataSource;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private AdRepository adRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private TestService testService;
+
+    @AfterEach
+    public void clearDB() {
+        adRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("Чтение с отстающей реплики не возвращает устаревшее объявление в кэш второго уровня")
+    void shouldNotPutReplicaReadsIntoSecondLevelCache() {
+        JdbcTemplate primary = new JdbcTemplate(routingDataSource.getPools().get(ReplicaRoutingDataSource.PRIMARY));
+        JdbcTemplate replica = new JdbcTemplate(routingDataSource.getPools().get("replica-0"));
+        AdEntity adEntity = testService.createTestAd();
+        primary.queryForList("SCRIPT", String.class).forEach(replica::execute);
+
+        primary.update("UPDATE ads SET title = 'freshTitle' WHERE id = ?", adEntity.getId());
+        entityManagerFactory.getCache().evict(AdEntity.class, adEntity.getId());
+
+        TransactionTemplate readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+        String replicaTitle = readOnlyTransaction.execute(status ->
+                adRepository.findById(adEntity.getId()).orElseThrow().getTitle());
+
+        Assertions.assertEquals("testTitle", replicaTitle);
+        Assertions.assertFalse(entityManagerFactory.getCache().contains(AdEntity.class, adEntity.getId()));
+
+        String primaryTitle = new TransactionTemplate(transactionManager).execute(status ->
+                adRepository.findById(adEntity.getId()).orElseThrow().getTitle());
+
+        Assertions.assertEquals("freshTitle", primaryTitle);
+        Assertions.assertTrue(entityManagerFactory.getCache().contains(AdEntity.class, adEntity.getId()));
+    }
+}
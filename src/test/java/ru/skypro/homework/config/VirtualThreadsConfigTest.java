@@ -0,0 +1,37 @@
+package ru.skypro.homework.config;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+class VirtualThreadsConfigTest {
+
+    @Test
+    @DisplayName("Задачи выполняются в именованных виртуальных потоках")
+    void shouldRunTasksInVirtualThreads() throws Exception {
+        Assumptions.assumeTrue(Runtime.version().feature() >= 21);
+
+        ExecutorService executor = VirtualThreadsConfig.virtualThreadPerTaskExecutor("test-");
+        try {
+            Thread thread = executor.submit(Thread::currentThread).get(10, TimeUnit.SECONDS);
+
+            Assertions.assertTrue((Boolean) Thread.class.getMethod("isVirtual").invoke(thread));
+            Assertions.assertEquals("test-0", thread.getName());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Профиль virtual-threads не запускается на Java ниже 21")
+    void shouldFailFastBeforeJava21() {
+        Assumptions.assumeTrue(Runtime.version().feature() < 21);
+
+        Assertions.assertThrows(IllegalStateException.class,
+                () -> VirtualThreadsConfig.virtualThreadPerTaskExecutor("test-"));
+    }
+}
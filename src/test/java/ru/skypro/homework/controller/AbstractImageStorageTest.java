@@ -0,0 +1,248 @@
+package ru.skypro.homework.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.EntityStatistics;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.result.MockMvcResultHandlers;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.skypro.homework.dto.ads.CreateOrUpdateAd;
+import ru.skypro.homework.model.AdEntity;
+import ru.skypro.homework.repository.AdRepository;
+import ru.skypro.homework.repository.UserRepository;
+import ru.skypro.homework.service.FileService;
+import ru.skypro.homework.service.TestService;
+
+import javax.persistence.EntityManagerFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.stream.Stream;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Загрузка, выдача и удаление картинок объявлений, общие для всех режимов хранилища {@code images.storage.mode}.
+ * Режим задаётся наследником
+ */
+abstract class AbstractImageStorageTest {
+    @Autowired
+    protected MockMvc mockMvc;
+    @Autowired
+    protected AdRepository adRepository;
+    @Autowired
+    protected UserRepository userRepository;
+    @Autowired
+    protected ObjectMapper objectMapper;
+    @Autowired
+    protected TestService testService;
+    @Autowired
+    protected EntityManagerFactory entityManagerFactory;
+    @Autowired
+    protected FileService fileService;
+    @Autowired
+    protected PlatformTransactionManager transactionManager;
+    @Autowired
+    @Qualifier("imageExecutor")
+    protected ThreadPoolTaskExecutor imageExecutor;
+    @Value("${images.storage.staging-dir}")
+    protected String stagingDir;
+    @Value("${ad.image.dir.path}")
+    protected String adImageDirPath;
+
+    @AfterEach
+    public void clearDB() {
+        adRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    /**
+     * Создание обычного файла на месте папки, в которую хранилище переместит картинку с заданным содержимым
+     * @param imageBytes содержимое картинки
+     * @return созданный файл, удаляется после теста
+     */
+    protected abstract Path blockImageTarget(byte[] imageBytes) throws Exception;
+
+    /**
+     * Ожидание завершения создания уменьшенных вариантов картинок: после него кэш изображений объявления сбрасывается
+     */
+    protected void awaitImageVariants() throws InterruptedException {
+        ThreadPoolExecutor executor = imageExecutor.getThreadPoolExecutor();
+        while (executor.getCompletedTaskCount() < executor.getTaskCount()) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    @DisplayName("Добавление объявления одним INSERT и перемещение картинки из временной папки")
+    void shouldInsertAdOnceAndMoveStagedImageWhenCreateAdCalled() throws Exception {
+
+        testService.createTestUser();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        MockMultipartFile request = new MockMultipartFile(
+                "properties", "properties", MediaType.APPLICATION_JSON_VALUE,
+                objectMapper.writeValueAsString(new CreateOrUpdateAd("createdTitle", 44444, "createdDescription")).getBytes()
+        );
+        MockMultipartFile image = new MockMultipartFile(
+                "image", "image.png", MediaType.IMAGE_PNG_VALUE, "staged".getBytes()
+        );
+
+        String response = mockMvc.perform(multipart("/ads")
+                        .file(request)
+                        .file(image)
+                        .header(HttpHeaders.AUTHORIZATION,
+                                "Basic " + HttpHeaders.encodeBasicAuth("testEmail@gmail.com",
+                                        "testPassword", StandardCharsets.UTF_8)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        EntityStatistics adStatistics = statistics.getEntityStatistics(AdEntity.class.getName());
+        Assertions.assertEquals(1, adStatistics.getInsertCount());
+        Assertions.assertEquals(0, adStatistics.getUpdateCount());
+
+        int adId = objectMapper.readTree(response).get("pk").asInt();
+        Path imagePath = Path.of(adRepository.findById(adId).orElseThrow().getImagePath());
+        Assertions.assertArrayEquals("staged".getBytes(), Files.readAllBytes(imagePath));
+        try (Stream<Path> stagedFiles = Files.list(Path.of(stagingDir))) {
+            Assertions.assertEquals(0, stagedFiles.count());
+        }
+    }
+
+    @Test
+    @DisplayName("Объявление не сохраняется, если файл картинки не удалось переместить")
+    void shouldNotSaveAdWhenStagedImageNotMoved() throws Exception {
+
+        testService.createTestUser();
+        byte[] imageBytes = "unmovable".getBytes();
+        Path blockingFile = blockImageTarget(imageBytes);
+        try {
+            MockMultipartFile request = new MockMultipartFile(
+                    "properties", "properties", MediaType.APPLICATION_JSON_VALUE,
+                    objectMapper.writeValueAsString(new CreateOrUpdateAd("createdTitle", 44444, "createdDescription")).getBytes()
+            );
+            Assertions.assertThrows(Exception.class, () -> mockMvc.perform(multipart("/ads")
+                    .file(request)
+                    .file(new MockMultipartFile("image", "image.png", MediaType.IMAGE_PNG_VALUE, imageBytes))
+                    .header(HttpHeaders.AUTHORIZATION,
+                            "Basic " + HttpHeaders.encodeBasicAuth("testEmail@gmail.com",
+                                    "testPassword", StandardCharsets.UTF_8))));
+
+            Assertions.assertEquals(0, adRepository.count());
+        } finally {
+            Files.delete(blockingFile);
+        }
+    }
+
+    @Test
+    @DisplayName("Перемещённый файл картинки удаляется при откате транзакции")
+    void shouldDeleteMovedImageWhenTransactionRolledBack() throws Exception {
+
+        MockMultipartFile image = new MockMultipartFile("image", "image.png", MediaType.IMAGE_PNG_VALUE,
+                "rolled back".getBytes());
+        FileService.StagedImage upload = fileService.stageImage(image, Path.of(adImageDirPath, image.getOriginalFilename()));
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+        Path imagePath = transactionTemplate.execute(status -> {
+            Path path = fileService.commitImage(upload);
+            Assertions.assertTrue(Files.exists(path));
+            status.setRollbackOnly();
+            return path;
+        });
+
+        Assertions.assertFalse(Files.exists(imagePath));
+        Assertions.assertFalse(Files.exists(upload.getTempFile()));
+    }
+
+    @Test
+    @DisplayName("Получение картинки объявления с заголовками кэширования, условным запросом и запросом части файла")
+    void shouldReturnCacheableImageWhenCalled() throws Exception {
+
+        AdEntity adEntity = testService.createTestAd();
+        String authorization = "Basic " + HttpHeaders.encodeBasicAuth("testEmail@gmail.com",
+                "testPassword", StandardCharsets.UTF_8);
+
+        MockMultipartFile image = new MockMultipartFile(
+                "image", "image.png", MediaType.IMAGE_PNG_VALUE, "image".getBytes()
+        );
+        mockMvc.perform(multipart(HttpMethod.PATCH, "/ads/{id}/image", adEntity.getId())
+                        .file(image)
+                        .header(HttpHeaders.AUTHORIZATION, authorization))
+                .andExpect(status().isOk());
+
+        String eTag = mockMvc.perform(get("/ads/image/{adId}", adEntity.getId())
+                        .header(HttpHeaders.AUTHORIZATION, authorization))
+                .andDo(MockMvcResultHandlers.print())
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentType(MediaType.IMAGE_PNG))
+                .andExpect(MockMvcResultMatchers.content().bytes("image".getBytes()))
+                .andExpect(MockMvcResultMatchers.header().exists(HttpHeaders.LAST_MODIFIED))
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.CACHE_CONTROL, "max-age=600, private"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/ads/image/{adId}", adEntity.getId())
+                        .header(HttpHeaders.AUTHORIZATION, authorization)
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
+
+        mockMvc.perform(get("/ads/image/{adId}", adEntity.getId())
+                        .header(HttpHeaders.AUTHORIZATION, authorization)
+                        .header(HttpHeaders.RANGE, "bytes=1-3"))
+                .andExpect(status().isPartialContent())
+                .andExpect(MockMvcResultMatchers.content().bytes("mag".getBytes()));
+    }
+
+    @Test
+    @DisplayName("Повторное получение картинки объявления из кэша и сброс кэша при загрузке новой картинки")
+    void shouldServeCachedImageUntilNewImageUploaded() throws Exception {
+
+        AdEntity adEntity = testService.createTestAd();
+        String authorization = "Basic " + HttpHeaders.encodeBasicAuth("testEmail@gmail.com",
+                "testPassword", StandardCharsets.UTF_8);
+
+        mockMvc.perform(multipart(HttpMethod.PATCH, "/ads/{id}/image", adEntity.getId())
+                        .file(new MockMultipartFile("image", "image.png", MediaType.IMAGE_PNG_VALUE, "first".getBytes()))
+                        .header(HttpHeaders.AUTHORIZATION, authorization))
+                .andExpect(status().isOk());
+        awaitImageVariants();
+        mockMvc.perform(get("/ads/image/{adId}", adEntity.getId())
+                        .header(HttpHeaders.AUTHORIZATION, authorization))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.content().bytes("first".getBytes()));
+
+        Files.delete(Path.of(adRepository.findById(adEntity.getId()).orElseThrow().getImagePath()));
+
+        mockMvc.perform(get("/ads/image/{adId}", adEntity.getId())
+                        .header(HttpHeaders.AUTHORIZATION, authorization))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.content().bytes("first".getBytes()));
+
+        mockMvc.perform(multipart(HttpMethod.PATCH, "/ads/{id}/image", adEntity.getId())
+                        .file(new MockMultipartFile("image", "image.png", MediaType.IMAGE_PNG_VALUE, "second".getBytes()))
+                        .header(HttpHeaders.AUTHORIZATION, authorization))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/ads/image/{adId}", adEntity.getId())
+                        .header(HttpHeaders.AUTHORIZATION, authorization))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.content().bytes("second".getBytes()));
+    }
+}
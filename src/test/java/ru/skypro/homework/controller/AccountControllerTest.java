@@ -11,6 +11,9 @@ import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultHandlers;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
@@ -22,6 +25,7 @@ import ru.skypro.homework.service.TestService;
 
 import java.nio.charset.StandardCharsets;
 
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
@@ -53,7 +57,7 @@ class AccountControllerTest {
         newPassword.setCurrentPassword("testPassword");
         newPassword.setNewPassword("newTestPassword");
 
-        mockMvc.perform(MockMvcRequestBuilders.post("/users/set_password")
+        performAsync(MockMvcRequestBuilders.post("/users/set_password")
                 .content(objectMapper.writeValueAsString(newPassword))
                         .header(HttpHeaders.AUTHORIZATION,
                                 "Basic " + HttpHeaders.encodeBasicAuth("testEmail@gmail.com",
@@ -67,6 +71,72 @@ class AccountControllerTest {
                 userRepository.findByEmail(userEntity.getEmail()).get().getPassword()));
     }
 
+    @Test
+    @DisplayName("Смена пароля не перезаписывает данные пользователя, изменённые во время хеширования")
+    void shouldKeepConcurrentProfileChangesWhenPasswordChanged() throws Exception {
+
+        UserEntity userEntity = testService.createTestUser();
+
+        NewPassword newPassword = new NewPassword();
+        newPassword.setCurrentPassword("testPassword");
+        newPassword.setNewPassword("newTestPassword");
+
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.post("/users/set_password")
+                        .content(objectMapper.writeValueAsString(newPassword))
+                        .header(HttpHeaders.AUTHORIZATION,
+                                "Basic " + HttpHeaders.encodeBasicAuth("testEmail@gmail.com",
+                                        "testPassword", StandardCharsets.UTF_8))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        UserEntity concurrentlyUpdated = userRepository.findById(userEntity.getId()).orElseThrow();
+        concurrentlyUpdated.setFirstName("concurrentFirstName");
+        userRepository.save(concurrentlyUpdated);
+        mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+                .andExpect(status().isOk());
+
+        UserEntity actual = userRepository.findById(userEntity.getId()).orElseThrow();
+        Assertions.assertEquals("concurrentFirstName", actual.getFirstName());
+        Assertions.assertTrue(passwordEncoder.matches("newTestPassword", actual.getPassword()));
+    }
+
+    @Test
+    @DisplayName("Старый пароль не принимается после смены пароля")
+    void shouldRejectOldPasswordAfterPasswordChanged() throws Exception {
+
+        testService.createTestUser();
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/users/me")
+                        .header(HttpHeaders.AUTHORIZATION,
+                                "Basic " + HttpHeaders.encodeBasicAuth("testEmail@gmail.com",
+                                        "testPassword", StandardCharsets.UTF_8)))
+                .andExpect(status().isOk());
+
+        NewPassword newPassword = new NewPassword();
+        newPassword.setCurrentPassword("testPassword");
+        newPassword.setNewPassword("newTestPassword");
+
+        performAsync(MockMvcRequestBuilders.post("/users/set_password")
+                        .content(objectMapper.writeValueAsString(newPassword))
+                        .header(HttpHeaders.AUTHORIZATION,
+                                "Basic " + HttpHeaders.encodeBasicAuth("testEmail@gmail.com",
+                                        "testPassword", StandardCharsets.UTF_8))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/users/me")
+                        .header(HttpHeaders.AUTHORIZATION,
+                                "Basic " + HttpHeaders.encodeBasicAuth("testEmail@gmail.com",
+                                        "testPassword", StandardCharsets.UTF_8)))
+                .andExpect(status().isUnauthorized());
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/users/me")
+                        .header(HttpHeaders.AUTHORIZATION,
+                                "Basic " + HttpHeaders.encodeBasicAuth("testEmail@gmail.com",
+                                        "newTestPassword", StandardCharsets.UTF_8)))
+                .andExpect(status().isOk());
+    }
+
     @Test
     @DisplayName(value = "Получение информации об авторизованном пользователе")
     void shouldReturnInfoAboutUserWhenCalled() throws Exception {
@@ -146,4 +216,14 @@ class AccountControllerTest {
                 .andExpect(MockMvcResultMatchers.jsonPath("$").value("/users/image/" + userEntity.getId())) // not sure
                 .andExpect(status().isOk());
     }
+
+    /**
+     * Выполнение запроса к эндпоинту с асинхронным ответом и ожидание результата
+     */
+    private ResultActions performAsync(RequestBuilder requestBuilder) throws Exception {
+        MvcResult result = mockMvc.perform(requestBuilder)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result));
+    }
 }
@@ -1,6 +1,8 @@
 package ru.skypro.homework.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
@@ -13,14 +15,21 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultHandlers;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+import ru.skypro.homework.dto.account.Role;
+import ru.skypro.homework.dto.account.UpdateUser;
 import ru.skypro.homework.dto.ads.CreateOrUpdateAd;
 import ru.skypro.homework.model.AdEntity;
 import ru.skypro.homework.model.UserEntity;
 import ru.skypro.homework.repository.AdRepository;
 import ru.skypro.homework.repository.UserRepository;
+import ru.skypro.homework.service.CounterService;
 import ru.skypro.homework.service.TestService;
+import ru.skypro.homework.service.impl.AdDocumentCache;
 
+import javax.persistence.EntityManagerFactory;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
@@ -39,6 +48,12 @@ class AdvertisementControllerTest {
     private ObjectMapper objectMapper;
     @Autowired
     private TestService testService;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private AdDocumentCache adDocumentCache;
+    @Autowired
+    private CounterService counterService;
 
     @AfterEach
     public void clearDB() {
@@ -59,12 +74,59 @@ class AdvertisementControllerTest {
                 .andDo(MockMvcResultHandlers.print())
                 .andExpect(MockMvcResultMatchers.jsonPath("$.count").value(1))
                 .andExpect(MockMvcResultMatchers.jsonPath("$.results[0].author").value(adEntity.getUserEntity().getId()))
-                .andExpect(MockMvcResultMatchers.jsonPath("$.results[0].image").value("/ads/image/" + adEntity.getId()))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.results[0].image").value("/ads/image/" + adEntity.getId() + "?size=thumb"))
                 .andExpect(MockMvcResultMatchers.jsonPath("$.results[0].price").value(55555))
                 .andExpect(MockMvcResultMatchers.jsonPath("$.results[0].title").value("testTitle"))
                 .andExpect(status().isOk());
     }
 
+    @Test
+    @DisplayName("Получение ленты объявлений по страницам")
+    void shouldReturnAdsPageWithNextCursorWhenSizeGiven() throws Exception {
+
+        List<AdEntity> adEntityList = testService.createTestAds(3);
+
+        mockMvc.perform(get("/ads").param("size", "2"))
+                .andDo(MockMvcResultHandlers.print())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.count").value(2))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.results[0].pk").value(adEntityList.get(0).getId()))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.results[1].pk").value(adEntityList.get(1).getId()))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.next").value(adEntityList.get(1).getId()))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/ads")
+                        .param("size", "2")
+                        .param("cursor", String.valueOf(adEntityList.get(1).getId())))
+                .andDo(MockMvcResultHandlers.print())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.count").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.results[0].pk").value(adEntityList.get(2).getId()))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.next").doesNotExist())
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    @DisplayName("Количество SQL-запросов ленты не зависит от числа объявлений")
+    void shouldExecuteConstantNumberOfStatementsWhenAdsFeedCalled() throws Exception {
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        testService.createTestAds(1);
+        statistics.clear();
+        mockMvc.perform(get("/ads")).andExpect(status().isOk());
+        long statementsForOneAd = statistics.getPrepareStatementCount();
+
+        adRepository.deleteAll();
+        userRepository.deleteAll();
+
+        testService.createTestAds(5);
+        statistics.clear();
+        mockMvc.perform(get("/ads"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.count").value(5))
+                .andExpect(status().isOk());
+
+        Assertions.assertEquals(statementsForOneAd, statistics.getPrepareStatementCount());
+    }
+
     @Test
     @DisplayName("Добавление объявления")
     void shouldReturnAdWhenCreateAdCalled() throws Exception {
@@ -120,6 +182,41 @@ class AdvertisementControllerTest {
                 .andExpect(status().isOk());
     }
 
+    @Test
+    @DisplayName("Пакетная вставка пользователей и объявлений с идентификаторами из последовательностей")
+    void shouldInsertUsersAndAdsInBatches() {
+
+        List<UserEntity> userEntityList = new ArrayList<>();
+        List<AdEntity> adEntityList = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            UserEntity userEntity = new UserEntity();
+            userEntity.setEmail("batchEmail" + i + "@gmail.com");
+            userEntity.setPassword("$2a$12$nbPi.P3rcqDsL4xDcVru2OXnqZX81vVvUvaFRONeYDnyaeK4c/TbS");
+            userEntity.setFirstName("batchFirstName");
+            userEntity.setLastName("batchLastName");
+            userEntity.setPhoneUser("+77777777777");
+            userEntity.setRole(Role.USER);
+            userEntityList.add(userEntity);
+
+            AdEntity adEntity = new AdEntity();
+            adEntity.setDescription("batchDescription" + i);
+            adEntity.setPrice(1000 + i);
+            adEntity.setTitle("batchTitle" + i);
+            adEntity.setUserEntity(userEntity);
+            adEntityList.add(adEntity);
+        }
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        userRepository.saveAll(userEntityList);
+        adRepository.saveAll(adEntityList);
+
+        Assertions.assertEquals(30, statistics.getEntityStatistics(UserEntity.class.getName()).getInsertCount());
+        Assertions.assertEquals(30, statistics.getEntityStatistics(AdEntity.class.getName()).getInsertCount());
+        Assertions.assertTrue(statistics.getPrepareStatementCount() < 10);
+        Assertions.assertEquals(30, adEntityList.stream().mapToInt(AdEntity::getId).distinct().count());
+    }
+
     @Test
     @DisplayName("Удаление объявления")
     void shouldReturnOkWhenDeleteAdCalled() throws Exception {
@@ -151,12 +248,223 @@ class AdvertisementControllerTest {
                 .contentType(MediaType.APPLICATION_JSON))
                 .andDo(MockMvcResultHandlers.print())
                 .andExpect(MockMvcResultMatchers.jsonPath("$.author").value(adEntity.getUserEntity().getId()))
-                .andExpect(MockMvcResultMatchers.jsonPath("$.image").value("/ads/image/" + adEntity.getId()))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.image").value("/ads/image/" + adEntity.getId() + "?size=thumb"))
                 .andExpect(MockMvcResultMatchers.jsonPath("$.price").value(77777))
                 .andExpect(MockMvcResultMatchers.jsonPath("$.title").value("updatedTitle"))
                 .andExpect(status().isOk());
     }
 
+    @Test
+    @DisplayName("Счётчик объявлений пользователя и пересчёт разошедшихся счётчиков")
+    void shouldMaintainAdCountAndReconcileDrift() throws Exception {
+
+        testService.createTestUser();
+        String authorization = "Basic " + HttpHeaders.encodeBasicAuth("testEmail@gmail.com",
+                "testPassword", StandardCharsets.UTF_8);
+        MockMultipartFile request = new MockMultipartFile(
+                "properties", "properties", MediaType.APPLICATION_JSON_VALUE,
+                objectMapper.writeValueAsString(new CreateOrUpdateAd("createdTitle", 44444, "createdDescription")).getBytes()
+        );
+        MockMultipartFile image = new MockMultipartFile(
+                "image", "image", MediaType.MULTIPART_FORM_DATA_VALUE,
+                "image".getBytes()
+        );
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(multipart("/ads")
+                            .file(request)
+                            .file(image)
+                            .header(HttpHeaders.AUTHORIZATION, authorization))
+                    .andExpect(status().isOk());
+        }
+        mockMvc.perform(get("/users/me")
+                        .header(HttpHeaders.AUTHORIZATION, authorization))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.adCount").value(2))
+                .andExpect(status().isOk());
+
+        List<AdEntity> adEntityList = testService.createTestAds(1);
+        int adId = adEntityList.get(0).getId();
+        String otherAuthorization = "Basic " + HttpHeaders.encodeBasicAuth("testEmail0@gmail.com",
+                "testPassword", StandardCharsets.UTF_8);
+        mockMvc.perform(get("/users/me")
+                        .header(HttpHeaders.AUTHORIZATION, otherAuthorization))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.adCount").value(0))
+                .andExpect(status().isOk());
+
+        Assertions.assertEquals(1, counterService.reconcile());
+        Assertions.assertEquals(0, counterService.reconcile());
+        mockMvc.perform(get("/users/me")
+                        .header(HttpHeaders.AUTHORIZATION, otherAuthorization))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.adCount").value(1))
+                .andExpect(status().isOk());
+        mockMvc.perform(MockMvcRequestBuilders.delete("/ads/{id}", adId)
+                        .header(HttpHeaders.AUTHORIZATION, otherAuthorization))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/users/me")
+                        .header(HttpHeaders.AUTHORIZATION, otherAuthorization))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.adCount").value(0))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    @DisplayName("Проверка прав на изменение объявления без запроса пользователя из БД")
+    void shouldCheckAdOwnershipWithoutUserQuery() throws Exception {
+
+        AdEntity adEntity = testService.createTestAd();
+        String authorization = "Basic " + HttpHeaders.encodeBasicAuth("testEmail@gmail.com",
+                "testPassword", StandardCharsets.UTF_8);
+        mockMvc.perform(get("/ads/me")
+                        .header(HttpHeaders.AUTHORIZATION, authorization))
+                .andExpect(status().isOk());
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        mockMvc.perform(MockMvcRequestBuilders.patch("/ads/{id}", adEntity.getId())
+                        .header(HttpHeaders.AUTHORIZATION, authorization)
+                        .content(objectMapper.writeValueAsString(new CreateOrUpdateAd("updatedTitle", 77777, "updatedDescription")))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.author").value(adEntity.getUserEntity().getId()))
+                .andExpect(status().isOk());
+
+        Assertions.assertEquals(0, statistics.getQueryExecutionCount());
+        Assertions.assertEquals(0, statistics.getEntityStatistics(UserEntity.class.getName()).getLoadCount());
+    }
+
+    @Test
+    @DisplayName("Повторное получение объявления из кэша второго уровня и сброс кэша при изменении")
+    void shouldReadAdFromSecondLevelCacheUntilUpdated() throws Exception {
+
+        AdEntity adEntity = testService.createTestAd();
+        String authorization = "Basic " + HttpHeaders.encodeBasicAuth("testEmail@gmail.com",
+                "testPassword", StandardCharsets.UTF_8);
+        mockMvc.perform(get("/ads/{id}", adEntity.getId())
+                        .header(HttpHeaders.AUTHORIZATION, authorization))
+                .andExpect(status().isOk());
+        adDocumentCache.evict(adEntity.getId());
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        mockMvc.perform(get("/ads/{id}", adEntity.getId())
+                        .header(HttpHeaders.AUTHORIZATION, authorization))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.title").value("testTitle"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.authorFirstName").value("testFirstName"))
+                .andExpect(status().isOk());
+
+        Assertions.assertEquals(0, statistics.getPrepareStatementCount());
+        Assertions.assertTrue(statistics.getDomainDataRegionStatistics("ads").getHitCount() > 0);
+        Assertions.assertTrue(statistics.getDomainDataRegionStatistics("users").getHitCount() > 0);
+
+        mockMvc.perform(MockMvcRequestBuilders.patch("/ads/{id}", adEntity.getId())
+                        .header(HttpHeaders.AUTHORIZATION, authorization)
+                        .content(objectMapper.writeValueAsString(new CreateOrUpdateAd("updatedTitle", 77777, "updatedDescription")))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/ads/{id}", adEntity.getId())
+                        .header(HttpHeaders.AUTHORIZATION, authorization))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.title").value("updatedTitle"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    @DisplayName("Повторное получение объявления из кэша документов с ETag и ответ 304 при совпадении ETag")
+    void shouldServeAdDocumentFromCacheWithETag() throws Exception {
+
+        AdEntity adEntity = testService.createTestAd();
+        String authorization = "Basic " + HttpHeaders.encodeBasicAuth("testEmail@gmail.com",
+                "testPassword", StandardCharsets.UTF_8);
+        String eTag = mockMvc.perform(get("/ads/{id}", adEntity.getId())
+                        .header(HttpHeaders.AUTHORIZATION, authorization))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.header().exists(HttpHeaders.ETAG))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        mockMvc.perform(get("/ads/{id}", adEntity.getId())
+                        .header(HttpHeaders.AUTHORIZATION, authorization))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.ETAG, eTag))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.title").value("testTitle"));
+        mockMvc.perform(get("/ads/{id}", adEntity.getId())
+                        .header(HttpHeaders.AUTHORIZATION, authorization)
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
+
+        Assertions.assertEquals(0, statistics.getPrepareStatementCount());
+
+        mockMvc.perform(MockMvcRequestBuilders.patch("/ads/{id}", adEntity.getId())
+                        .header(HttpHeaders.AUTHORIZATION, authorization)
+                        .content(objectMapper.writeValueAsString(new CreateOrUpdateAd("updatedTitle", 77777, "updatedDescription")))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/ads/{id}", adEntity.getId())
+                        .header(HttpHeaders.AUTHORIZATION, authorization)
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.title").value("updatedTitle"));
+    }
+
+    @Test
+    @DisplayName("Сброс документа объявления из кэша при изменении данных автора")
+    void shouldEvictAdDocumentWhenAuthorUpdated() throws Exception {
+
+        AdEntity adEntity = testService.createTestAd();
+        String authorization = "Basic " + HttpHeaders.encodeBasicAuth("testEmail@gmail.com",
+                "testPassword", StandardCharsets.UTF_8);
+        mockMvc.perform(get("/ads/{id}", adEntity.getId())
+                        .header(HttpHeaders.AUTHORIZATION, authorization))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.authorFirstName").value("testFirstName"))
+                .andExpect(status().isOk());
+
+        UpdateUser updatedUser = new UpdateUser();
+        updatedUser.setFirstName("updatedFirstName");
+        updatedUser.setLastName("updatedLastName");
+        updatedUser.setPhone("+79555555555");
+        mockMvc.perform(MockMvcRequestBuilders.patch("/users/me")
+                        .header(HttpHeaders.AUTHORIZATION, authorization)
+                        .content(objectMapper.writeValueAsString(updatedUser))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/ads/{id}", adEntity.getId())
+                        .header(HttpHeaders.AUTHORIZATION, authorization))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.authorFirstName").value("updatedFirstName"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.authorLastName").value("updatedLastName"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.phone").value("+79555555555"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    @DisplayName("Повторное получение объявлений пользователя из кэша запросов и сброс кэша при удалении")
+    void shouldReadMyAdsFromQueryCacheUntilAdDeleted() throws Exception {
+
+        AdEntity adEntity = testService.createTestAd();
+        String authorization = "Basic " + HttpHeaders.encodeBasicAuth("testEmail@gmail.com",
+                "testPassword", StandardCharsets.UTF_8);
+        mockMvc.perform(get("/ads/me")
+                        .header(HttpHeaders.AUTHORIZATION, authorization))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.count").value(1))
+                .andExpect(status().isOk());
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        mockMvc.perform(get("/ads/me")
+                        .header(HttpHeaders.AUTHORIZATION, authorization))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.count").value(1))
+                .andExpect(status().isOk());
+
+        Assertions.assertEquals(0, statistics.getPrepareStatementCount());
+        Assertions.assertEquals(1, statistics.getQueryRegionStatistics("user-ads").getHitCount());
+
+        mockMvc.perform(MockMvcRequestBuilders.delete("/ads/{id}", adEntity.getId())
+                        .header(HttpHeaders.AUTHORIZATION, authorization))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/ads/me")
+                        .header(HttpHeaders.AUTHORIZATION, authorization))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.count").value(0))
+                .andExpect(status().isOk());
+    }
+
     @Test
     @DisplayName("Получение объявлений авторизованного пользователя")
     void shouldReturnMyAdsCollectionWhenCalled() throws Exception {
@@ -170,7 +478,7 @@ class AdvertisementControllerTest {
                 .andDo(MockMvcResultHandlers.print())
                 .andExpect(MockMvcResultMatchers.jsonPath("$.count").value(1))
                 .andExpect(MockMvcResultMatchers.jsonPath("$.results[0].author").value(adEntity.getUserEntity().getId()))
-                .andExpect(MockMvcResultMatchers.jsonPath("$.results[0].image").value("/ads/image/" + adEntity.getId()))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.results[0].image").value("/ads/image/" + adEntity.getId() + "?size=thumb"))
                 .andExpect(MockMvcResultMatchers.jsonPath("$.results[0].price").value(55555))
                 .andExpect(MockMvcResultMatchers.jsonPath("$.results[0].title").value("testTitle"))
                 .andExpect(status().isOk());
@@ -227,9 +535,26 @@ class AdvertisementControllerTest {
                 .andDo(MockMvcResultHandlers.print())
                 .andExpect(MockMvcResultMatchers.jsonPath("$.count").value(1))
                 .andExpect(MockMvcResultMatchers.jsonPath("$.results[0].author").value(adEntity.getUserEntity().getId()))
-                .andExpect(MockMvcResultMatchers.jsonPath("$.results[0].image").value("/ads/image/" + adEntity.getId()))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.results[0].image").value("/ads/image/" + adEntity.getId() + "?size=thumb"))
                 .andExpect(MockMvcResultMatchers.jsonPath("$.results[0].price").value(55555))
                 .andExpect(MockMvcResultMatchers.jsonPath("$.results[0].title").value("testTitle"))
                 .andExpect(status().isOk());
     }
+
+    @Test
+    @DisplayName("Поиск объявления с недопустимым номером страницы")
+    void shouldReturnBadRequestWhenSearchPageIsOutOfRange() throws Exception {
+
+        AdEntity adEntity = testService.createTestAd();
+
+        for (String page : new String[]{"-1", String.valueOf(Integer.MAX_VALUE)}) {
+            mockMvc.perform(MockMvcRequestBuilders.get("/ads/find/{title}", adEntity.getTitle())
+                            .param("page", page)
+                            .param("size", "100")
+                            .header(HttpHeaders.AUTHORIZATION,
+                                    "Basic " + HttpHeaders.encodeBasicAuth("testEmail@gmail.com",
+                                            "testPassword", StandardCharsets.UTF_8)))
+                    .andExpect(status().isBadRequest());
+        }
+    }
 }
@@ -3,23 +3,38 @@ package ru.skypro.homework.controller;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.*;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultHandlers;
+import ru.skypro.homework.dto.account.AuthTokens;
 import ru.skypro.homework.dto.account.Login;
+import ru.skypro.homework.dto.account.RefreshToken;
 import ru.skypro.homework.dto.account.Register;
 import ru.skypro.homework.dto.account.Role;
+import ru.skypro.homework.filter.BulkheadFilter;
+import ru.skypro.homework.limiter.AdaptiveConcurrencyLimiter;
+import ru.skypro.homework.limiter.RequestClass;
+import ru.skypro.homework.metrics.MetricsRegistry;
 import ru.skypro.homework.model.UserEntity;
 import ru.skypro.homework.repository.UserRepository;
 import ru.skypro.homework.service.TestService;
 
 import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
 
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
@@ -35,6 +50,13 @@ class AuthControllerTest {
     private TestService testService;
     @Autowired
     private PasswordEncoder passwordEncoder;
+    @Autowired
+    private BulkheadFilter bulkheadFilter;
+    @Autowired
+    @Qualifier("passwordExecutor")
+    private ThreadPoolTaskExecutor passwordExecutor;
+    @Autowired
+    private MetricsRegistry metricsRegistry;
 
     @AfterEach
     public void clearDB() {
@@ -51,7 +73,7 @@ class AuthControllerTest {
         login.setPassword("testPassword");
         login.setUsername("testEmail@gmail.com");
 
-        mockMvc.perform(MockMvcRequestBuilders.post("/login")
+        performAsync(MockMvcRequestBuilders.post("/login")
                         .header(HttpHeaders.AUTHORIZATION,
                                 "Basic " + HttpHeaders.encodeBasicAuth("testEmail@gmail.com",
                                         "testPassword", StandardCharsets.UTF_8))
@@ -61,6 +83,66 @@ class AuthControllerTest {
                 .andExpect(status().isOk());
     }
 
+    @Test
+    @DisplayName(value = "Доступ по токену, выданному при авторизации")
+    void shouldAuthenticateWithIssuedAccessToken() throws Exception {
+
+        testService.createTestUser();
+
+        Login login = new Login();
+        login.setPassword("testPassword");
+        login.setUsername("testEmail@gmail.com");
+
+        MvcResult result = performAsync(MockMvcRequestBuilders.post("/login")
+                        .content(objectMapper.writeValueAsString(login))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.tokenType").value("Bearer"))
+                .andReturn();
+        AuthTokens tokens = objectMapper.readValue(result.getResponse().getContentAsString(), AuthTokens.class);
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/users/me")
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + tokens.getAccessToken()))
+                .andExpect(jsonPath("$.email").value("testEmail@gmail.com"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/users/me")
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + tokens.getRefreshToken()))
+                .andExpect(status().isUnauthorized());
+
+        RefreshToken refreshToken = new RefreshToken();
+        refreshToken.setRefreshToken(tokens.getRefreshToken());
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/refresh")
+                        .content(objectMapper.writeValueAsString(refreshToken))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.accessToken").isNotEmpty())
+                .andExpect(status().isOk());
+
+        refreshToken.setRefreshToken(tokens.getAccessToken());
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/refresh")
+                        .content(objectMapper.writeValueAsString(refreshToken))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    @DisplayName(value = "Авторизация с неверным паролем")
+    void shouldReturnUnauthorizedWhenPasswordIsWrong() throws Exception {
+
+        testService.createTestUser();
+
+        Login login = new Login();
+        login.setPassword("wrongPassword");
+        login.setUsername("testEmail@gmail.com");
+
+        performAsync(MockMvcRequestBuilders.post("/login")
+                        .content(objectMapper.writeValueAsString(login))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isUnauthorized());
+    }
+
     @Test
     @DisplayName(value = "Регистрация пользователя")
     void shouldReturnCreatedWhenRegistryPassed() throws Exception {
@@ -73,7 +155,7 @@ class AuthControllerTest {
         register.setPhone("+79444444444");
         register.setRole(Role.USER);
 
-        mockMvc.perform(MockMvcRequestBuilders.post("/register")
+        performAsync(MockMvcRequestBuilders.post("/register")
                 .content(objectMapper.writeValueAsString(register))
                 .contentType(MediaType.APPLICATION_JSON))
                 .andDo(MockMvcResultHandlers.print())
@@ -89,4 +171,88 @@ class AuthControllerTest {
         Assertions.assertEquals(newUser.getPhoneUser(), register.getPhone());
         Assertions.assertEquals(newUser.getRole(), register.getRole());
     }
+
+    @Test
+    @DisplayName(value = "Запросы авторизации сверх предела отклоняются, не затрагивая чтение объявлений")
+    void shouldRejectAuthRequestsWhenBulkheadSaturated() throws Exception {
+
+        Login login = new Login();
+        login.setPassword("testPassword");
+        login.setUsername("testEmail@gmail.com");
+
+        AdaptiveConcurrencyLimiter limiter = bulkheadFilter.getLimiter(RequestClass.AUTH);
+        int acquired = 0;
+        while (limiter.tryAcquire()) {
+            acquired++;
+        }
+        try {
+            mockMvc.perform(MockMvcRequestBuilders.post("/login")
+                            .content(objectMapper.writeValueAsString(login))
+                            .contentType(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"));
+            mockMvc.perform(MockMvcRequestBuilders.get("/ads"))
+                    .andExpect(status().isOk());
+        } finally {
+            for (int i = 0; i < acquired; i++) {
+                limiter.release(0, false);
+            }
+        }
+        Assertions.assertEquals(0, limiter.getInflight());
+    }
+
+    @Test
+    @DisplayName(value = "Вход отклоняется, когда очередь хеширования паролей заполнена")
+    void shouldRejectLoginWhenPasswordHashingQueueIsFull() throws Exception {
+
+        testService.createTestUser();
+
+        Login login = new Login();
+        login.setPassword("testPassword");
+        login.setUsername("testEmail@gmail.com");
+
+        CountDownLatch release = new CountDownLatch(1);
+        Runnable blocker = () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        try {
+            for (int i = 0; i < passwordExecutor.getMaxPoolSize(); i++) {
+                passwordExecutor.execute(blocker);
+            }
+            while (passwordExecutor.getActiveCount() < passwordExecutor.getMaxPoolSize()) {
+                Thread.sleep(10);
+            }
+            for (int i = passwordExecutor.getThreadPoolExecutor().getQueue().remainingCapacity(); i > 0; i--) {
+                passwordExecutor.execute(blocker);
+            }
+
+            mockMvc.perform(MockMvcRequestBuilders.post("/login")
+                            .content(objectMapper.writeValueAsString(login))
+                            .contentType(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"));
+        } finally {
+            release.countDown();
+        }
+        Assertions.assertTrue(metricsRegistry.scrape().contains("password_hashing_rejected_total{operation=\"matches\"}"));
+
+        performAsync(MockMvcRequestBuilders.post("/login")
+                        .content(objectMapper.writeValueAsString(login))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+    }
+
+    /**
+     * Выполнение запроса к эндпоинту с асинхронным ответом и ожидание результата
+     */
+    private ResultActions performAsync(RequestBuilder requestBuilder) throws Exception {
+        MvcResult result = mockMvc.perform(requestBuilder)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result));
+    }
 }
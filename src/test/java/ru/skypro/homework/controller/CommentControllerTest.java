@@ -3,6 +3,8 @@ package ru.skypro.homework.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.hamcrest.Matchers;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.DisplayName;
@@ -19,13 +21,17 @@ import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 import ru.skypro.homework.dto.comment.CreateOrUpdateComment;
 import ru.skypro.homework.model.AdEntity;
 import ru.skypro.homework.model.CommentEntity;
+import ru.skypro.homework.model.UserEntity;
 import ru.skypro.homework.repository.AdRepository;
 import ru.skypro.homework.repository.CommentRepository;
 import ru.skypro.homework.repository.UserRepository;
 import ru.skypro.homework.service.TestService;
 
+import javax.persistence.EntityManagerFactory;
 import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -44,6 +50,8 @@ class CommentControllerTest {
     private AdRepository adRepository;
     @Autowired
     private TestService testService;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
 
     @AfterEach
     public void resetDb() {
@@ -73,6 +81,39 @@ class CommentControllerTest {
                 .andExpect(status().isOk());
     }
 
+    @Test
+    @DisplayName("Получение комментариев объявления по страницам")
+    void shouldReturnCommentsPageWhenPageAndSizeGiven() throws Exception {
+
+        List<CommentEntity> commentEntityList = testService.createTestComments(3);
+        int adId = commentEntityList.get(0).getAdEntity().getId();
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/ads/{id}/comments", adId)
+                        .param("size", "2")
+                        .header(HttpHeaders.AUTHORIZATION,
+                                "Basic " + HttpHeaders.encodeBasicAuth("testEmail@gmail.com",
+                                        "testPassword", StandardCharsets.UTF_8)))
+                .andDo(MockMvcResultHandlers.print())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.count").value(2))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.results[0].pk").value(commentEntityList.get(0).getId()))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.results[1].pk").value(commentEntityList.get(1).getId()))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.next").value(1))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/ads/{id}/comments", adId)
+                        .param("size", "2")
+                        .param("page", "1")
+                        .header(HttpHeaders.AUTHORIZATION,
+                                "Basic " + HttpHeaders.encodeBasicAuth("testEmail@gmail.com",
+                                        "testPassword", StandardCharsets.UTF_8)))
+                .andDo(MockMvcResultHandlers.print())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.count").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.results[0].pk").value(commentEntityList.get(2).getId()))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.results[0].authorFirstName").value("testFirstName"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.next").doesNotExist())
+                .andExpect(status().isOk());
+    }
+
     @Test
     @DisplayName("Добавление комментария к объявлению")
     void shouldReturnCommentWhenAddCommentCalled() throws Exception {
@@ -81,6 +122,8 @@ class CommentControllerTest {
         createOrUpdateComment.setText("createdTestText");
 
         AdEntity adEntity = testService.createTestAd();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
 
         mockMvc.perform(MockMvcRequestBuilders.post("/ads/{id}/comments", adEntity.getId())
                         .content(objectMapper.writeValueAsString(createOrUpdateComment))
@@ -95,6 +138,8 @@ class CommentControllerTest {
                 .andExpect(MockMvcResultMatchers.jsonPath("$.createdAt").value(Matchers.lessThan(Instant.now().toEpochMilli())))
                 .andExpect(MockMvcResultMatchers.jsonPath("$.text").value("createdTestText"))
                 .andExpect(status().isOk());
+
+        Assertions.assertEquals(0, statistics.getEntityStatistics(UserEntity.class.getName()).getFetchCount());
     }
 
     @Test
@@ -137,4 +182,120 @@ class CommentControllerTest {
                 .andExpect(MockMvcResultMatchers.jsonPath("$.text").value("updatedTestText"))
                 .andExpect(status().isOk());
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Добавление нескольких комментариев пакетной вставкой")
+    void shouldInsertCommentsInBatchWhenAddCommentsCalled() throws Exception {
+
+        AdEntity adEntity = testService.createTestAd();
+        List<CreateOrUpdateComment> createOrUpdateComments = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            CreateOrUpdateComment createOrUpdateComment = new CreateOrUpdateComment();
+            createOrUpdateComment.setText("batchText" + i);
+            createOrUpdateComments.add(createOrUpdateComment);
+        }
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/ads/{id}/comments/batch", adEntity.getId())
+                        .content(objectMapper.writeValueAsString(createOrUpdateComments))
+                        .header(HttpHeaders.AUTHORIZATION,
+                                "Basic " + HttpHeaders.encodeBasicAuth("testEmail@gmail.com",
+                                        "testPassword", StandardCharsets.UTF_8))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.count").value(20))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.results[19].text").value("batchText19"))
+                .andExpect(status().isOk());
+
+        Assertions.assertEquals(20, statistics.getEntityStatistics(CommentEntity.class.getName()).getInsertCount());
+        Assertions.assertTrue(statistics.getPrepareStatementCount() < 10);
+        Assertions.assertEquals(20, commentRepository.findCommentEntitiesByAdEntity_Id(adEntity.getId()).size());
+    }
+
+    @Test
+    @DisplayName("Пустой пакет комментариев отклоняется")
+    void shouldReturnBadRequestWhenAddCommentsCalledWithEmptyList() throws Exception {
+
+        AdEntity adEntity = testService.createTestAd();
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/ads/{id}/comments/batch", adEntity.getId())
+                        .content("[]")
+                        .header(HttpHeaders.AUTHORIZATION,
+                                "Basic " + HttpHeaders.encodeBasicAuth("testEmail@gmail.com",
+                                        "testPassword", StandardCharsets.UTF_8))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Комментарии удаляются вместе с объявлением одним запросом")
+    void shouldDeleteCommentsInBulkWhenAdDeleted() throws Exception {
+
+        List<CommentEntity> commentEntityList = testService.createTestComments(3);
+        int adId = commentEntityList.get(0).getAdEntity().getId();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        mockMvc.perform(MockMvcRequestBuilders.delete("/ads/{id}", adId)
+                        .header(HttpHeaders.AUTHORIZATION,
+                                "Basic " + HttpHeaders.encodeBasicAuth("testEmail@gmail.com",
+                                        "testPassword", StandardCharsets.UTF_8)))
+                .andExpect(status().isOk());
+
+        Assertions.assertEquals(0, statistics.getEntityStatistics(CommentEntity.class.getName()).getLoadCount());
+        Assertions.assertEquals(0, statistics.getEntityStatistics(CommentEntity.class.getName()).getDeleteCount());
+        Assertions.assertTrue(commentRepository.findCommentEntitiesByAdEntity_Id(adId).isEmpty());
+        Assertions.assertFalse(adRepository.findById(adId).isPresent());
+    }
+
+    @Test
+    @DisplayName("Счётчик комментариев объявления изменяется без очистки кэша второго уровня")
+    void shouldMaintainCommentCountWhenCommentsAddedAndDeleted() throws Exception {
+
+        List<AdEntity> adEntityList = testService.createTestAds(2);
+        int adId = adEntityList.get(0).getId();
+        int otherAdId = adEntityList.get(1).getId();
+        String authorization = "Basic " + HttpHeaders.encodeBasicAuth("testEmail0@gmail.com",
+                "testPassword", StandardCharsets.UTF_8);
+        mockMvc.perform(MockMvcRequestBuilders.get("/ads/{id}", otherAdId)
+                        .header(HttpHeaders.AUTHORIZATION, authorization))
+                .andExpect(status().isOk());
+        List<CreateOrUpdateComment> createOrUpdateComments = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            CreateOrUpdateComment createOrUpdateComment = new CreateOrUpdateComment();
+            createOrUpdateComment.setText("batchText" + i);
+            createOrUpdateComments.add(createOrUpdateComment);
+        }
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/ads/{id}/comments/batch", adId)
+                        .content(objectMapper.writeValueAsString(createOrUpdateComments))
+                        .header(HttpHeaders.AUTHORIZATION, authorization)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+        String comment = mockMvc.perform(MockMvcRequestBuilders.post("/ads/{id}/comments", adId)
+                        .content(objectMapper.writeValueAsString(createOrUpdateComments.get(0)))
+                        .header(HttpHeaders.AUTHORIZATION, authorization)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        mockMvc.perform(MockMvcRequestBuilders.get("/ads/{id}", adId)
+                        .header(HttpHeaders.AUTHORIZATION, authorization))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.commentCount").value(3))
+                .andExpect(status().isOk());
+        int commentId = objectMapper.readTree(comment).get("pk").asInt();
+        mockMvc.perform(MockMvcRequestBuilders.delete("/ads/{adId}/comments/{commentId}", adId, commentId)
+                        .header(HttpHeaders.AUTHORIZATION, authorization))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/ads/{id}", adId)
+                        .header(HttpHeaders.AUTHORIZATION, authorization))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.commentCount").value(2))
+                .andExpect(status().isOk());
+        mockMvc.perform(MockMvcRequestBuilders.get("/ads")
+                        .header(HttpHeaders.AUTHORIZATION, authorization))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.results[0].commentCount").value(2))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.results[1].commentCount").value(0))
+                .andExpect(status().isOk());
+        Assertions.assertTrue(entityManagerFactory.getCache().contains(AdEntity.class, otherAdId));
+    }
+}
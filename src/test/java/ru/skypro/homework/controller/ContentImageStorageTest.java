@@ -0,0 +1,140 @@
+package ru.skypro.homework.controller;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.skypro.homework.model.AdEntity;
+import ru.skypro.homework.repository.ImageRefRepository;
+import ru.skypro.homework.service.FileService;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "images.storage.mode=content")
+@AutoConfigureMockMvc
+class ContentImageStorageTest extends AbstractImageStorageTest {
+    @Autowired
+    private ImageRefRepository imageRefRepository;
+    @Value("${images.storage.content-dir}")
+    private String contentDir;
+
+    @Override
+    protected Path blockImageTarget(byte[] imageBytes) throws IOException, NoSuchAlgorithmException {
+        String hash = String.format("%064x", new BigInteger(1, MessageDigest.getInstance("SHA-256").digest(imageBytes)));
+        Path blockingFile = Path.of(contentDir, hash.substring(0, 2), hash.substring(2, 4));
+        Files.createDirectories(blockingFile.getParent());
+        return Files.write(blockingFile, new byte[0]);
+    }
+
+    @Test
+    @DisplayName("Одинаковые картинки разных объявлений хранятся в одном файле до удаления последнего объявления")
+    void shouldStoreSameImageOnceUntilLastAdDeleted() throws Exception {
+
+        AdEntity firstAd = testService.createTestAd();
+        AdEntity secondAd = new AdEntity();
+        secondAd.setDescription("testDescription");
+        secondAd.setPrice(55555);
+        secondAd.setTitle("testTitle");
+        secondAd.setUserEntity(firstAd.getUserEntity());
+        adRepository.save(secondAd);
+        String authorization = "Basic " + HttpHeaders.encodeBasicAuth("testEmail@gmail.com",
+                "testPassword", StandardCharsets.UTF_8);
+
+        for (AdEntity adEntity : List.of(firstAd, secondAd)) {
+            mockMvc.perform(multipart(HttpMethod.PATCH, "/ads/{id}/image", adEntity.getId())
+                            .file(new MockMultipartFile("image", "image.png", MediaType.IMAGE_PNG_VALUE, "shared".getBytes()))
+                            .header(HttpHeaders.AUTHORIZATION, authorization))
+                    .andExpect(status().isOk());
+        }
+        String imagePath = adRepository.findById(firstAd.getId()).orElseThrow().getImagePath();
+        Assertions.assertEquals(imagePath, adRepository.findById(secondAd.getId()).orElseThrow().getImagePath());
+
+        mockMvc.perform(MockMvcRequestBuilders.delete("/ads/{id}", firstAd.getId())
+                        .header(HttpHeaders.AUTHORIZATION, authorization))
+                .andExpect(status().isOk());
+        Assertions.assertTrue(Files.exists(Path.of(imagePath)));
+
+        mockMvc.perform(MockMvcRequestBuilders.delete("/ads/{id}", secondAd.getId())
+                        .header(HttpHeaders.AUTHORIZATION, authorization))
+                .andExpect(status().isOk());
+        Assertions.assertFalse(Files.exists(Path.of(imagePath)));
+    }
+
+    @Test
+    @DisplayName("Файл картинки не удаляется, если её загрузили заново до удаления файла")
+    void shouldKeepImageFileWhenUploadedAgainBeforeDeletion() throws Exception {
+
+        MockMultipartFile image = new MockMultipartFile("image", "image.png", MediaType.IMAGE_PNG_VALUE, "again".getBytes());
+        FileService.StagedImage upload = fileService.stageImage(image, Path.of(image.getOriginalFilename()));
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        String imagePath = transactionTemplate.execute(status -> fileService.commitImage(upload).toString());
+        Assertions.assertTrue(Files.exists(Path.of(imagePath)));
+
+        FileService.StagedImage reupload = fileService.stageImage(image, Path.of(image.getOriginalFilename()));
+        TransactionTemplate newTransaction = new TransactionTemplate(transactionManager);
+        newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        transactionTemplate.executeWithoutResult(status -> {
+            Assertions.assertTrue(fileService.deleteImage(imagePath));
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public int getOrder() {
+                    return Ordered.HIGHEST_PRECEDENCE;
+                }
+
+                @Override
+                public void afterCommit() {
+                    newTransaction.execute(reuploadStatus -> fileService.commitImage(reupload));
+                }
+            });
+        });
+
+        Assertions.assertTrue(Files.exists(Path.of(imagePath)));
+        transactionTemplate.execute(status -> fileService.deleteImage(imagePath));
+        Assertions.assertFalse(Files.exists(Path.of(imagePath)));
+    }
+
+    @Test
+    @DisplayName("Файл картинки восстанавливается при повторной загрузке, если ссылка есть, а файла нет")
+    void shouldRestoreMissingImageFileWhenUploadedAgain() throws Exception {
+
+        MockMultipartFile image = new MockMultipartFile("image", "image.png", MediaType.IMAGE_PNG_VALUE, "lost".getBytes());
+        FileService.StagedImage upload = fileService.stageImage(image, Path.of(image.getOriginalFilename()));
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        Path imagePath = transactionTemplate.execute(status -> fileService.commitImage(upload));
+        Files.delete(imagePath);
+
+        FileService.StagedImage reupload = fileService.stageImage(image, Path.of(image.getOriginalFilename()));
+        Assertions.assertEquals(imagePath, transactionTemplate.execute(status -> fileService.commitImage(reupload)));
+
+        Assertions.assertArrayEquals("lost".getBytes(), Files.readAllBytes(imagePath));
+        Assertions.assertEquals(2, imageRefRepository.findRefCount(imagePath.getFileName().toString()));
+        transactionTemplate.execute(status -> fileService.deleteImage(imagePath.toString()));
+        Assertions.assertTrue(Files.exists(imagePath));
+        transactionTemplate.execute(status -> fileService.deleteImage(imagePath.toString()));
+        Assertions.assertFalse(Files.exists(imagePath));
+        Assertions.assertFalse(imageRefRepository.existsById(imagePath.getFileName().toString()));
+    }
+}
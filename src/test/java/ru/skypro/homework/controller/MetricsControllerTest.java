@@ -0,0 +1,96 @@
+package ru.skypro.homework.controller;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import ru.skypro.homework.dto.account.Role;
+import ru.skypro.homework.model.AdEntity;
+import ru.skypro.homework.model.UserEntity;
+import ru.skypro.homework.repository.AdRepository;
+import ru.skypro.homework.repository.UserRepository;
+import ru.skypro.homework.service.TestService;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class MetricsControllerTest {
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private AdRepository adRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private TestService testService;
+
+    @AfterEach
+    public void clearDB() {
+        adRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("Выгрузка метрик сервисов, репозиториев и HTTP-запросов")
+    void shouldReturnMetricsWhenCalledByAdmin() throws Exception {
+
+        AdEntity adEntity = testService.createTestAd();
+        createAdmin();
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/ads/" + adEntity.getId())
+                        .header(HttpHeaders.AUTHORIZATION, adminAuthorization()))
+                .andExpect(status().isOk());
+
+        String metrics = mockMvc.perform(MockMvcRequestBuilders.get("/metrics")
+                        .header(HttpHeaders.AUTHORIZATION, adminAuthorization()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        Assertions.assertTrue(metrics.contains("# TYPE service_method_seconds histogram"));
+        Assertions.assertTrue(metrics.contains("service_method_seconds_count{class=\"AdServiceImpl\","
+                + "exception=\"none\",method=\"getAdvertisingDocumentById\"}"));
+        Assertions.assertTrue(metrics.contains("repository_method_seconds_count{class=\"AdRepository\","));
+        Assertions.assertTrue(metrics.contains("http_server_requests_statements_count{method=\"GET\",uri=\"/ads/{id}\"}"));
+        Assertions.assertTrue(metrics.contains("hikaricp_connections_active{pool="));
+        Assertions.assertTrue(metrics.contains("cache_gets_total{cache=\"authentication\",result=\"hit\"}"));
+        Assertions.assertTrue(metrics.contains("cache_size{cache=\"hibernate.ads\"}"));
+        Assertions.assertTrue(metrics.contains("cache_gets_total{cache=\"ad-documents\",result=\"miss\"}"));
+    }
+
+    @Test
+    @DisplayName("Метрики недоступны обычному пользователю")
+    void shouldReturnForbiddenWhenCalledByUser() throws Exception {
+
+        testService.createTestUser();
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/metrics")
+                        .header(HttpHeaders.AUTHORIZATION,
+                                "Basic " + HttpHeaders.encodeBasicAuth("testEmail@gmail.com",
+                                        "testPassword", StandardCharsets.UTF_8)))
+                .andExpect(status().isForbidden());
+    }
+
+    private void createAdmin() {
+        UserEntity userEntity = new UserEntity();
+        userEntity.setEmail("metricsAdmin@gmail.com");
+        userEntity.setPassword("$2a$12$nbPi.P3rcqDsL4xDcVru2OXnqZX81vVvUvaFRONeYDnyaeK4c/TbS");
+        userEntity.setFirstName("adminFirstName");
+        userEntity.setLastName("adminLastName");
+        userEntity.setPhoneUser("+77777777778");
+        userEntity.setRole(Role.ADMIN);
+        userRepository.save(userEntity);
+    }
+
+    private static String adminAuthorization() {
+        return "Basic " + HttpHeaders.encodeBasicAuth("metricsAdmin@gmail.com", "testPassword", StandardCharsets.UTF_8);
+    }
+}
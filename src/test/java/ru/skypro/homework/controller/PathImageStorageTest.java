@@ -0,0 +1,25 @@
+package ru.skypro.homework.controller;
+
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+@SpringBootTest(properties = {
+        "images.storage.mode=path",
+        "ad.image.dir.path=target/path-storage/ad"
+})
+@AutoConfigureMockMvc
+class PathImageStorageTest extends AbstractImageStorageTest {
+
+    @Override
+    protected Path blockImageTarget(byte[] imageBytes) throws IOException {
+        Path adImageDir = Path.of(adImageDirPath);
+        FileSystemUtils.deleteRecursively(adImageDir);
+        Files.createDirectories(adImageDir.getParent());
+        return Files.write(adImageDir, new byte[0]);
+    }
+}
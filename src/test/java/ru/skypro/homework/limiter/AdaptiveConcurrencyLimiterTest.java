@@ -0,0 +1,83 @@
+package ru.skypro.homework.limiter;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class AdaptiveConcurrencyLimiterTest {
+    private static final long RTT = 10_000_000;
+
+    @Test
+    @DisplayName("Запросы сверх предела отклоняются, освобождённое разрешение снова доступно")
+    void shouldRejectWhenLimitReached() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 10);
+
+        Assertions.assertTrue(limiter.tryAcquire());
+        Assertions.assertTrue(limiter.tryAcquire());
+        Assertions.assertFalse(limiter.tryAcquire());
+        Assertions.assertEquals(1, limiter.getRejected());
+
+        limiter.release(RTT, false);
+
+        Assertions.assertTrue(limiter.tryAcquire());
+    }
+
+    @Test
+    @DisplayName("Предел растёт при стабильном времени ответа и уменьшается при его росте")
+    void shouldAdaptLimitToLatency() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 2, 100);
+
+        saturate(limiter, RTT, 50);
+        int grown = limiter.getLimit();
+        Assertions.assertTrue(grown > 10, "limit " + grown);
+
+        saturate(limiter, 10 * RTT, 1);
+        int shrunk = limiter.getLimit();
+        Assertions.assertTrue(shrunk < grown, "limit " + shrunk + " after " + grown);
+    }
+
+    @Test
+    @DisplayName("Предел не растёт, пока занято меньше половины разрешений")
+    void shouldNotGrowWhenUnderused() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 2, 100);
+
+        for (int i = 0; i < 50; i++) {
+            limiter.tryAcquire();
+            limiter.release(RTT, false);
+        }
+
+        Assertions.assertEquals(10, limiter.getLimit());
+    }
+
+    @Test
+    @DisplayName("Ошибка сервера уменьшает предел, но не ниже минимального")
+    void shouldBackOffOnDrop() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 8, 100);
+
+        limiter.tryAcquire();
+        limiter.release(RTT, true);
+        Assertions.assertEquals(9, limiter.getLimit());
+
+        for (int i = 0; i < 10; i++) {
+            limiter.tryAcquire();
+            limiter.release(RTT, true);
+        }
+        Assertions.assertEquals(8, limiter.getLimit());
+        Assertions.assertEquals(0, limiter.getInflight());
+    }
+
+    /**
+     * Раунды, в каждом из которых заняты все разрешения, с одинаковым временем ответа
+     */
+    private static void saturate(AdaptiveConcurrencyLimiter limiter, long rtt, int rounds) {
+        for (int round = 0; round < rounds; round++) {
+            int acquired = 0;
+            while (limiter.tryAcquire()) {
+                acquired++;
+            }
+            for (int i = 0; i < acquired; i++) {
+                limiter.release(rtt, false);
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package ru.skypro.homework.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.skypro.homework.model.AdEntity;
+import ru.skypro.homework.model.CommentEntity;
+import ru.skypro.homework.service.TestService;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Проверка планов выполнения запросов к комментариям и объявлениям:
+ * запросы по внешним ключам должны использовать индексы, а не полный просмотр таблицы
+ */
+@SpringBootTest
+class QueryPlanTest {
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private CommentRepository commentRepository;
+    @Autowired
+    private AdRepository adRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private TestService testService;
+
+    private int adId;
+
+    /**
+     * На пустых таблицах оптимизатор предпочитает полный просмотр, поэтому перед проверкой
+     * таблицы заполняются и для них пересчитывается статистика
+     */
+    @BeforeEach
+    public void fillDB() {
+        List<AdEntity> adEntityList = testService.createTestAds(20);
+        List<CommentEntity> commentEntityList = new ArrayList<>();
+        for (AdEntity adEntity : adEntityList) {
+            for (int i = 0; i < 25; i++) {
+                CommentEntity commentEntity = new CommentEntity();
+                commentEntity.setText("testText" + i);
+                commentEntity.setCreatedAt((long) i);
+                commentEntity.setUserEntity(adEntity.getUserEntity());
+                commentEntity.setAdEntity(adEntity);
+                commentEntityList.add(commentEntity);
+            }
+        }
+        commentRepository.saveAll(commentEntityList);
+        adId = adEntityList.get(0).getId();
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    @AfterEach
+    public void clearDB() {
+        commentRepository.deleteAll();
+        adRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    /**
+     * H2, в отличие от PostgreSQL, сам создаёт индекс для каждого внешнего ключа и может выбрать его
+     * вместо составного индекса, поэтому для комментариев проверяется поиск по ad_id без полного просмотра
+     * и наличие составного индекса с нужным порядком колонок
+     */
+    @Test
+    @DisplayName("Запросы комментариев объявления выполняются по индексу ad_id")
+    void shouldUseAdIdIndexForCommentQueries() {
+        assertUsesIndexOn("AD_ID = " + adId,
+                "SELECT c.id, c.text, c.created_at, u.id, u.first_name FROM comments c " +
+                        "JOIN users u ON u.id = c.user_id " +
+                        "WHERE c.ad_id = " + adId + " ORDER BY c.created_at, c.id LIMIT 51");
+        assertUsesIndexOn("AD_ID = " + adId, "SELECT * FROM comments WHERE ad_id = " + adId);
+        assertUsesIndexOn("AD_ID = " + adId, "DELETE FROM comments WHERE ad_id = " + adId);
+        assertUsesIndexOn("ID = 1", "SELECT * FROM comments WHERE id = 1 AND ad_id = " + adId);
+        Assertions.assertEquals(List.of("AD_ID", "CREATED_AT", "ID"), jdbcTemplate.queryForList(
+                "SELECT COLUMN_NAME FROM INFORMATION_SCHEMA.INDEX_COLUMNS " +
+                        "WHERE INDEX_NAME = 'COMMENTS_AD_ID_CREATED_AT_IDX' ORDER BY ORDINAL_POSITION", String.class));
+    }
+
+    @Test
+    @DisplayName("Объявления пользователя читаются по индексу ads(user_id)")
+    void shouldUseUserIdIndexForUserAds() {
+        assertUsesIndexOn("ADS_USER_ID_IDX",
+                "SELECT a.* FROM ads a JOIN users u ON u.id = a.user_id " +
+                        "WHERE u.email_user = 'testEmail0@gmail.com'");
+    }
+
+    private void assertUsesIndexOn(String expected, String sql) {
+        String plan = jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class);
+        Assertions.assertNotNull(plan);
+        Assertions.assertFalse(plan.contains("tableScan"), plan);
+        Assertions.assertTrue(plan.contains(expected), plan);
+    }
+}
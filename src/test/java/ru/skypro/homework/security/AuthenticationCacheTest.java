@@ -0,0 +1,53 @@
+package ru.skypro.homework.security;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.skypro.homework.dto.account.Role;
+
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+
+class AuthenticationCacheTest {
+
+    @Test
+    @DisplayName("Аутентификация, загруженная до удаления записи, в кэш не попадает")
+    void shouldDropPutStartedBeforeEviction() throws GeneralSecurityException {
+        AuthenticationCache authenticationCache = new AuthenticationCache(Duration.ofMinutes(5), 100);
+        long generation = authenticationCache.generation("testEmail@gmail.com");
+
+        authenticationCache.evict("testEmail@gmail.com");
+        authenticationCache.put("testEmail@gmail.com", "testPassword", securityUser(), generation);
+
+        Assertions.assertNull(authenticationCache.get("testEmail@gmail.com", "testPassword"));
+
+        authenticationCache.put("testEmail@gmail.com", "newTestPassword", securityUser(),
+                authenticationCache.generation("testEmail@gmail.com"));
+        Assertions.assertNotNull(authenticationCache.get("testEmail@gmail.com", "newTestPassword"));
+        Assertions.assertNull(authenticationCache.get("testEmail@gmail.com", "testPassword"));
+    }
+
+    @Test
+    @DisplayName("Кэш аутентификаций не хранит хэш пароля")
+    void shouldCacheUserWithoutPasswordHash() throws GeneralSecurityException {
+        AuthenticationCache authenticationCache = new AuthenticationCache(Duration.ofMinutes(5), 100);
+
+        authenticationCache.put("testEmail@gmail.com", "testPassword", securityUser(),
+                authenticationCache.generation("testEmail@gmail.com"));
+
+        SecurityUser cached = authenticationCache.get("testEmail@gmail.com", "testPassword");
+        Assertions.assertNotNull(cached);
+        Assertions.assertNull(cached.getPassword());
+        Assertions.assertEquals(1, cached.getId());
+        Assertions.assertEquals(Role.USER, cached.getRole());
+    }
+
+    private static SecurityUser securityUser() {
+        SecurityUserDto securityUserDto = new SecurityUserDto();
+        securityUserDto.setId(1);
+        securityUserDto.setUserName("testEmail@gmail.com");
+        securityUserDto.setPassword("$2a$10$bcryptHash");
+        securityUserDto.setRole(Role.USER);
+        return new SecurityUser(securityUserDto);
+    }
+}
@@ -0,0 +1,26 @@
+package ru.skypro.homework.security;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Base64;
+
+class TokenServiceTest {
+
+    @Test
+    @DisplayName("Без ключа подписи или с ключом короче 256 бит сервис не создаётся")
+    void shouldRejectMissingOrShortSecret() {
+        String shortSecret = Base64.getEncoder().encodeToString(new byte[31]);
+
+        Assertions.assertThrows(IllegalStateException.class, () -> tokenService(""));
+        Assertions.assertThrows(IllegalStateException.class, () -> tokenService("not base64!"));
+        Assertions.assertThrows(IllegalStateException.class, () -> tokenService(shortSecret));
+        Assertions.assertDoesNotThrow(() -> tokenService(Base64.getEncoder().encodeToString(new byte[32])));
+    }
+
+    private static TokenService tokenService(String secret) {
+        return new TokenService(secret, Duration.ofMinutes(15), Duration.ofDays(14));
+    }
+}
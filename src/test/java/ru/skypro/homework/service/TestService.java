@@ -11,6 +11,8 @@ import ru.skypro.homework.repository.CommentRepository;
 import ru.skypro.homework.repository.UserRepository;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 
 @Service
 @RequiredArgsConstructor
@@ -53,6 +55,28 @@ public class TestService {
         return adEntity;
     }
 
+    public List<AdEntity> createTestAds(int count) {
+        List<AdEntity> adEntityList = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            UserEntity userEntity = new UserEntity();
+            userEntity.setEmail("testEmail" + i + "@gmail.com");
+            userEntity.setPassword("$2a$12$nbPi.P3rcqDsL4xDcVru2OXnqZX81vVvUvaFRONeYDnyaeK4c/TbS");
+            userEntity.setFirstName("testFirstName" + i);
+            userEntity.setLastName("testLastName" + i);
+            userEntity.setPhoneUser("+77777777777");
+            userEntity.setRole(Role.USER);
+            userRepository.save(userEntity);
+
+            AdEntity adEntity = new AdEntity();
+            adEntity.setDescription("testDescription" + i);
+            adEntity.setPrice(55555 + i);
+            adEntity.setTitle("testTitle" + i);
+            adEntity.setUserEntity(userEntity);
+            adEntityList.add(adRepository.save(adEntity));
+        }
+        return adEntityList;
+    }
+
     public CommentEntity createTestComment() {
         UserEntity userEntity = new UserEntity();
         userEntity.setEmail("testEmail@gmail.com");
@@ -80,4 +104,18 @@ public class TestService {
         commentRepository.save(commentEntity);
         return commentEntity;
     }
+
+    public List<CommentEntity> createTestComments(int count) {
+        AdEntity adEntity = createTestAd();
+        List<CommentEntity> commentEntityList = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            CommentEntity commentEntity = new CommentEntity();
+            commentEntity.setText("testText" + i);
+            commentEntity.setCreatedAt(Instant.now().toEpochMilli() + i);
+            commentEntity.setUserEntity(adEntity.getUserEntity());
+            commentEntity.setAdEntity(adEntity);
+            commentEntityList.add(commentRepository.save(commentEntity));
+        }
+        return commentEntityList;
+    }
 }
@@ -55,7 +55,7 @@ class AdMapperImplTest {
 
         adTest.setAuthor(adEntityTest.getUserEntity().getId());
         adTest.setPk(adEntityTest.getId());
-        adTest.setImage(adEntityTest.getImagePath());
+        adTest.setImage(adEntityTest.getImagePath() + "?size=thumb");
         adTest.setPrice(adEntityTest.getPrice());
         adTest.setTitle(adEntityTest.getTitle());
 
@@ -79,7 +79,7 @@ class AdMapperImplTest {
     void toAdTest() {
         Ad result=adMapperTest.toAd(adEntityTest);
         assertEquals(adEntityTest.getUserEntity().getId(),result.getAuthor());
-        assertEquals(adEntityTest.getImagePath(),result.getImage());
+        assertEquals(adEntityTest.getImagePath() + "?size=thumb",result.getImage());
         assertEquals(adEntityTest.getId(),result.getPk());
         assertEquals(adEntityTest.getTitle(),result.getTitle());
         assertEquals(adEntityTest.getPrice(),result.getPrice());
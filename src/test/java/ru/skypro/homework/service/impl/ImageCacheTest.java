@@ -0,0 +1,71 @@
+package ru.skypro.homework.service.impl;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.util.unit.DataSize;
+import ru.skypro.homework.dto.ads.ImageSize;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageCacheTest {
+
+    ImageCache imageCacheTest = new ImageCache(DataSize.ofKilobytes(64), DataSize.ofKilobytes(1));
+
+    @Test
+    void getShouldNotCacheImageLoadedBeforeEviction() throws IOException {
+        String key = ImageCache.adKey(1, ImageSize.ORIGINAL);
+
+        Resource stale = imageCacheTest.get(key, () -> {
+            imageCacheTest.evict(key);
+            return image("old".getBytes());
+        });
+        Resource fresh = imageCacheTest.get(key, () -> image("new".getBytes()));
+
+        assertArrayEquals("old".getBytes(), stale.getInputStream().readAllBytes());
+        assertArrayEquals("new".getBytes(), fresh.getInputStream().readAllBytes());
+    }
+
+    @Test
+    void getShouldReturnCachedImageWithoutLoading() throws IOException {
+        String key = ImageCache.userKey(1);
+        imageCacheTest.get(key, () -> image("avatar".getBytes()));
+
+        Resource cached = imageCacheTest.get(key, () -> {
+            throw new AssertionError("Image must be read from cache");
+        });
+
+        assertArrayEquals("avatar".getBytes(), cached.getInputStream().readAllBytes());
+    }
+
+    @Test
+    void getShouldNotCacheImagesLargerThanMaxEntrySize() throws IOException {
+        String key = ImageCache.userKey(2);
+        byte[] content = new byte[2048];
+
+        imageCacheTest.get(key, () -> image(content));
+
+        assertNull(imageCacheTest.getNativeCache().getIfPresent(key));
+    }
+
+    @Test
+    void getShouldPassLoaderExceptionToCaller() {
+        String key = ImageCache.userKey(3);
+
+        assertThrows(IOException.class, () -> imageCacheTest.get(key, () -> {
+            throw new IOException("broken file");
+        }));
+        assertNull(imageCacheTest.getNativeCache().getIfPresent(key));
+    }
+
+    private static Resource image(byte[] content) {
+        return new ByteArrayResource(content) {
+            @Override
+            public long lastModified() {
+                return 0;
+            }
+        };
+    }
+}
@@ -0,0 +1,72 @@
+package ru.skypro.homework.service.impl;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.skypro.homework.dto.ads.ImageSize;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageVariantServiceImplTest {
+
+    ImageVariantServiceImpl imageVariantServiceTest = new ImageVariantServiceImpl();
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void generateVariantsShouldScaleDownKeepingAspectRatio() throws IOException {
+        Path original = writeImage(dir.resolve("Advertisement_1.png"), 2048, 1024);
+
+        imageVariantServiceTest.generateVariants(original).join();
+
+        BufferedImage thumb = ImageIO.read(dir.resolve("Advertisement_1_thumb.png").toFile());
+        BufferedImage medium = ImageIO.read(dir.resolve("Advertisement_1_medium.png").toFile());
+        assertEquals(320, thumb.getWidth());
+        assertEquals(160, thumb.getHeight());
+        assertEquals(1024, medium.getWidth());
+        assertEquals(512, medium.getHeight());
+    }
+
+    @Test
+    void generateVariantsShouldSkipVariantsLargerThanOriginal() throws IOException {
+        Path original = writeImage(dir.resolve("Advertisement_2.jpg"), 500, 400);
+
+        imageVariantServiceTest.generateVariants(original).join();
+
+        assertTrue(Files.exists(imageVariantServiceTest.variantPath(original, ImageSize.THUMB)));
+        assertFalse(Files.exists(imageVariantServiceTest.variantPath(original, ImageSize.MEDIUM)));
+    }
+
+    @Test
+    void generateVariantsShouldIgnoreNotImageFiles() throws IOException {
+        Path original = Files.write(dir.resolve("Advertisement_3.png"), "image".getBytes());
+
+        imageVariantServiceTest.generateVariants(original).join();
+
+        assertFalse(Files.exists(imageVariantServiceTest.variantPath(original, ImageSize.THUMB)));
+    }
+
+    @Test
+    void deleteVariantsShouldKeepOriginal() throws IOException {
+        Path original = writeImage(dir.resolve("Advertisement_4.png"), 2048, 2048);
+        imageVariantServiceTest.generateVariants(original).join();
+
+        imageVariantServiceTest.deleteVariants(original);
+
+        assertTrue(Files.exists(original));
+        assertFalse(Files.exists(imageVariantServiceTest.variantPath(original, ImageSize.THUMB)));
+        assertFalse(Files.exists(imageVariantServiceTest.variantPath(original, ImageSize.MEDIUM)));
+    }
+
+    private Path writeImage(Path path, int width, int height) throws IOException {
+        String format = path.getFileName().toString().endsWith(".png") ? "png" : "jpg";
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), format, path.toFile());
+        return path;
+    }
+}
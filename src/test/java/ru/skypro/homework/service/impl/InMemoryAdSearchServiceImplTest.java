@@ -0,0 +1,62 @@
+package ru.skypro.homework.service.impl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.skypro.homework.model.AdEntity;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryAdSearchServiceImplTest {
+
+    InMemoryAdSearchServiceImpl searchServiceTest = new InMemoryAdSearchServiceImpl(null, null);
+
+    @BeforeEach
+    void setUp() {
+        searchServiceTest.index(createAd(1, "Велосипед горный", "Почти новый велосипед", 15000));
+        searchServiceTest.index(createAd(2, "Шлем", "Подходит для езды на велосипеде и велосипед в подарок", 3000));
+        searchServiceTest.index(createAd(3, "Велосипед детский", "Велосипед, велосипед, велосипед", 5000));
+        searchServiceTest.index(createAd(4, "Самокат", "Городской самокат", 7000));
+    }
+
+    @Test
+    void searchShouldRankTitleMatchesFirst() {
+        List<Integer> result = searchServiceTest.search("велосипед", 0, Integer.MAX_VALUE, 0, 10);
+        assertEquals(List.of(3, 1, 2), result);
+    }
+
+    @Test
+    void searchShouldRequireAllTerms() {
+        assertEquals(List.of(3), searchServiceTest.search("Детский велосипед", 0, Integer.MAX_VALUE, 0, 10));
+    }
+
+    @Test
+    void searchShouldFilterByPriceRange() {
+        assertEquals(List.of(1), searchServiceTest.search("велосипед", 10000, 20000, 0, 10));
+    }
+
+    @Test
+    void searchShouldPaginateResults() {
+        assertEquals(List.of(1, 2), searchServiceTest.search("велосипед", 0, Integer.MAX_VALUE, 1, 2));
+    }
+
+    @Test
+    void searchShouldReflectUpdatesAndRemovals() {
+        searchServiceTest.index(createAd(4, "Самокат и велосипед", "Комплект", 7000));
+        searchServiceTest.remove(3);
+        List<Integer> result = searchServiceTest.search("велосипед", 0, Integer.MAX_VALUE, 0, 10);
+        assertTrue(result.contains(4));
+        assertFalse(result.contains(3));
+        assertTrue(searchServiceTest.search("самокат городской", 0, Integer.MAX_VALUE, 0, 10).isEmpty());
+    }
+
+    private static AdEntity createAd(int id, String title, String description, int price) {
+        AdEntity adEntity = new AdEntity();
+        adEntity.setId(id);
+        adEntity.setTitle(title);
+        adEntity.setDescription(description);
+        adEntity.setPrice(price);
+        return adEntity;
+    }
+}